@@ -20,8 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import io.swagger.client.model.DockstoreTool;
-import io.swagger.client.model.Workflow;
+import io.swagger.client.model.EntrySummary;
 
 /**
  * Organizes all methods that have to do with parsing of input and creation of output.
@@ -141,42 +140,19 @@ public final class ArgumentUtility {
         return val;
     }
 
-    public static int[] columnWidthsTool(List<DockstoreTool> containers) {
+    public static int[] columnWidths(List<EntrySummary> entries) {
         int[] maxWidths = { NAME_HEADER.length(), DESCRIPTION_HEADER.length(), GIT_HEADER.length() };
 
-        for (DockstoreTool container : containers) {
-            final String toolPath = container.getToolPath();
-            if (toolPath != null && toolPath.length() > maxWidths[0]) {
-                maxWidths[0] = toolPath.length();
+        for (EntrySummary entry : entries) {
+            final String path = entry.getPath();
+            if (path != null && path.length() > maxWidths[0]) {
+                maxWidths[0] = path.length();
             }
-            final String description = container.getDescription();
+            final String description = entry.getDescription();
             if (description != null && description.length() > maxWidths[1]) {
                 maxWidths[1] = description.length();
             }
-            final String gitUrl = container.getGitUrl();
-            if (gitUrl != null && gitUrl.length() > maxWidths[2]) {
-                maxWidths[2] = gitUrl.length();
-            }
-        }
-
-        maxWidths[1] = (maxWidths[1] > MAX_DESCRIPTION) ? MAX_DESCRIPTION : maxWidths[1];
-
-        return maxWidths;
-    }
-
-    public static int[] columnWidthsWorkflow(List<Workflow> workflows) {
-        int[] maxWidths = { NAME_HEADER.length(), DESCRIPTION_HEADER.length(), GIT_HEADER.length() };
-
-        for (Workflow workflow : workflows) {
-            final String workflowGitPath = workflow.getPath();
-            if (workflowGitPath != null && workflowGitPath.length() > maxWidths[0]) {
-                maxWidths[0] = workflowGitPath.length();
-            }
-            final String description = workflow.getDescription();
-            if (description != null && description.length() > maxWidths[1]) {
-                maxWidths[1] = description.length();
-            }
-            final String gitUrl = workflow.getGitUrl();
+            final String gitUrl = entry.getGitUrl();
             if (gitUrl != null && gitUrl.length() > maxWidths[2]) {
                 maxWidths[2] = gitUrl.length();
             }
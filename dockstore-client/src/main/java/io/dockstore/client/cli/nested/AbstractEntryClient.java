@@ -58,6 +58,7 @@ import io.dockstore.common.Utilities;
 import io.dockstore.common.WDLFileProvisioning;
 import io.github.collaboratory.LauncherCWL;
 import io.swagger.client.ApiException;
+import io.swagger.client.model.EntrySummary;
 import io.swagger.client.model.Label;
 import io.swagger.client.model.SourceFile;
 import org.apache.commons.csv.CSVFormat;
@@ -113,6 +114,10 @@ import static io.dockstore.client.cli.Client.SCRIPT;
 public abstract class AbstractEntryClient {
     public static final String CROMWELL_LOCATION = "https://github.com/broadinstitute/cromwell/releases/download/0.21/cromwell-0.21.jar";
     private static final Logger LOG = LoggerFactory.getLogger(AbstractEntryClient.class);
+    /**
+     * The most search matches the webservice returns at once
+     */
+    private static final int SEARCH_PAGE_SIZE = 1000;
     public boolean isAdmin = false;
     private final CWL cwlUtil = new CWL();
 
@@ -270,6 +275,31 @@ public abstract class AbstractEntryClient {
      */
     protected abstract void handleSearch(String pattern);
 
+    /**
+     * One page of search matches from the webservice
+     */
+    @FunctionalInterface
+    protected interface SearchPage {
+        List<EntrySummary> get(int offset, int limit) throws ApiException;
+    }
+
+    /**
+     * The webservice returns a limited number of matches per request, so request pages until one is not full
+     *
+     * @param searchPage requests a page of matches
+     * @return all matches, best match first
+     * @throws ApiException
+     */
+    protected static List<EntrySummary> searchAll(SearchPage searchPage) throws ApiException {
+        List<EntrySummary> matches = new ArrayList<>();
+        List<EntrySummary> page;
+        do {
+            page = searchPage.get(matches.size(), SEARCH_PAGE_SIZE);
+            matches.addAll(page);
+        } while (page.size() == SEARCH_PAGE_SIZE);
+        return matches;
+    }
+
     /**
      * Handle the actual labelling
      *
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.google.common.base.Joiner;
@@ -41,6 +42,7 @@ import io.swagger.client.api.UsersApi;
 import io.swagger.client.model.Body;
 import io.swagger.client.model.Body1;
 import io.swagger.client.model.DockstoreTool;
+import io.swagger.client.model.EntrySummary;
 import io.swagger.client.model.Label;
 import io.swagger.client.model.PublishRequest;
 import io.swagger.client.model.SourceFile;
@@ -59,7 +61,7 @@ import static io.dockstore.client.cli.ArgumentUtility.MAX_DESCRIPTION;
 import static io.dockstore.client.cli.ArgumentUtility.NAME_HEADER;
 import static io.dockstore.client.cli.ArgumentUtility.WDL_STRING;
 import static io.dockstore.client.cli.ArgumentUtility.boolWord;
-import static io.dockstore.client.cli.ArgumentUtility.columnWidthsTool;
+import static io.dockstore.client.cli.ArgumentUtility.columnWidths;
 import static io.dockstore.client.cli.ArgumentUtility.containsHelpRequest;
 import static io.dockstore.client.cli.ArgumentUtility.errorMessage;
 import static io.dockstore.client.cli.ArgumentUtility.exceptionMessage;
@@ -119,10 +121,10 @@ public class ToolClient extends AbstractEntryClient {
         return false;
     }
 
-    private static void printToolList(List<DockstoreTool> containers) {
+    private static void printToolList(List<EntrySummary> containers) {
         Collections.sort(containers, new ToolComparator());
 
-        int[] maxWidths = columnWidthsTool(containers);
+        int[] maxWidths = columnWidths(containers);
 
         int nameWidth = maxWidths[0] + Client.PADDING;
         int descWidth = maxWidths[1] + Client.PADDING;
@@ -130,7 +132,7 @@ public class ToolClient extends AbstractEntryClient {
         String format = "%-" + nameWidth + "s%-" + descWidth + "s%-" + gitWidth + "s%-16s%-16s%-10s";
         out(format, NAME_HEADER, DESCRIPTION_HEADER, GIT_HEADER, "On Dockstore?", "Descriptor", "Automated");
 
-        for (DockstoreTool container : containers) {
+        for (EntrySummary container : containers) {
             String descriptor = "No";
             String automated = "No";
             String description = "";
@@ -152,14 +154,14 @@ public class ToolClient extends AbstractEntryClient {
                 }
             }
 
-            out(format, container.getToolPath(), description, gitUrl, boolWord(container.getIsPublished()), descriptor, automated);
+            out(format, container.getPath(), description, gitUrl, boolWord(container.getIsPublished()), descriptor, automated);
         }
     }
 
-    private static void printPublishedList(List<DockstoreTool> containers) {
+    private static void printPublishedList(List<EntrySummary> containers) {
         Collections.sort(containers, new ToolComparator());
 
-        int[] maxWidths = columnWidthsTool(containers);
+        int[] maxWidths = columnWidths(containers);
 
         int nameWidth = maxWidths[0] + Client.PADDING;
         int descWidth = maxWidths[1] + Client.PADDING;
@@ -167,7 +169,7 @@ public class ToolClient extends AbstractEntryClient {
         String format = "%-" + nameWidth + "s%-" + descWidth + "s%-" + gitWidth + "s";
         out(format, NAME_HEADER, DESCRIPTION_HEADER, GIT_HEADER);
 
-        for (DockstoreTool container : containers) {
+        for (EntrySummary container : containers) {
             String description = "";
             String gitUrl = "";
 
@@ -177,7 +179,7 @@ public class ToolClient extends AbstractEntryClient {
 
             description = getCleanedDescription(container.getDescription());
 
-            out(format, container.getToolPath(), description, gitUrl);
+            out(format, container.getPath(), description, gitUrl);
         }
     }
 
@@ -188,7 +190,7 @@ public class ToolClient extends AbstractEntryClient {
             if (user == null) {
                 errorMessage("User not found", Client.CLIENT_ERROR);
             }
-            List<DockstoreTool> containers = usersApi.userPublishedContainers(user.getId());
+            List<EntrySummary> containers = usersApi.userPublishedContainerSummaries(user.getId());
             printPublishedList(containers);
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
@@ -197,7 +199,7 @@ public class ToolClient extends AbstractEntryClient {
 
     protected void handleSearch(String pattern) {
         try {
-            List<DockstoreTool> containers = containersApi.search(pattern);
+            List<EntrySummary> containers = searchAll((offset, limit) -> containersApi.searchSummaries(pattern, offset, limit));
 
             out("MATCHING TOOLS");
             printLineBreak();
@@ -281,7 +283,7 @@ public class ToolClient extends AbstractEntryClient {
             if (user == null) {
                 errorMessage("User not found", Client.CLIENT_ERROR);
             }
-            List<DockstoreTool> containers = usersApi.userContainers(user.getId());
+            List<EntrySummary> containers = usersApi.userContainerSummaries(user.getId());
 
             out("YOUR AVAILABLE CONTAINERS");
             printLineBreak();
@@ -294,7 +296,7 @@ public class ToolClient extends AbstractEntryClient {
     @Override
     protected void handleListUnstarredEntries() {
         try {
-            List<DockstoreTool> containers = containersApi.allPublishedContainers();
+            List<EntrySummary> containers = containersApi.allPublishedContainerSummaries();
             out("ALL PUBLISHED TOOLS");
             printLineBreak();
             printPublishedList(containers);
@@ -566,7 +568,7 @@ public class ToolClient extends AbstractEntryClient {
 
             out("YOUR UPDATED TOOLS");
             printLineBreak();
-            printToolList(containers);
+            printToolList(containers.stream().map(ToolClient::summarize).collect(Collectors.toList()));
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
         }
@@ -577,8 +579,8 @@ public class ToolClient extends AbstractEntryClient {
             DockstoreTool container = containersApi.getContainerByToolPath(toolpath);
             final Long containerId = container.getId();
             DockstoreTool updatedContainer = containersApi.refresh(containerId);
-            List<DockstoreTool> containerList = new ArrayList<>();
-            containerList.add(updatedContainer);
+            List<EntrySummary> containerList = new ArrayList<>();
+            containerList.add(summarize(updatedContainer));
             out("YOUR UPDATED TOOLS");
             printLineBreak();
             printToolList(containerList);
@@ -1204,9 +1206,24 @@ public class ToolClient extends AbstractEntryClient {
         }
     }
 
-    private static class ToolComparator implements Comparator<DockstoreTool> {
+    /**
+     * @param container a tool returned in full, for example by a refresh
+     * @return the fields that tool listings print
+     */
+    private static EntrySummary summarize(DockstoreTool container) {
+        EntrySummary summary = new EntrySummary();
+        summary.setId(container.getId());
+        summary.setPath(container.getToolPath());
+        summary.setName(container.getName());
+        summary.setDescription(container.getDescription());
+        summary.setGitUrl(container.getGitUrl());
+        summary.setIsPublished(container.getIsPublished());
+        return summary;
+    }
+
+    private static class ToolComparator implements Comparator<EntrySummary> {
         @Override
-        public int compare(DockstoreTool c1, DockstoreTool c2) {
+        public int compare(EntrySummary c1, EntrySummary c2) {
             String path1 = c1.getPath();
             String path2 = c2.getPath();
 
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.google.common.base.Joiner;
 import com.google.common.io.Files;
@@ -34,6 +35,7 @@ import io.swagger.client.api.UsersApi;
 import io.swagger.client.api.WorkflowsApi;
 import io.swagger.client.model.Body2;
 import io.swagger.client.model.Body3;
+import io.swagger.client.model.EntrySummary;
 import io.swagger.client.model.Label;
 import io.swagger.client.model.PublishRequest;
 import io.swagger.client.model.SourceFile;
@@ -50,7 +52,7 @@ import static io.dockstore.client.cli.ArgumentUtility.GIT_HEADER;
 import static io.dockstore.client.cli.ArgumentUtility.NAME_HEADER;
 import static io.dockstore.client.cli.ArgumentUtility.WDL_STRING;
 import static io.dockstore.client.cli.ArgumentUtility.boolWord;
-import static io.dockstore.client.cli.ArgumentUtility.columnWidthsWorkflow;
+import static io.dockstore.client.cli.ArgumentUtility.columnWidths;
 import static io.dockstore.client.cli.ArgumentUtility.containsHelpRequest;
 import static io.dockstore.client.cli.ArgumentUtility.errorMessage;
 import static io.dockstore.client.cli.ArgumentUtility.exceptionMessage;
@@ -197,7 +199,7 @@ public class WorkflowClient extends AbstractEntryClient {
 
             out("YOUR UPDATED WORKFLOWS");
             printLineBreak();
-            printWorkflowList(workflows);
+            printWorkflowList(workflows.stream().map(WorkflowClient::summarize).collect(Collectors.toList()));
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
         }
@@ -209,8 +211,8 @@ public class WorkflowClient extends AbstractEntryClient {
             Workflow workflow = workflowsApi.getWorkflowByPath(path);
             final Long workflowId = workflow.getId();
             Workflow updatedWorkflow = workflowsApi.refresh(workflowId);
-            List<Workflow> workflowList = new ArrayList<>();
-            workflowList.add(updatedWorkflow);
+            List<EntrySummary> workflowList = new ArrayList<>();
+            workflowList.add(summarize(updatedWorkflow));
             out("YOUR UPDATED WORKFLOW");
             printLineBreak();
             printWorkflowList(workflowList);
@@ -329,7 +331,7 @@ public class WorkflowClient extends AbstractEntryClient {
             if (user == null) {
                 errorMessage("User not found", Client.CLIENT_ERROR);
             }
-            List<Workflow> workflows = usersApi.userWorkflows(user.getId());
+            List<EntrySummary> workflows = usersApi.userWorkflowSummaries(user.getId());
 
             out("YOUR AVAILABLE WORKFLOWS");
             printLineBreak();
@@ -342,7 +344,7 @@ public class WorkflowClient extends AbstractEntryClient {
     @Override
     protected void handleListUnstarredEntries() {
         try {
-            List<Workflow> workflows = workflowsApi.allPublishedWorkflows();
+            List<EntrySummary> workflows = workflowsApi.allPublishedWorkflowSummaries();
             out("ALL PUBLISHED WORKFLOWS");
             printLineBreak();
             printWorkflowList(workflows);
@@ -402,7 +404,7 @@ public class WorkflowClient extends AbstractEntryClient {
     @Override
     protected void handleSearch(String pattern) {
         try {
-            List<Workflow> workflows = workflowsApi.search(pattern);
+            List<EntrySummary> workflows = searchAll((offset, limit) -> workflowsApi.searchSummaries(pattern, offset, limit));
 
             out("MATCHING WORKFLOWS");
             printLineBreak();
@@ -420,7 +422,7 @@ public class WorkflowClient extends AbstractEntryClient {
             if (user == null) {
                 errorMessage("User not found", Client.CLIENT_ERROR);
             }
-            List<Workflow> workflows = usersApi.userPublishedWorkflows(user.getId());
+            List<EntrySummary> workflows = usersApi.userPublishedWorkflowSummaries(user.getId());
             printWorkflowList(workflows);
         } catch (ApiException ex) {
             exceptionMessage(ex, "", Client.API_ERROR);
@@ -524,8 +526,8 @@ public class WorkflowClient extends AbstractEntryClient {
         }
     }
 
-    private static void printWorkflowList(List<Workflow> workflows) {
-        int[] maxWidths = columnWidthsWorkflow(workflows);
+    private static void printWorkflowList(List<EntrySummary> workflows) {
+        int[] maxWidths = columnWidths(workflows);
 
         int nameWidth = maxWidths[0] + Client.PADDING;
         int descWidth = maxWidths[1] + Client.PADDING;
@@ -533,7 +535,7 @@ public class WorkflowClient extends AbstractEntryClient {
         String format = "%-" + nameWidth + "s%-" + descWidth + "s%-" + gitWidth + "s%-16s";
         out(format, NAME_HEADER, DESCRIPTION_HEADER, GIT_HEADER, "On Dockstore?");
 
-        for (Workflow workflow : workflows) {
+        for (EntrySummary workflow : workflows) {
             String gitUrl = "";
 
             if (workflow.getGitUrl() != null && !workflow.getGitUrl().isEmpty()) {
@@ -546,6 +548,21 @@ public class WorkflowClient extends AbstractEntryClient {
         }
     }
 
+    /**
+     * @param workflow a workflow returned in full, for example by a refresh
+     * @return the fields that workflow listings print
+     */
+    private static EntrySummary summarize(Workflow workflow) {
+        EntrySummary summary = new EntrySummary();
+        summary.setId(workflow.getId());
+        summary.setPath(workflow.getPath());
+        summary.setName(workflow.getWorkflowName());
+        summary.setDescription(workflow.getDescription());
+        summary.setGitUrl(workflow.getGitUrl());
+        summary.setIsPublished(workflow.getIsPublished());
+        return summary;
+    }
+
     private static void manualPublishHelp() {
         printHelpHeader();
         out("Usage: dockstore workflow manual_publish --help");
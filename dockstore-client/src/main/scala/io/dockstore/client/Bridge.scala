@@ -32,13 +32,26 @@ import scala.util.{Failure, Success, Try}
   * until wdltool is released to artifactory.
   */
 class Bridge {
-  var secondaryWdlFiles = new util.HashMap[String, String]()
+  var secondaryWdlFiles: util.Map[String, String] = new util.HashMap[String, String]()
   val bridgeHelper = new BridgeHelper()
 
-  def setSecondaryFiles(secondaryFiles: util.HashMap[String, String]) = {
+  def setSecondaryFiles(secondaryFiles: util.Map[String, String]) = {
     secondaryWdlFiles = secondaryFiles
   }
 
+  /**
+    * Parses a workflow from its content. Imports are resolved from the secondary files or by URL, nothing is read from
+    * or written to disk, so the namespace can be parsed once and passed to the methods below that take one.
+    */
+  def parseWorkflow(content: String): NamespaceWithWorkflow = {
+    NamespaceWithWorkflow.load(content, dagResolver)
+  }
+
+  private[this] def readFile(file: JFile): String = {
+    val source = scala.io.Source.fromFile(file)
+    try source.mkString finally source.close()
+  }
+
   def main(args: Array[String]): Unit = {
     println("Hello, world!")
   }
@@ -53,7 +66,7 @@ class Bridge {
   }
 
   private[this] def loadWdl(path: String)(f: WdlNamespace => String): String = {
-    val lines = scala.io.Source.fromFile(new JFile(path)).mkString
+    val lines = readFile(new JFile(path))
     Try(NamespaceWithWorkflow.load(lines, launchResolver)) match {
       case Success(namespace) => f(namespace)
       case Failure(t) =>
@@ -81,7 +94,7 @@ class Bridge {
   }
 
   def getInputFiles(file: JFile): util.Map[String, String] = {
-    val lines = scala.io.Source.fromFile(file).mkString
+    val lines = readFile(file)
     val ns = NamespaceWithWorkflow.load(lines, launchResolver)
 
     val inputList = new util.HashMap[String, String]()
@@ -95,10 +108,11 @@ class Bridge {
   }
 
   def getImportFiles(file: JFile): util.ArrayList[String] = {
-    val lines = scala.io.Source.fromFile(file).mkString
-    val importList = new util.ArrayList[String]()
+    getImportFiles(parseWorkflow(readFile(file)))
+  }
 
-    val ns = NamespaceWithWorkflow.load(lines, dagResolver)
+  def getImportFiles(ns: NamespaceWithWorkflow): util.ArrayList[String] = {
+    val importList = new util.ArrayList[String]()
 
     ns.imports foreach { imported =>
       println(imported.uri)
@@ -109,10 +123,11 @@ class Bridge {
   }
 
   def getImportMap(file: JFile): util.LinkedHashMap[String, String] = {
-    val lines = scala.io.Source.fromFile(file).mkString
-    val importMap = new util.LinkedHashMap[String, String]()
+    getImportMap(parseWorkflow(readFile(file)))
+  }
 
-    val ns = NamespaceWithWorkflow.load(lines, dagResolver)
+  def getImportMap(ns: NamespaceWithWorkflow): util.LinkedHashMap[String, String] = {
+    val importMap = new util.LinkedHashMap[String, String]()
 
     ns.imports foreach { imported =>
       val importNamespace = imported.namespace.get
@@ -126,7 +141,7 @@ class Bridge {
 
 
   def getOutputFiles(file: JFile): util.List[String] = {
-    val lines = scala.io.Source.fromFile(file).mkString
+    val lines = readFile(file)
     val ns = NamespaceWithWorkflow.load(lines, launchResolver)
 
     val outputList = new util.ArrayList[String]()
@@ -146,8 +161,7 @@ class Bridge {
   }
 
   def getCallsAndDocker(file: JFile): util.LinkedHashMap[String, Seq[String]] = {
-    val lines = scala.io.Source.fromFile(file).mkString
-    val ns = NamespaceWithWorkflow.load(lines, dagResolver)
+    val ns = parseWorkflow(readFile(file))
     val tasks = new util.LinkedHashMap[String, Seq[String]]()
 
     // For each call
@@ -171,8 +185,10 @@ class Bridge {
   }
 
   def getCallsToDockerMap(file: JFile): util.LinkedHashMap[String, String] = {
-    val lines = scala.io.Source.fromFile(file).mkString
-    val ns = NamespaceWithWorkflow.load(lines, dagResolver)
+    getCallsToDockerMap(parseWorkflow(readFile(file)))
+  }
+
+  def getCallsToDockerMap(ns: NamespaceWithWorkflow): util.LinkedHashMap[String, String] = {
     val tasks = new util.LinkedHashMap[String, String]()
 
 
@@ -185,8 +201,10 @@ class Bridge {
   }
 
   def getCallsToDependencies(file: JFile): util.LinkedHashMap[String, util.ArrayList[String]] = {
-    val lines = scala.io.Source.fromFile(file).mkString
-    val ns = NamespaceWithWorkflow.load(lines, dagResolver)
+    getCallsToDependencies(parseWorkflow(readFile(file)))
+  }
+
+  def getCallsToDependencies(ns: NamespaceWithWorkflow): util.LinkedHashMap[String, util.ArrayList[String]] = {
     val dependencyMap = new util.LinkedHashMap[String, util.ArrayList[String]]()
     ns.workflow.calls foreach { call =>
       val dependencies = new util.ArrayList[String]()
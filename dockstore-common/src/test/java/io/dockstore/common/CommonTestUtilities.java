@@ -18,7 +18,10 @@ package io.dockstore.common;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
+import com.google.common.hash.Hashing;
 import io.dropwizard.testing.ResourceHelpers;
 import org.apache.commons.configuration2.INIConfiguration;
 import org.apache.commons.dbutils.ResultSetHandler;
@@ -94,6 +97,7 @@ public class CommonTestUtilities {
             // need to increment past manually entered ids above
             runUpdateStatement("alter sequence container_id_seq restart with 1000;");
             runUpdateStatement("alter sequence tag_id_seq restart with 1000;");
+            hashTokens();
         }
 
         public void clearDatabaseMakePrivate() throws IOException {
@@ -121,7 +125,7 @@ public class CommonTestUtilities {
             runUpdateStatementConfidential("alter sequence tag_id_seq restart with 1000;");
             runUpdateStatementConfidential("alter sequence sourcefile_id_seq restart with 1000;");
             runUpdateStatementConfidential("alter sequence label_id_seq restart with 1000;");
-
+            hashTokens();
         }
 
         public void clearDatabaseMakePrivate2() throws IOException {
@@ -134,6 +138,17 @@ public class CommonTestUtilities {
             runUpdateStatementConfidential("alter sequence tag_id_seq restart with 1000;");
             runUpdateStatementConfidential("alter sequence sourcefile_id_seq restart with 1000;");
             runUpdateStatementConfidential("alter sequence label_id_seq restart with 1000;");
+            hashTokens();
+        }
+
+        /**
+         * The webservice looks tokens up by a hash of their content, fill it in for tokens inserted with plain SQL
+         */
+        private void hashTokens() {
+            Map<Long, Map<String, Object>> tokens = runSelectStatement("select id, content from token where contenthash is null",
+                    new KeyedHandler<>("id"));
+            tokens.forEach((id, token) -> runUpdateStatement("update token set contenthash = ? where id = ?",
+                    Hashing.sha256().hashString((String)token.get("content"), StandardCharsets.UTF_8).toString(), id));
         }
 
         @Override
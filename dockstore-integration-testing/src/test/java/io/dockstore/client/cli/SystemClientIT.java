@@ -442,11 +442,11 @@ public class SystemClientIT {
         ApiClient client = getWebClient();
         ContainersApi containersApi = new ContainersApi(client);
 
-        List<DockstoreTool> containers = containersApi.search("test6");
+        List<DockstoreTool> containers = containersApi.search("test6", null, null);
         assertTrue(containers.size() == 1);
         assertTrue(containers.get(0).getPath().equals(QUAY_IO_TEST_ORG_TEST6));
 
-        containers = containersApi.search("test5");
+        containers = containersApi.search("test5", null, null);
         assertTrue(containers.isEmpty());
     }
 
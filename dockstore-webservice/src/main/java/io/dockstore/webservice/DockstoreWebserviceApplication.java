@@ -21,25 +21,47 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dockstore.webservice.core.DescriptorResult;
+import io.dockstore.webservice.core.FileContent;
 import io.dockstore.webservice.core.Group;
 import io.dockstore.webservice.core.Label;
+import io.dockstore.webservice.core.RefreshJob;
 import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tag;
 import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.Tool;
+import io.dockstore.webservice.core.ToolProjection;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.helpers.ConditionalRequestCache;
+import io.dockstore.webservice.helpers.DescriptorResultCache;
+import io.dockstore.webservice.helpers.FileContentCleanup;
+import io.dockstore.webservice.helpers.HibernateCacheMetrics;
+import io.dockstore.webservice.helpers.OutboundRequestScheduler;
+import io.dockstore.webservice.helpers.RefreshExecutor;
+import io.dockstore.webservice.helpers.RefreshJobRunner;
+import io.dockstore.webservice.helpers.RefreshJobService;
+import io.dockstore.webservice.helpers.RepositoryMetadataCache;
+import io.dockstore.webservice.helpers.SourceCodeRepoInterface;
+import io.dockstore.webservice.helpers.ToolProjectionService;
+import io.dockstore.webservice.jdbi.DescriptorResultDAO;
+import io.dockstore.webservice.jdbi.FileContentListener;
 import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.GroupDAO;
 import io.dockstore.webservice.jdbi.LabelDAO;
+import io.dockstore.webservice.jdbi.PublishedEntryDAO;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
 import io.dockstore.webservice.jdbi.TagDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dockstore.webservice.jdbi.ToolProjectionDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
 import io.dockstore.webservice.jdbi.WorkflowDAO;
 import io.dockstore.webservice.jdbi.WorkflowVersionDAO;
@@ -50,6 +72,8 @@ import io.dockstore.webservice.resources.GitHubComAuthenticationResource;
 import io.dockstore.webservice.resources.GitHubRepoResource;
 import io.dockstore.webservice.resources.GitLabComAuthenticationResource;
 import io.dockstore.webservice.resources.QuayIOAuthenticationResource;
+import io.dockstore.webservice.resources.RefreshJobResource;
+import io.dockstore.webservice.resources.ResourceUtilities;
 import io.dockstore.webservice.resources.TemplateHealthCheck;
 import io.dockstore.webservice.resources.TokenResource;
 import io.dockstore.webservice.resources.UserResource;
@@ -82,6 +106,9 @@ import org.apache.http.client.HttpClient;
 import org.eclipse.jetty.servlet.FilterHolder;
 import org.eclipse.jetty.servlets.CrossOriginFilter;
 import org.glassfish.jersey.server.filter.RolesAllowedDynamicFeature;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -104,11 +131,31 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
 
     private final HibernateBundle<DockstoreWebserviceConfiguration> hibernate = new HibernateBundle<DockstoreWebserviceConfiguration>(
             Token.class, Tool.class, User.class, Group.class, Tag.class, Label.class, SourceFile.class, Workflow.class,
-            WorkflowVersion.class) {
+            WorkflowVersion.class, RefreshJob.class, ToolProjection.class, FileContent.class, DescriptorResult.class) {
         @Override
         public DataSourceFactory getDataSourceFactory(DockstoreWebserviceConfiguration configuration) {
             return configuration.getDataSourceFactory();
         }
+
+        /**
+         * Cache labels, entries, versions and their files between requests, regions are configured in ehcache.xml.
+         * The caches are local to this webservice, ehcache.xml describes what that means when several share a database.
+         * Any of these can be overridden by the database properties in the configuration file.
+         */
+        @Override
+        protected void configure(org.hibernate.cfg.Configuration configuration) {
+            setDefault(configuration, "hibernate.cache.use_second_level_cache", "true");
+            setDefault(configuration, "hibernate.cache.use_query_cache", "true");
+            setDefault(configuration, "hibernate.cache.region.factory_class", "org.hibernate.cache.ehcache.SingletonEhCacheRegionFactory");
+            setDefault(configuration, "net.sf.ehcache.configurationResourceName", "/ehcache.xml");
+            setDefault(configuration, "hibernate.generate_statistics", "true");
+        }
+
+        private void setDefault(org.hibernate.cfg.Configuration configuration, String key, String value) {
+            if (configuration.getProperty(key) == null) {
+                configuration.setProperty(key, value);
+            }
+        }
     };
 
     public static void main(String[] args) throws Exception {
@@ -192,12 +239,27 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         final TagDAO tagDAO = new TagDAO(hibernate.getSessionFactory());
         final LabelDAO labelDAO = new LabelDAO(hibernate.getSessionFactory());
         final FileDAO fileDAO = new FileDAO(hibernate.getSessionFactory());
+        final RefreshJobDAO refreshJobDAO = new RefreshJobDAO(hibernate.getSessionFactory());
+        final PublishedEntryDAO publishedEntryDAO = new PublishedEntryDAO(hibernate.getSessionFactory());
+        final ToolProjectionDAO toolProjectionDAO = new ToolProjectionDAO(hibernate.getSessionFactory());
+        final DescriptorResultDAO descriptorResultDAO = new DescriptorResultDAO(hibernate.getSessionFactory());
+        HibernateCacheMetrics.register(hibernate.getSessionFactory(), environment.metrics());
+
+        // source files point at their content by hash, the content is stored when the first file with it is written
+        final EventListenerRegistry eventListenerRegistry = ((SessionFactoryImplementor)hibernate.getSessionFactory()).getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        final FileContentListener fileContentListener = new FileContentListener(environment.metrics());
+        eventListenerRegistry.appendListeners(EventType.PRE_INSERT, fileContentListener);
+        eventListenerRegistry.appendListeners(EventType.PRE_UPDATE, fileContentListener);
+        // the GA4GH representation of published entries is rewritten by the requests that change them
+        final ToolProjectionService toolProjectionService = new ToolProjectionService(toolProjectionDAO);
+        eventListenerRegistry.appendListeners(EventType.POST_DELETE, toolProjectionService);
 
         LOG.info("Cache directory for OkHttp is: " + cache.directory().getAbsolutePath());
         LOG.info("This is our custom logger saying that we're about to load authenticators");
         // setup authentication to allow session access in authenticators, see https://github.com/dropwizard/dropwizard/pull/1361
         SimpleAuthenticator authenticator = new UnitOfWorkAwareProxyFactory(getHibernate())
-                .create(SimpleAuthenticator.class, new Class[] { TokenDAO.class, UserDAO.class }, new Object[] { tokenDAO, userDAO });
+                .create(SimpleAuthenticator.class, new Class[] { UserDAO.class }, new Object[] { userDAO });
         CachingAuthenticator<String, User> cachingAuthenticator = new CachingAuthenticator<>(environment.metrics(), authenticator,
                 configuration.getAuthenticationCachePolicy());
         environment.jersey().register(new AuthDynamicFeature(
@@ -210,11 +272,26 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
         final HttpClient httpClient = new HttpClientBuilder(environment).using(configuration.getHttpClientConfiguration()).build(getName());
+        ResourceUtilities.setConditionalRequestCache(
+                new ConditionalRequestCache(configuration.getConditionalRequestCachePolicy(), configuration.getConditionalRequestProviders(),
+                        environment.metrics()));
+        ResourceUtilities.setRequestScheduler(
+                new OutboundRequestScheduler(configuration.getHostRequestsPerSecond(), configuration.getTokenRequestsPerSecond(),
+                        configuration.getOutboundRequestRetries(), environment.metrics()));
+        SourceCodeRepoInterface.setRepositoryMetadataCache(
+                new RepositoryMetadataCache(configuration.getRepositoryMetadataCachePolicy(), environment.metrics()));
+        SourceCodeRepoInterface.setSnapshotMaxBytes((long)configuration.getRepositorySnapshotMaxMegabytes() * BYTES_IN_KILOBYTE * KILOBYTES_IN_MEGABYTE);
+        SourceCodeRepoInterface.setSnapshotTimeouts((int)configuration.getHttpClientConfiguration().getConnectionTimeout().toMilliseconds(),
+                (int)configuration.getHttpClientConfiguration().getTimeout().toMilliseconds());
+        final ExecutorService refreshExecutorService = environment.lifecycle().executorService("refresh-%d")
+                .minThreads(configuration.getRefreshThreads()).maxThreads(configuration.getRefreshThreads()).build();
+        final RefreshExecutor refreshExecutor = new RefreshExecutor(refreshExecutorService, environment.metrics());
         final DockerRepoResource dockerRepoResource = new DockerRepoResource(mapper, httpClient, userDAO, tokenDAO, toolDAO, tagDAO,
-                labelDAO, fileDAO, configuration.getBitbucketClientID(), configuration.getBitbucketClientSecret());
+                labelDAO, fileDAO, configuration.getBitbucketClientID(), configuration.getBitbucketClientSecret(), refreshExecutor,
+                toolProjectionService);
         environment.jersey().register(dockerRepoResource);
         environment.jersey().register(new GitHubRepoResource(tokenDAO));
-        environment.jersey().register(new DockerRepoTagResource(toolDAO, tagDAO));
+        environment.jersey().register(new DockerRepoTagResource(toolDAO, tagDAO, toolProjectionService));
 
         final GitHubComAuthenticationResource resource3 = new GitHubComAuthenticationResource(configuration.getGithubClientID(),
                 configuration.getGithubRedirectURI());
@@ -232,15 +309,42 @@ public class DockstoreWebserviceApplication extends Application<DockstoreWebserv
                         configuration.getBitbucketClientID(), configuration.getBitbucketClientSecret(), configuration.getGitlabClientID(),
                         configuration.getGitlabClientSecret(), configuration.getGitlabRedirectURI(), httpClient, cachingAuthenticator));
 
+        final DescriptorResultCache descriptorResultCache = new DescriptorResultCache(configuration.getDescriptorResultCachePolicy(),
+                descriptorResultDAO, configuration.getPersistedDescriptorResultHours(), environment.metrics());
         final WorkflowResource workflowResource = new WorkflowResource(httpClient, userDAO, tokenDAO, toolDAO, workflowDAO,
-                workflowVersionDAO, labelDAO, fileDAO, configuration.getBitbucketClientID(), configuration.getBitbucketClientSecret());
+                workflowVersionDAO, labelDAO, fileDAO, configuration.getBitbucketClientID(), configuration.getBitbucketClientSecret(),
+                descriptorResultCache, toolProjectionService);
         environment.jersey().register(workflowResource);
 
-        environment.jersey().register(new UserResource(httpClient, tokenDAO, userDAO, groupDAO, workflowResource, dockerRepoResource));
+        environment.jersey().register(new UserResource(httpClient, tokenDAO, userDAO, groupDAO, toolDAO, workflowDAO, workflowResource, dockerRepoResource));
+
+        // refresh jobs run outside of HTTP requests, so their steps need sessions of their own
+        final RefreshJobRunner refreshJobRunner = new UnitOfWorkAwareProxyFactory(getHibernate()).create(RefreshJobRunner.class,
+                new Class[] { RefreshJobDAO.class, UserDAO.class, DockerRepoResource.class, WorkflowResource.class },
+                new Object[] { refreshJobDAO, userDAO, dockerRepoResource, workflowResource });
+        final ExecutorService refreshJobExecutorService = environment.lifecycle().executorService("refresh-job-%d")
+                .minThreads(configuration.getRefreshJobThreads()).maxThreads(configuration.getRefreshJobThreads()).build();
+        final ScheduledExecutorService refreshJobHeartbeatService = environment.lifecycle()
+                .scheduledExecutorService("refresh-job-heartbeat-%d").build();
+        final long refreshJobLeaseMillis = TimeUnit.SECONDS.toMillis(configuration.getRefreshJobLeaseSeconds());
+        final RefreshJobService refreshJobService = new RefreshJobService(refreshJobRunner, refreshJobExecutorService,
+                refreshJobHeartbeatService, RefreshJobService.newOwner(), refreshJobLeaseMillis);
+        environment.lifecycle().manage(refreshJobService);
+        environment.jersey().register(new RefreshJobResource(refreshJobDAO, refreshJobService));
+
+        if (configuration.getFileContentCleanupHours() > 0) {
+            final FileContentCleanup fileContentCleanup = new UnitOfWorkAwareProxyFactory(getHibernate())
+                    .create(FileContentCleanup.class, new Class[] { FileDAO.class }, new Object[] { fileDAO });
+            environment.lifecycle().scheduledExecutorService("file-content-cleanup-%d").build()
+                    .scheduleWithFixedDelay(fileContentCleanup, configuration.getFileContentCleanupHours(),
+                            configuration.getFileContentCleanupHours(), TimeUnit.HOURS);
+        }
 
         // attach the container dao statically to avoid too much modification of generated code
         ToolsApiServiceImpl.setToolDAO(toolDAO);
         ToolsApiServiceImpl.setWorkflowDAO(workflowDAO);
+        ToolsApiServiceImpl.setPublishedEntryDAO(publishedEntryDAO);
+        ToolsApiServiceImpl.setToolProjectionService(toolProjectionService);
         ToolsApiServiceImpl.setConfig(configuration);
         environment.jersey().register(new ToolsApi());
         environment.jersey().register(new MetadataApi());
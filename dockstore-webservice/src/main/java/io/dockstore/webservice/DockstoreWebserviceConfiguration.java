@@ -16,7 +16,12 @@
 
 package io.dockstore.webservice;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -82,6 +87,45 @@ public class DockstoreWebserviceConfiguration extends Configuration {
     @NotEmpty
     private String port;
 
+    @Min(1)
+    private int refreshThreads = 8;
+
+    @Min(1)
+    private int refreshJobThreads = 2;
+
+    @Min(1)
+    private int refreshJobLeaseSeconds = 300;
+
+    @NotNull
+    private CacheBuilderSpec conditionalRequestCachePolicy = CacheBuilderSpec.parse("maximumSize=1000, expireAfterAccess=1h");
+
+    @NotNull
+    private CacheBuilderSpec repositoryMetadataCachePolicy = CacheBuilderSpec.parse("maximumSize=10000, expireAfterWrite=10m");
+
+    @Min(1)
+    private int hostRequestsPerSecond = 20;
+
+    @Min(1)
+    private int tokenRequestsPerSecond = 5;
+
+    @Min(0)
+    private int outboundRequestRetries = 3;
+
+    @Min(0)
+    private int repositorySnapshotMaxMegabytes = 0;
+
+    @NotNull
+    private CacheBuilderSpec descriptorResultCachePolicy = CacheBuilderSpec.parse("maximumSize=1000, expireAfterWrite=1h");
+
+    @Min(0)
+    private int persistedDescriptorResultHours = 0;
+
+    @Min(0)
+    private int fileContentCleanupHours = 24;
+
+    @NotNull
+    private List<String> conditionalRequestProviders = new ArrayList<>(Arrays.asList("quay.io", "bitbucket.org", "gitlab.com"));
+
     @JsonProperty("database")
     public DataSourceFactory getDataSourceFactory() {
         return database;
@@ -285,4 +329,214 @@ public class DockstoreWebserviceConfiguration extends Configuration {
     public void setPort(String port) {
         this.port = port;
     }
+
+    /**
+     * @return the number of workers used to fetch tags and files from remote services during a refresh
+     */
+    @JsonProperty
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    /**
+     * @param refreshThreads the number of refresh workers to set
+     */
+    @JsonProperty
+    public void setRefreshThreads(int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+    }
+
+    /**
+     * @return the number of background refresh jobs that can run at once
+     */
+    @JsonProperty
+    public int getRefreshJobThreads() {
+        return refreshJobThreads;
+    }
+
+    /**
+     * @param refreshJobThreads the number of refresh job workers to set
+     */
+    @JsonProperty
+    public void setRefreshJobThreads(int refreshJobThreads) {
+        this.refreshJobThreads = refreshJobThreads;
+    }
+
+    /**
+     * @return seconds after which another web service takes over an unfinished refresh job whose owner stopped renewing it
+     */
+    @JsonProperty
+    public int getRefreshJobLeaseSeconds() {
+        return refreshJobLeaseSeconds;
+    }
+
+    /**
+     * @param refreshJobLeaseSeconds the refresh job lease to set
+     */
+    @JsonProperty
+    public void setRefreshJobLeaseSeconds(int refreshJobLeaseSeconds) {
+        this.refreshJobLeaseSeconds = refreshJobLeaseSeconds;
+    }
+
+    /**
+     * @return bounds for the responses remembered to make conditional requests
+     */
+    @JsonProperty
+    public CacheBuilderSpec getConditionalRequestCachePolicy() {
+        return conditionalRequestCachePolicy;
+    }
+
+    /**
+     * @param conditionalRequestCachePolicy the conditional request cache policy to set
+     */
+    @JsonProperty
+    public void setConditionalRequestCachePolicy(CacheBuilderSpec conditionalRequestCachePolicy) {
+        this.conditionalRequestCachePolicy = conditionalRequestCachePolicy;
+    }
+
+    /**
+     * @return hosts (quay.io, bitbucket.org, gitlab.com) for which GET requests send If-None-Match/If-Modified-Since
+     */
+    @JsonProperty
+    public List<String> getConditionalRequestProviders() {
+        return conditionalRequestProviders;
+    }
+
+    /**
+     * @param conditionalRequestProviders the hosts to make conditional requests to, empty to disable
+     */
+    @JsonProperty
+    public void setConditionalRequestProviders(List<String> conditionalRequestProviders) {
+        this.conditionalRequestProviders = conditionalRequestProviders;
+    }
+
+    /**
+     * @return requests per second allowed to one quay.io or git host
+     */
+    @JsonProperty
+    public int getHostRequestsPerSecond() {
+        return hostRequestsPerSecond;
+    }
+
+    /**
+     * @param hostRequestsPerSecond the requests per second per host to set
+     */
+    @JsonProperty
+    public void setHostRequestsPerSecond(int hostRequestsPerSecond) {
+        this.hostRequestsPerSecond = hostRequestsPerSecond;
+    }
+
+    /**
+     * @return requests per second allowed to one quay.io or git host with the same token
+     */
+    @JsonProperty
+    public int getTokenRequestsPerSecond() {
+        return tokenRequestsPerSecond;
+    }
+
+    /**
+     * @param tokenRequestsPerSecond the requests per second per token to set
+     */
+    @JsonProperty
+    public void setTokenRequestsPerSecond(int tokenRequestsPerSecond) {
+        this.tokenRequestsPerSecond = tokenRequestsPerSecond;
+    }
+
+    /**
+     * @return how many times to retry idempotent outbound requests that fail with a server error or 429
+     */
+    @JsonProperty
+    public int getOutboundRequestRetries() {
+        return outboundRequestRetries;
+    }
+
+    /**
+     * @param outboundRequestRetries the number of retries to set
+     */
+    @JsonProperty
+    public void setOutboundRequestRetries(int outboundRequestRetries) {
+        this.outboundRequestRetries = outboundRequestRetries;
+    }
+
+    /**
+     * @return the largest uncompressed repository, in megabytes, that a refresh downloads as one archive per branch or tag
+     * instead of reading files one at a time. 0 disables snapshots
+     */
+    @JsonProperty
+    public int getRepositorySnapshotMaxMegabytes() {
+        return repositorySnapshotMaxMegabytes;
+    }
+
+    /**
+     * @param repositorySnapshotMaxMegabytes the largest snapshot to set
+     */
+    @JsonProperty
+    public void setRepositorySnapshotMaxMegabytes(int repositorySnapshotMaxMegabytes) {
+        this.repositorySnapshotMaxMegabytes = repositorySnapshotMaxMegabytes;
+    }
+
+    /**
+     * @return how long repositories and their default branches are remembered across refreshes, maximumSize=0 to only remember
+     * them within one refresh
+     */
+    @JsonProperty
+    public CacheBuilderSpec getRepositoryMetadataCachePolicy() {
+        return repositoryMetadataCachePolicy;
+    }
+
+    /**
+     * @param repositoryMetadataCachePolicy the repository metadata cache policy to set
+     */
+    @JsonProperty
+    public void setRepositoryMetadataCachePolicy(CacheBuilderSpec repositoryMetadataCachePolicy) {
+        this.repositoryMetadataCachePolicy = repositoryMetadataCachePolicy;
+    }
+
+    /**
+     * @return how many workflow DAGs and tool tables are kept in memory and for how long, maximumSize=0 to keep none
+     */
+    @JsonProperty
+    public CacheBuilderSpec getDescriptorResultCachePolicy() {
+        return descriptorResultCachePolicy;
+    }
+
+    /**
+     * @param descriptorResultCachePolicy the DAG and tool table cache policy to set
+     */
+    @JsonProperty
+    public void setDescriptorResultCachePolicy(CacheBuilderSpec descriptorResultCachePolicy) {
+        this.descriptorResultCachePolicy = descriptorResultCachePolicy;
+    }
+
+    /**
+     * @return how long workflow DAGs and tool tables stored in the database are used, in hours. 0 to not store them
+     */
+    @JsonProperty
+    public int getPersistedDescriptorResultHours() {
+        return persistedDescriptorResultHours;
+    }
+
+    /**
+     * @param persistedDescriptorResultHours how long stored DAGs and tool tables are used
+     */
+    @JsonProperty
+    public void setPersistedDescriptorResultHours(int persistedDescriptorResultHours) {
+        this.persistedDescriptorResultHours = persistedDescriptorResultHours;
+    }
+
+    /**
+     * @return hours between deletions of stored file content that no source file refers to any more, 0 to never delete it
+     */
+    @JsonProperty
+    public int getFileContentCleanupHours() {
+        return fileContentCleanupHours;
+    }
+
+    /**
+     * @param fileContentCleanupHours the interval of file content cleanups to set
+     */
+    @JsonProperty
+    public void setFileContentCleanupHours(int fileContentCleanupHours) {
+        this.fileContentCleanupHours = fileContentCleanupHours;
+    }
 }
@@ -0,0 +1,53 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.http.HttpStatus;
+
+/**
+ * Thrown when a provider such as GitHub or quay.io will not accept requests for a while. Clients get a 503 with a Retry-After
+ * header instead of a request thread waiting for the provider's rate limit to reset.
+ *
+ * @author agent
+ */
+public class RateLimitedException extends WebApplicationException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * @param host              the provider that is rate limiting us
+     * @param retryAfterSeconds seconds until the provider accepts requests again
+     */
+    public RateLimitedException(String host, long retryAfterSeconds) {
+        this(retryAfterSeconds, "Rate limit reached for " + host + ", retry in " + retryAfterSeconds + " seconds");
+    }
+
+    private RateLimitedException(long retryAfterSeconds, String message) {
+        super(message, Response.status(HttpStatus.SC_SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity(message).type(MediaType.TEXT_PLAIN).build());
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
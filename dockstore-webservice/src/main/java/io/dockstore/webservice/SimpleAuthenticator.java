@@ -20,7 +20,6 @@ import java.util.Optional;
 
 import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.User;
-import io.dockstore.webservice.jdbi.TokenDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
 import io.dropwizard.auth.AuthenticationException;
 import io.dropwizard.auth.Authenticator;
@@ -34,22 +33,19 @@ import org.slf4j.LoggerFactory;
 public class SimpleAuthenticator implements Authenticator<String, User> {
     private static final Logger LOG = LoggerFactory.getLogger(SimpleAuthenticator.class);
 
-    private final TokenDAO dao;
     private final UserDAO userDAO;
 
-    public SimpleAuthenticator(TokenDAO dao, UserDAO userDAO) {
-        this.dao = dao;
+    public SimpleAuthenticator(UserDAO userDAO) {
         this.userDAO = userDAO;
     }
 
+    /**
+     * Tokens are looked up by their hash and only dockstore tokens are accepted, the user is loaded by the same query
+     */
     @UnitOfWork
     @Override
     public Optional<User> authenticate(String credentials) throws AuthenticationException {
-        LOG.info("SimpleAuthenticator called with {}", credentials);
-        final Token token = dao.findByContent(credentials);
-        if (token != null) {
-            return Optional.of(userDAO.findById(token.getUserId()));
-        }
-        return Optional.empty();
+        LOG.debug("SimpleAuthenticator called");
+        return Optional.ofNullable(userDAO.findByDockstoreTokenHash(Token.hash(credentials)));
     }
 }
@@ -0,0 +1,112 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dockstore.common.Registry;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * A tool or workflow as shown in listings, built by constructor expressions so that versions and their files are never loaded.
+ *
+ * @author agent
+ */
+@ApiModel(value = "EntrySummary", description = "A tool or workflow without its files, for listings")
+public class EntrySummary {
+    private final long id;
+    private final String path;
+    private final String name;
+    private final String description;
+    private final String gitUrl;
+    private final boolean isPublished;
+    private final List<String> labels = new ArrayList<>();
+    private final List<VersionSummary> versions = new ArrayList<>();
+
+    /**
+     * Used for workflows
+     */
+    public EntrySummary(long id, String path, String name, String description, String gitUrl, boolean isPublished) {
+        this.id = id;
+        this.path = path;
+        this.name = name;
+        this.description = description;
+        this.gitUrl = gitUrl;
+        this.isPublished = isPublished;
+    }
+
+    /**
+     * Used for tools, the path is built like {@link io.dockstore.webservice.core.Tool#getToolPath()}
+     */
+    @SuppressWarnings("checkstyle:parameternumber")
+    public EntrySummary(long id, String path, Registry registry, String namespace, String name, String toolname, String description,
+            String gitUrl, boolean isPublished) {
+        this(id, toolPath(path, registry, namespace, name, toolname), name, description, gitUrl, isPublished);
+    }
+
+    private static String toolPath(String path, Registry registry, String namespace, String name, String toolname) {
+        String repositoryPath = path == null ? registry.toString() + '/' + namespace + '/' + name : path;
+        return repositoryPath + (toolname == null || toolname.isEmpty() ? "" : '/' + toolname);
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Implementation specific ID for the entry in this web service")
+    public long getId() {
+        return id;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Full path of the tool or workflow")
+    public String getPath() {
+        return path;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Image name of a tool, or name of a workflow")
+    public String getName() {
+        return name;
+    }
+
+    @JsonProperty
+    public String getDescription() {
+        return description;
+    }
+
+    @JsonProperty
+    public String getGitUrl() {
+        return gitUrl;
+    }
+
+    @JsonProperty("is_published")
+    public boolean getIsPublished() {
+        return isPublished;
+    }
+
+    @JsonProperty
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    @JsonProperty
+    @ApiModelProperty("Visible versions, without their files")
+    public List<VersionSummary> getVersions() {
+        return versions;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.api;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+
+/**
+ * A tag or workflow version as shown in listings
+ *
+ * @author agent
+ */
+@ApiModel("VersionSummary")
+public class VersionSummary {
+    private final long entryId;
+    private final String name;
+    private final boolean valid;
+
+    public VersionSummary(long entryId, String name, boolean valid) {
+        this.entryId = entryId;
+        this.name = name;
+        this.valid = valid;
+    }
+
+    /**
+     * @return the tool or workflow this version belongs to
+     */
+    @JsonIgnore
+    public long getEntryId() {
+        return entryId;
+    }
+
+    @JsonProperty
+    public String getName() {
+        return name;
+    }
+
+    @JsonProperty
+    public boolean isValid() {
+        return valid;
+    }
+}
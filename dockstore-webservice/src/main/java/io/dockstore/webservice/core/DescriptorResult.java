@@ -0,0 +1,108 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * The DAG or tool table of a workflow version, stored so that its descriptors are not parsed again while its source files
+ * stay the same.
+ *
+ * @author agent
+ */
+@Entity
+@Table(name = "descriptorresult")
+@NamedQueries({
+        @NamedQuery(name = "io.dockstore.webservice.core.DescriptorResult.findByWorkflowVersionIdAndType", query = "SELECT r FROM DescriptorResult r WHERE r.workflowVersionId = :workflowVersionId AND r.type = :type") })
+public class DescriptorResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(nullable = false)
+    private long workflowVersionId;
+
+    /**
+     * DAG or TOOLS
+     */
+    @Column(nullable = false)
+    private String type;
+
+    /**
+     * See {@link io.dockstore.webservice.helpers.DescriptorResultCache#sourceHash(String, WorkflowVersion)}
+     */
+    @Column(nullable = false, length = FileContent.ID_LENGTH)
+    private String sourceHash;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(nullable = false)
+    private Date created;
+
+    public DescriptorResult() {
+    }
+
+    public DescriptorResult(long workflowVersionId, String type) {
+        this.workflowVersionId = workflowVersionId;
+        this.type = type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getWorkflowVersionId() {
+        return workflowVersionId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getSourceHash() {
+        return sourceHash;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * @param newSourceHash hash of the source files the content was computed from
+     * @param newContent    the DAG or tool table
+     */
+    public void update(String newSourceHash, String newContent) {
+        this.sourceHash = newSourceHash;
+        this.content = newContent;
+        this.created = new Date();
+    }
+}
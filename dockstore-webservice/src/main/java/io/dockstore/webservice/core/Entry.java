@@ -41,6 +41,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.dockstore.webservice.helpers.EntryStarredSerializer;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Base class for all entries in the dockstore
@@ -49,8 +52,15 @@ import io.swagger.annotations.ApiModelProperty;
  */
 @Entity
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class Entry<S extends Entry, T extends Version> {
 
+    /**
+     * Lazy collections are initialized for up to this many owners at once, so that loading the versions or labels of a page of
+     * entries takes one query rather than one per entry
+     */
+    public static final int BATCH_SIZE = 100;
+
     /**
      * re-use existing generator for backwards compatibility
      */
@@ -67,7 +77,9 @@ public abstract class Entry<S extends Entry, T extends Version> {
     @ApiModelProperty("This is a human-readable description of this container and what it is trying to accomplish, required GA4GH")
     private String description;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "entry_label", joinColumns = @JoinColumn(name = "entryid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "labelid", referencedColumnName = "id"))
     @ApiModelProperty("Labels (i.e. meta tags) for describing the purpose and contents of containers")
     @OrderBy("id")
@@ -78,7 +90,8 @@ public abstract class Entry<S extends Entry, T extends Version> {
     @ApiModelProperty(value = "This indicates the users that have control over this entry, dockstore specific", required = false)
     private Set<User> users;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = BATCH_SIZE)
     @JoinTable(name = "starred", inverseJoinColumns = @JoinColumn(name = "userid", nullable = false, updatable = false, referencedColumnName = "id"), joinColumns = @JoinColumn(name = "entryid", nullable = false, updatable = false, referencedColumnName = "id"))
     @ApiModelProperty(value = "This indicates the users that have starred this entry, dockstore specific", required = false)
     @JsonSerialize(using = EntryStarredSerializer.class)
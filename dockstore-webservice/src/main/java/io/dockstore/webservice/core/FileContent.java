@@ -0,0 +1,152 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * The content of a source file, stored once no matter how many versions, tools or workflows have a file with the same content.
+ * Rows are never written through Hibernate, see {@link io.dockstore.webservice.jdbi.FileContentListener}.
+ * Content larger than {@link #COMPRESSION_THRESHOLD} bytes is stored gzipped and only decompressed when it is read.
+ *
+ * @author agent
+ */
+@Entity
+@Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
+@BatchSize(size = Entry.BATCH_SIZE)
+@Table(name = "filecontent")
+public class FileContent {
+    public static final int ID_LENGTH = 64;
+    /**
+     * Smaller files are stored as text, gzip would save little and cost a decompression on every read
+     */
+    public static final int COMPRESSION_THRESHOLD = 4096;
+
+    /**
+     * SHA-256 of the content in hex
+     */
+    @Id
+    @Column(length = ID_LENGTH)
+    private String id;
+
+    /**
+     * null if the content is compressed
+     */
+    @Column(columnDefinition = "TEXT")
+    private String content;
+
+    /**
+     * gzipped content, null if the content is stored as text
+     */
+    @Column(name = "compressedcontent")
+    private byte[] compressedContent;
+
+    /**
+     * When the content was last stored for a source file, unused content is only deleted some time after that
+     */
+    @Column(nullable = false, columnDefinition = "TIMESTAMP WITHOUT TIME ZONE DEFAULT now()")
+    private Date created;
+
+    @Transient
+    private String decompressedContent;
+
+    public FileContent() {
+    }
+
+    public FileContent(String content) {
+        this.id = hash(content);
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = bytes.length > COMPRESSION_THRESHOLD ? compress(bytes) : null;
+        if (compressed != null && compressed.length < bytes.length) {
+            this.compressedContent = compressed;
+            this.decompressedContent = content;
+        } else {
+            this.content = content;
+        }
+    }
+
+    public static String hash(String content) {
+        return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getContent() {
+        if (content != null) {
+            return content;
+        }
+        if (decompressedContent == null && compressedContent != null) {
+            decompressedContent = new String(decompress(compressedContent), StandardCharsets.UTF_8);
+        }
+        return decompressedContent;
+    }
+
+    public boolean isCompressed() {
+        return compressedContent != null;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * @return the gzipped content, which can be sent as is to clients that accept gzip
+     */
+    public byte[] getCompressedContent() {
+        return compressedContent;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return ByteStreams.toByteArray(gzip);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
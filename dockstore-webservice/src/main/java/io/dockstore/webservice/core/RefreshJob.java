@@ -0,0 +1,242 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.core;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.OrderColumn;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * A background refresh of the tools or workflows of one user (or of every user when userId is null).
+ * Jobs are persisted so that queued or interrupted jobs can be resumed when the web service restarts.
+ * Each unfinished job is owned by one web service, which renews its lease through the heartbeat while it holds the job.
+ * Another web service only takes a job over once that lease has expired.
+ *
+ * @author agent
+ */
+@ApiModel(value = "RefreshJob", description = "A background refresh of the tools or workflows of a user")
+@Entity
+@Table(name = "refreshjob")
+@NamedQueries({
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.findByUserId", query = "SELECT j FROM RefreshJob j WHERE j.userId = :userId ORDER BY j.submitted DESC"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.findActiveByUserIdAndType", query = "SELECT j FROM RefreshJob j WHERE j.userId = :userId AND j.type = :type AND j.status IN ('QUEUED', 'RUNNING')"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.findActiveForAllUsersByType", query = "SELECT j FROM RefreshJob j WHERE j.userId IS NULL AND j.type = :type AND j.status IN ('QUEUED', 'RUNNING')"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.findUnclaimed", query = "SELECT j.id FROM RefreshJob j WHERE j.status IN ('QUEUED', 'RUNNING') AND (j.owner IS NULL OR j.heartbeat < :expiredBefore) ORDER BY j.submitted"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.claim", query = "UPDATE RefreshJob j SET j.owner = :owner, j.heartbeat = :now, j.status = 'QUEUED' WHERE j.id = :id AND j.status IN ('QUEUED', 'RUNNING') AND (j.owner IS NULL OR j.heartbeat < :expiredBefore)"),
+        @NamedQuery(name = "io.dockstore.webservice.core.RefreshJob.renewLeases", query = "UPDATE RefreshJob j SET j.heartbeat = :now WHERE j.owner = :owner AND j.status IN ('QUEUED', 'RUNNING')") })
+public class RefreshJob {
+
+    /**
+     * What a refresh job updates.
+     */
+    public enum Type {
+        TOOLS, WORKFLOWS
+    }
+
+    /**
+     * Lifecycle of a refresh job. A job that finished with per-user errors is FAILED, the errors list has the details.
+     */
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @ApiModelProperty("Implementation specific ID for the refresh job in this web service")
+    private long id;
+
+    @Column
+    @ApiModelProperty("User whose entries are refreshed, null when refreshing every user")
+    private Long userId;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    @ApiModelProperty(value = "Whether tools or workflows are refreshed", required = true)
+    private Type type;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    @ApiModelProperty(value = "Current status of the job", required = true)
+    private Status status = Status.QUEUED;
+
+    @Column(nullable = false)
+    @ApiModelProperty("When the job was submitted")
+    private Date submitted;
+
+    @Column
+    @ApiModelProperty("When a worker started the job")
+    private Date started;
+
+    @Column
+    @ApiModelProperty("When the job finished")
+    private Date finished;
+
+    @Column(nullable = false)
+    @ApiModelProperty("Number of users to refresh")
+    private int total;
+
+    @Column(nullable = false)
+    @ApiModelProperty("Number of users refreshed so far")
+    private int completed;
+
+    @Column
+    @JsonIgnore
+    private String owner;
+
+    @Column
+    @JsonIgnore
+    private Date heartbeat;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "refreshjob_error", joinColumns = @JoinColumn(name = "jobid"))
+    @OrderColumn(name = "position")
+    @Column(name = "error", columnDefinition = "TEXT")
+    @ApiModelProperty("Errors encountered while refreshing individual users")
+    private List<String> errors = new ArrayList<>();
+
+    public RefreshJob() {
+    }
+
+    public RefreshJob(Long userId, Type type, String owner) {
+        this.userId = userId;
+        this.type = type;
+        this.owner = owner;
+        this.submitted = new Date();
+        this.heartbeat = submitted;
+    }
+
+    @JsonProperty
+    public long getId() {
+        return id;
+    }
+
+    @JsonProperty
+    public Long getUserId() {
+        return userId;
+    }
+
+    @JsonProperty
+    public Type getType() {
+        return type;
+    }
+
+    @JsonProperty
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    @JsonProperty
+    public Date getSubmitted() {
+        return submitted;
+    }
+
+    @JsonProperty
+    public Date getStarted() {
+        return started;
+    }
+
+    public void setStarted(Date started) {
+        this.started = started;
+    }
+
+    @JsonProperty
+    public Date getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Date finished) {
+        this.finished = finished;
+    }
+
+    @JsonProperty
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    @JsonProperty
+    public int getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(int completed) {
+        this.completed = completed;
+    }
+
+    /**
+     * @return the web service that holds this job, null if none does
+     */
+    @JsonIgnore
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return when the owner last renewed its lease on this job
+     */
+    @JsonIgnore
+    public Date getHeartbeat() {
+        return heartbeat;
+    }
+
+    @JsonProperty
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return milliseconds spent running this job so far, null if it has not started
+     */
+    @JsonProperty
+    @ApiModelProperty("Milliseconds spent running the job so far, null if it has not started")
+    public Long getDuration() {
+        if (started == null) {
+            return null;
+        }
+        Date end = finished == null ? new Date() : finished;
+        return end.getTime() - started.getTime();
+    }
+}
@@ -25,10 +25,17 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * This describes a cached copy of a remotely accessible file. Implementation specific.
@@ -38,6 +45,7 @@ import io.swagger.annotations.ApiModelProperty;
 @ApiModel("SourceFile")
 @Entity
 @Table(name = "sourcefile")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class SourceFile {
     public enum FileType {
         // Add supported descriptor types here
@@ -45,7 +53,8 @@ public class SourceFile {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sourcefile_id_seq")
+    @SequenceGenerator(name = "sourcefile_id_seq", sequenceName = "sourcefile_id_seq")
     @ApiModelProperty("Implementation specific ID for the source file in this web service")
     private long id;
 
@@ -53,16 +62,34 @@ public class SourceFile {
     @ApiModelProperty(value = "Enumerates the type of file", required = true)
     private FileType type;
 
-    @Column(columnDefinition = "TEXT")
-    @ApiModelProperty("Cache for the contents of the target file")
-    private String content;
+    /**
+     * SHA-256 of the content, files with the same content share one {@link FileContent}
+     */
+    @Column(name = "contentid", length = FileContent.ID_LENGTH)
+    private String contentId;
+
+    @ManyToOne
+    @JoinColumn(name = "contentid", insertable = false, updatable = false)
+    private FileContent storedContent;
+
+    /**
+     * Content set since this file was loaded, stored when this file is written if no other file has it yet
+     */
+    @Transient
+    private FileContent newContent;
+
+    /**
+     * Content set since this file was loaded that has been stored, the stored content is only reloaded with this file
+     */
+    @Transient
+    private FileContent savedContent;
 
     @Column(nullable = false)
     @ApiModelProperty(value = "Path to source file in git repo", required = true)
     private String path;
 
     public void update(SourceFile file) {
-        content = file.content;
+        setContent(file.getContent());
     }
 
     public long getId() {
@@ -81,12 +108,53 @@ public class SourceFile {
         this.type = type;
     }
 
+    @ApiModelProperty("Cache for the contents of the target file")
     public String getContent() {
-        return content;
+        FileContent current = getFileContent();
+        return current == null ? null : current.getContent();
     }
 
     public void setContent(String content) {
-        this.content = content;
+        newContent = content == null ? null : new FileContent(content);
+        savedContent = null;
+        contentId = newContent == null ? null : newContent.getId();
+    }
+
+    /**
+     * Called once the new content of this file is in the database, so that it is not written again by later flushes
+     */
+    public void contentStored() {
+        if (newContent != null) {
+            savedContent = newContent;
+            newContent = null;
+        }
+    }
+
+    /**
+     * @return SHA-256 of the content, null if this file has no content
+     */
+    @JsonIgnore
+    public String getContentId() {
+        return contentId;
+    }
+
+    @JsonIgnore
+    public FileContent getNewContent() {
+        return newContent;
+    }
+
+    /**
+     * @return the stored form of the content, null if this file has no content
+     */
+    @JsonIgnore
+    public FileContent getFileContent() {
+        if (contentId == null) {
+            return null;
+        }
+        if (newContent != null) {
+            return newContent;
+        }
+        return savedContent != null ? savedContent : storedContent;
     }
 
     public String getPath() {
@@ -99,7 +167,7 @@ public class SourceFile {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, type, content);
+        return Objects.hash(id, type, contentId);
     }
 
     @Override
@@ -111,6 +179,6 @@ public class SourceFile {
             return false;
         }
         final SourceFile other = (SourceFile)obj;
-        return Objects.equals(this.id, other.id) && Objects.equals(this.type, other.type) && Objects.equals(this.content, other.content);
+        return Objects.equals(this.id, other.id) && Objects.equals(this.type, other.type) && Objects.equals(this.contentId, other.contentId);
     }
 }
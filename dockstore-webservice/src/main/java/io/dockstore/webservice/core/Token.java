@@ -16,6 +16,8 @@
 
 package io.dockstore.webservice.core;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.Objects;
 
 import javax.persistence.Column;
@@ -28,6 +30,7 @@ import javax.persistence.NamedQuery;
 import javax.persistence.Table;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.hash.Hashing;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
 
@@ -40,7 +43,6 @@ import io.swagger.annotations.ApiModelProperty;
 @Entity
 @Table(name = "token")
 @NamedQueries({ @NamedQuery(name = "io.dockstore.webservice.core.Token.findAll", query = "SELECT t FROM Token t"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Token.findByContent", query = "SELECT t FROM Token t WHERE t.content = :content"),
         @NamedQuery(name = "io.dockstore.webservice.core.Token.findBySource", query = "SELECT t FROM Token t WHERE t.tokenSource = :source"),
         @NamedQuery(name = "io.dockstore.webservice.core.Token.findByUserId", query = "SELECT t FROM Token t WHERE t.userId = :userId"),
         @NamedQuery(name = "io.dockstore.webservice.core.Token.findDockstoreByUserId", query = "SELECT t FROM Token t WHERE t.userId = :userId AND t.tokenSource = 'dockstore'"),
@@ -60,12 +62,20 @@ public class Token {
     @Column(nullable = false)
     @ApiModelProperty("Contents of the access token")
     private String content;
+    /**
+     * Bearer tokens are looked up by this rather than by their content, see {@link #hash(String)}
+     */
+    @Column(length = 64)
+    private String contentHash;
     @Column(nullable = false)
     @ApiModelProperty("When an integrated service is not aware of the username, we store it")
     private String username;
     @Column
     @ApiModelProperty("")
     private String refreshToken;
+    @Column
+    @ApiModelProperty("When the access token expires, null if it does not or if the service did not say")
+    private Date expiry;
 
     // TODO: tokens will need to be associated with a particular user
     @Column
@@ -78,7 +88,15 @@ public class Token {
         this.id = id;
         this.userId = userId;
         this.tokenSource = tokenSource;
-        this.content = content;
+        setContent(content);
+    }
+
+    /**
+     * @param content content of a token
+     * @return hex SHA-256 of the content, null for no content
+     */
+    public static String hash(String content) {
+        return content == null ? null : Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
     }
 
     @JsonProperty
@@ -123,6 +141,7 @@ public class Token {
      */
     public void setContent(String content) {
         this.content = content;
+        this.contentHash = hash(content);
     }
 
     /**
@@ -139,6 +158,28 @@ public class Token {
         this.refreshToken = refreshToken;
     }
 
+    /**
+     * @return the expiry
+     */
+    public Date getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * @param expiry the expiry to set
+     */
+    public void setExpiry(Date expiry) {
+        this.expiry = expiry;
+    }
+
+    /**
+     * @param marginMillis how long before the expiry a token is considered expired
+     * @return true if the token expires within the margin, or if its expiry is unknown
+     */
+    public boolean isNearExpiry(long marginMillis) {
+        return expiry == null || expiry.getTime() - System.currentTimeMillis() < marginMillis;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -36,4 +36,17 @@ public enum TokenType {
     public String toString() {
         return friendlyName;
     }
+
+    /**
+     * @param source the source of a token, as stored in the database
+     * @return the matching type, null if there is none
+     */
+    public static TokenType fromSource(String source) {
+        for (TokenType type : values()) {
+            if (type.friendlyName.equals(source)) {
+                return type;
+            }
+        }
+        return null;
+    }
 }
@@ -39,6 +39,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dockstore.common.Registry;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * This describes one tool in the dockstore, extending entry with fields necessary to describe bioinformatics tools.
@@ -64,7 +67,12 @@ import io.swagger.annotations.ApiModelProperty;
         @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedByToolPath", query = "SELECT c FROM Tool c WHERE c.path = :path AND c.toolname = :toolname AND c.isPublished = true"),
         @NamedQuery(name = "io.dockstore.webservice.core.Tool.findByMode", query = "SELECT c FROM Tool c WHERE c.mode = :mode"),
         @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedByPath", query = "SELECT c FROM Tool c WHERE c.path = :path AND c.isPublished = true"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Tool.searchPattern", query = "SELECT c FROM Tool c WHERE ((c.path LIKE :pattern) OR (c.registry LIKE :pattern) OR (c.description LIKE :pattern)) AND c.isPublished = true") })
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedSummaries", query = "SELECT new io.dockstore.webservice.api.EntrySummary(c.id, c.path, c.registry, c.namespace, c.name, c.toolname, c.description, c.gitUrl, c.isPublished) FROM Tool c WHERE c.isPublished = true ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findSummariesByUserId", query = "SELECT new io.dockstore.webservice.api.EntrySummary(c.id, c.path, c.registry, c.namespace, c.name, c.toolname, c.description, c.gitUrl, c.isPublished) FROM Tool c JOIN c.users u WHERE u.id = :userId ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findPublishedSummariesByUserId", query = "SELECT new io.dockstore.webservice.api.EntrySummary(c.id, c.path, c.registry, c.namespace, c.name, c.toolname, c.description, c.gitUrl, c.isPublished) FROM Tool c JOIN c.users u WHERE u.id = :userId AND c.isPublished = true ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findSummariesByIds", query = "SELECT new io.dockstore.webservice.api.EntrySummary(c.id, c.path, c.registry, c.namespace, c.name, c.toolname, c.description, c.gitUrl, c.isPublished) FROM Tool c WHERE c.id IN (:ids)"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findVersionSummaries", query = "SELECT new io.dockstore.webservice.api.VersionSummary(c.id, v.name, v.valid) FROM Tool c JOIN c.tags v WHERE c.id IN (:ids) AND v.hidden = false ORDER BY v.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Tool.findLabelSummaries", query = "SELECT c.id, l.value FROM Tool c JOIN c.labels l WHERE c.id IN (:ids) ORDER BY l.value") })
 public class Tool extends Entry<Tool, Tag> {
 
     @Column(nullable = false, columnDefinition = "Text default 'AUTO_DETECT_QUAY_TAGS_AUTOMATED_BUILDS'")
@@ -125,7 +133,9 @@ public class Tool extends Entry<Tool, Tag> {
     @ApiModelProperty("Implementation specific timestamp for last built")
     private Date lastBuild;
 
-    @OneToMany(fetch = FetchType.EAGER, orphanRemoval = true)
+    @OneToMany(fetch = FetchType.LAZY, orphanRemoval = true)
+    @BatchSize(size = BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "tool_tag", joinColumns = @JoinColumn(name = "toolid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "tagid", referencedColumnName = "id"))
     @ApiModelProperty("Implementation specific tracking of valid build tags for the docker container")
     @OrderBy("id")
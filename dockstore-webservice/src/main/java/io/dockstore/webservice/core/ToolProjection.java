@@ -0,0 +1,79 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.core;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+
+/**
+ * The GA4GH representation of a published tool or workflow, including its versions, stored as JSON so that the GA4GH
+ * endpoints do not rebuild it on every request. It is rewritten in the same transaction as changes to the entry, see
+ * {@link io.dockstore.webservice.helpers.ToolProjectionService}.
+ *
+ * @author agent
+ */
+@Entity
+@Table(name = "toolprojection")
+@NamedQueries({
+        @NamedQuery(name = "io.dockstore.webservice.core.ToolProjection.findByEntryIds", query = "SELECT p FROM ToolProjection p WHERE p.entryId IN (:entryIds)") })
+public class ToolProjection {
+
+    /**
+     * tools and workflows share one id sequence
+     */
+    @Id
+    @Column(name = "entryid")
+    private long entryId;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String json;
+
+    @Column
+    private Date lastUpdated;
+
+    public ToolProjection() {
+    }
+
+    public ToolProjection(long entryId, String json) {
+        this.entryId = entryId;
+        this.json = json;
+        this.lastUpdated = new Date();
+    }
+
+    public long getEntryId() {
+        return entryId;
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    public void setJson(String json) {
+        this.json = json;
+        this.lastUpdated = new Date();
+    }
+
+    public Date getLastUpdated() {
+        return lastUpdated;
+    }
+}
@@ -41,6 +41,7 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import io.dockstore.webservice.helpers.UserStarredSerializer;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.BatchSize;
 
 /**
  * Stores end user information
@@ -51,7 +52,8 @@ import io.swagger.annotations.ApiModelProperty;
 @Entity
 @Table(name = "enduser")
 @NamedQueries({ @NamedQuery(name = "io.dockstore.webservice.core.User.findAll", query = "SELECT t FROM User t"),
-        @NamedQuery(name = "io.dockstore.webservice.core.User.findByUsername", query = "SELECT t FROM User t WHERE t.username = :username") })
+        @NamedQuery(name = "io.dockstore.webservice.core.User.findByUsername", query = "SELECT t FROM User t WHERE t.username = :username"),
+        @NamedQuery(name = "io.dockstore.webservice.core.User.findByDockstoreTokenHash", query = "SELECT u FROM User u, Token t WHERE u.id = t.userId AND t.contentHash = :contentHash AND t.tokenSource = 'dockstore'") })
 public class User implements Principal {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -99,7 +101,8 @@ public class User implements Principal {
     @JsonIgnore
     private final Set<Entry> entries;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = Entry.BATCH_SIZE)
     @JoinTable(name = "starred", inverseJoinColumns = @JoinColumn(name = "entryid", nullable = false, updatable = false, referencedColumnName = "id"), joinColumns = @JoinColumn(name = "userid", nullable = false, updatable = false, referencedColumnName = "id"))
     @ApiModelProperty("Entries in the dockstore that this user starred")
     @JsonSerialize(using = UserStarredSerializer.class)
@@ -40,6 +40,9 @@ import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.Ordering;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * This describes one version of either a workflow or a tool.
@@ -49,6 +52,7 @@ import io.swagger.annotations.ApiModelProperty;
 @Entity
 @ApiModel(value = "Base class for versions of entries in the Dockstore")
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public abstract class Version<T extends Version> implements Comparable<T> {
     /**
      * re-use existing generator for backwards compatibility
@@ -68,7 +72,9 @@ public abstract class Version<T extends Version> implements Comparable<T> {
     @ApiModelProperty(value = "git commit/tag/branch", required = true)
     private String reference;
 
-    @OneToMany(fetch = FetchType.EAGER, orphanRemoval = true, cascade = CascadeType.ALL)
+    @OneToMany(fetch = FetchType.LAZY, orphanRemoval = true, cascade = CascadeType.ALL)
+    @BatchSize(size = Entry.BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "version_sourcefile", joinColumns = @JoinColumn(name = "versionid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "sourcefileid", referencedColumnName = "id"))
     @ApiModelProperty("Cached files for each version. Includes Dockerfile and Descriptor files")
     private final Set<SourceFile> sourceFiles;
@@ -96,6 +102,10 @@ public abstract class Version<T extends Version> implements Comparable<T> {
     @ApiModelProperty("Verified source for the version")
     private String verifiedSource;
 
+    @Column
+    @ApiModelProperty("Implementation specific, the git commit that the reference pointed to when its files were last read")
+    private String commitID;
+
     public Version() {
         sourceFiles = new HashSet<>(0);
     }
@@ -127,6 +137,8 @@ public abstract class Version<T extends Version> implements Comparable<T> {
     public void updateByUser(final Version version) {
         reference = version.reference;
         hidden = version.hidden;
+        // the reference or paths may have changed, so files have to be read again on the next refresh
+        commitID = null;
     }
 
     public void update(T version) {
@@ -154,6 +166,15 @@ public abstract class Version<T extends Version> implements Comparable<T> {
         this.lastModified = lastModified;
     }
 
+    @JsonProperty
+    public String getCommitID() {
+        return commitID;
+    }
+
+    public void setCommitID(String commitID) {
+        this.commitID = commitID;
+    }
+
     @JsonProperty
     public String getReference() {
         return reference;
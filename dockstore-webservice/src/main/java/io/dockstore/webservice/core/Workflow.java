@@ -38,6 +38,9 @@ import javax.persistence.UniqueConstraint;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * This describes one workflow in the dockstore, extending Entry with the fields necessary to describe workflows.
@@ -56,7 +59,12 @@ import io.swagger.annotations.ApiModelProperty;
         @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findByPath", query = "SELECT c FROM Workflow c WHERE c.path = :path"),
         @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedByPath", query = "SELECT c FROM Workflow c WHERE c.path = :path AND c.isPublished = true"),
         @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findByGitUrl", query = "SELECT c FROM Workflow c WHERE c.gitUrl = :gitUrl"),
-        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.searchPattern", query = "SELECT c FROM Workflow c WHERE ((c.defaultWorkflowPath LIKE :pattern) OR (c.description LIKE :pattern) OR (c.path LIKE :pattern)) AND c.isPublished = true") })
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedSummaries", query = "SELECT new io.dockstore.webservice.api.EntrySummary(c.id, c.path, c.workflowName, c.description, c.gitUrl, c.isPublished) FROM Workflow c WHERE c.isPublished = true ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findSummariesByUserId", query = "SELECT new io.dockstore.webservice.api.EntrySummary(c.id, c.path, c.workflowName, c.description, c.gitUrl, c.isPublished) FROM Workflow c JOIN c.users u WHERE u.id = :userId ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findPublishedSummariesByUserId", query = "SELECT new io.dockstore.webservice.api.EntrySummary(c.id, c.path, c.workflowName, c.description, c.gitUrl, c.isPublished) FROM Workflow c JOIN c.users u WHERE u.id = :userId AND c.isPublished = true ORDER BY c.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findSummariesByIds", query = "SELECT new io.dockstore.webservice.api.EntrySummary(c.id, c.path, c.workflowName, c.description, c.gitUrl, c.isPublished) FROM Workflow c WHERE c.id IN (:ids)"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findVersionSummaries", query = "SELECT new io.dockstore.webservice.api.VersionSummary(c.id, v.name, v.valid) FROM Workflow c JOIN c.workflowVersions v WHERE c.id IN (:ids) AND v.hidden = false ORDER BY v.id"),
+        @NamedQuery(name = "io.dockstore.webservice.core.Workflow.findLabelSummaries", query = "SELECT c.id, l.value FROM Workflow c JOIN c.labels l WHERE c.id IN (:ids) ORDER BY l.value") })
 @DiscriminatorValue("workflow")
 public class Workflow extends Entry<Workflow, WorkflowVersion> {
 
@@ -88,7 +96,9 @@ public class Workflow extends Entry<Workflow, WorkflowVersion> {
     @ApiModelProperty(value = "This indicates for the associated git repository, the default path to the CWL document", required = true)
     private String defaultWorkflowPath = "/Dockstore.cwl";
 
-    @OneToMany(fetch = FetchType.EAGER, orphanRemoval = true)
+    @OneToMany(fetch = FetchType.LAZY, orphanRemoval = true)
+    @BatchSize(size = BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @JoinTable(name = "workflow_workflowversion", joinColumns = @JoinColumn(name = "workflowid", referencedColumnName = "id"), inverseJoinColumns = @JoinColumn(name = "workflowversionid", referencedColumnName = "id"))
     @ApiModelProperty(value = "Implementation specific tracking of valid build workflowVersions for the docker container")
     @OrderBy("id")
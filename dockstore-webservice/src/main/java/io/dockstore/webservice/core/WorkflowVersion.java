@@ -53,6 +53,7 @@ public class WorkflowVersion extends Version<WorkflowVersion> implements Compara
     public void update(WorkflowVersion workflowVersion) {
         super.update(workflowVersion);
         super.setReference(workflowVersion.getReference());
+        super.setCommitID(workflowVersion.getCommitID());
         workflowPath = workflowVersion.getWorkflowPath();
     }
 
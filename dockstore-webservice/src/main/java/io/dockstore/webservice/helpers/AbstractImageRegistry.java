@@ -17,14 +17,20 @@
 package io.dockstore.webservice.helpers;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+
+import com.codahale.metrics.Timer;
 
 import io.dockstore.client.cli.nested.AbstractEntryClient;
 import io.dockstore.common.Registry;
 import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tag;
 import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.Tool;
@@ -82,20 +88,65 @@ public abstract class AbstractImageRegistry {
      */
     public abstract Registry getRegistry();
 
+    /**
+     * Get all the tools from all the namespaces of several registries. The namespaces of every registry are listed concurrently,
+     * then the tools of every namespace, which both run on the refresh workers.
+     *
+     * @param registries      registries to list
+     * @param refreshExecutor workers that make the calls, which bounds how many run at once
+     * @return the tools of each registry in the same order as the registries, tools of each namespace in the order the registry
+     * listed its namespaces
+     */
+    public static List<List<Tool>> getToolsFromAllNamespaces(final List<AbstractImageRegistry> registries,
+            final RefreshExecutor refreshExecutor) {
+        try (Timer.Context ignored = refreshExecutor.time("getToolsFromAllNamespaces")) {
+            List<Callable<List<String>>> namespaceRequests = new ArrayList<>();
+            registries.forEach(registry -> namespaceRequests.add(registry::getNamespaces));
+            List<List<String>> namespaces = refreshExecutor.invokeAll(namespaceRequests);
+
+            // one request per namespace, flattened so that invokeAll is never nested
+            List<Callable<List<Tool>>> toolRequests = new ArrayList<>();
+            for (int i = 0; i < registries.size(); i++) {
+                AbstractImageRegistry registry = registries.get(i);
+                for (String namespace : namespaces.get(i)) {
+                    toolRequests.add(() -> registry.getToolsFromNamespace(Collections.singletonList(namespace)));
+                }
+            }
+            List<List<Tool>> namespaceTools = refreshExecutor.invokeAll(toolRequests);
+
+            List<List<Tool>> registryTools = new ArrayList<>();
+            int next = 0;
+            for (List<String> registryNamespaces : namespaces) {
+                List<Tool> tools = new ArrayList<>();
+                for (int j = 0; j < registryNamespaces.size(); j++) {
+                    tools.addAll(namespaceTools.get(next++));
+                }
+                registryTools.add(tools);
+            }
+            return registryTools;
+        }
+    }
+
     /**
      * Updates/Adds/Deletes tools and their associated tags
      *
+     * @param apiTools the tools listed from this registry's namespaces, see {@link #getToolsFromAllNamespaces(List, RefreshExecutor)}
      * @return
      */
     @SuppressWarnings("checkstyle:parameternumber")
     public List<Tool> refreshTools(final long userId, final UserDAO userDAO, final ToolDAO toolDAO, final TagDAO tagDAO,
-            final FileDAO fileDAO, final HttpClient client, final Token githubToken, final Token bitbucketToken, final Token gitlabToken) {
-        // Get all the namespaces for the given registry
-        List<String> namespaces = getNamespaces();
-
-        // Get all the tools based on the found namespaces
-        List<Tool> apiTools = getToolsFromNamespace(namespaces);
+            final FileDAO fileDAO, final HttpClient client, final Token githubToken, final Token bitbucketToken, final Token gitlabToken,
+            final List<Tool> apiTools, final RefreshExecutor refreshExecutor) {
+        try (Timer.Context ignored = refreshExecutor.time(getRegistry().name() + ".refreshTools")) {
+            return refreshToolsHelper(userId, userDAO, toolDAO, tagDAO, fileDAO, client, githubToken, bitbucketToken, gitlabToken,
+                    apiTools, refreshExecutor);
+        }
+    }
 
+    @SuppressWarnings("checkstyle:parameternumber")
+    private List<Tool> refreshToolsHelper(final long userId, final UserDAO userDAO, final ToolDAO toolDAO, final TagDAO tagDAO,
+            final FileDAO fileDAO, final HttpClient client, final Token githubToken, final Token bitbucketToken, final Token gitlabToken,
+            final List<Tool> apiTools, final RefreshExecutor refreshExecutor) {
         // Add manual tools to list of api tools
         User user = userDAO.findById(userId);
         List<Tool> manualTools = toolDAO.findByMode(ToolMode.MANUAL_IMAGE_PATH);
@@ -117,10 +168,37 @@ public abstract class AbstractImageRegistry {
         // Update db tools by copying over from api tools
         List<Tool> newDBTools = updateTools(apiTools, dbTools, user, toolDAO);
 
-        // Get tags and update for each tool
-        for (Tool tool : newDBTools) {
-            List<Tag> toolTags = getTags(tool);
-            updateTags(toolTags, tool, githubToken, bitbucketToken, gitlabToken, tagDAO, fileDAO, toolDAO, client);
+        // Get tags for each tool, registry calls do not touch the database and can run in parallel
+        List<Callable<List<Tag>>> tagRequests = new ArrayList<>();
+        newDBTools.forEach(tool -> tagRequests.add(() -> getTags(tool)));
+        List<List<Tag>> toolTags = refreshExecutor.invokeAll(tagRequests);
+
+        // Add/update/delete tags in the database
+        List<Tool> toolsWithTags = new ArrayList<>();
+        for (int i = 0; i < newDBTools.size(); i++) {
+            Tool tool = newDBTools.get(i);
+            if (updateTagsFromRegistry(toolTags.get(i), tool, githubToken, tagDAO)) {
+                toolsWithTags.add(tool);
+            }
+        }
+
+        // Versions and files are lazy and the session is not thread safe, so load them before handing the tools to other threads
+        FetchPlan.FULL.apply(toolsWithTags);
+
+        // Grab files and general information for each tool from its git repository in parallel
+        List<Callable<Map<Tag, List<SourceFile>>>> fileRequests = new ArrayList<>();
+        toolsWithTags.forEach(tool -> fileRequests.add(() -> {
+            Map<Tag, List<SourceFile>> tagFiles = Helper.loadFilesForTags(tool, client, githubToken, bitbucketToken, gitlabToken, true);
+            updateToolMetadata(tool, githubToken, bitbucketToken, gitlabToken, client);
+            return tagFiles;
+        }));
+        List<Map<Tag, List<SourceFile>>> toolFiles = refreshExecutor.invokeAll(fileRequests);
+
+        // Save files back to the database on this thread
+        for (int i = 0; i < toolsWithTags.size(); i++) {
+            Tool tool = toolsWithTags.get(i);
+            Helper.saveFilesForTags(tool, toolFiles.get(i), fileDAO, githubToken);
+            toolDAO.create(tool);
         }
 
         return newDBTools;
@@ -204,6 +282,28 @@ public abstract class AbstractImageRegistry {
     @SuppressWarnings("checkstyle:parameternumber")
     public void updateTags(List<Tag> newTags, Tool tool, Token githubToken, Token bitbucketToken, Token gitlabToken, final TagDAO tagDAO,
             final FileDAO fileDAO, final ToolDAO toolDAO, final HttpClient client) {
+        if (!updateTagsFromRegistry(newTags, tool, githubToken, tagDAO)) {
+            return;
+        }
+
+        // Grab files for each version/tag and check if valid
+        Helper.updateFiles(tool, client, fileDAO, githubToken, bitbucketToken, gitlabToken);
+
+        // Now grab default/main tag to grab general information (defaults to github/bitbucket "main branch")
+        updateToolMetadata(tool, githubToken, bitbucketToken, gitlabToken, client);
+        toolDAO.create(tool);
+    }
+
+    /**
+     * Updates/Adds/Deletes the tags of a tool based on the tags found in the image registry
+     *
+     * @param newTags
+     * @param tool
+     * @param githubToken
+     * @param tagDAO
+     * @return false if new tags were not found and the tool should be left alone
+     */
+    private boolean updateTagsFromRegistry(List<Tag> newTags, Tool tool, Token githubToken, final TagDAO tagDAO) {
         // Get all existing tags
         List<Tag> existingTags = new ArrayList<>(tool.getTags());
 
@@ -212,7 +312,7 @@ public abstract class AbstractImageRegistry {
             if (newTags == null) {
                 LOG.info(githubToken.getUsername() + " : Tags for tool {} did not get updated because new tags were not found",
                         tool.getPath());
-                return;
+                return false;
             }
 
             List<Tag> toDelete = new ArrayList<>(0);
@@ -269,9 +369,7 @@ public abstract class AbstractImageRegistry {
                 if (!tool.getTags().contains(tag)) {
                     LOG.info(githubToken.getUsername() + " : Updating tag {}", tag.getName());
 
-                    long id = tagDAO.create(tag);
-                    tag = tagDAO.findById(id);
-
+                    tagDAO.create(tag);
                     tool.addTag(tag);
 
                     if (!tag.isAutomated()) {
@@ -297,10 +395,19 @@ public abstract class AbstractImageRegistry {
             }
         }
 
-        // Grab files for each version/tag and check if valid
-        Helper.updateFiles(tool, client, fileDAO, githubToken, bitbucketToken, gitlabToken);
+        return true;
+    }
 
-        // Now grab default/main tag to grab general information (defaults to github/bitbucket "main branch")
+    /**
+     * Grab general information for a tool from the descriptors on its main branch. Does not touch the database.
+     *
+     * @param tool
+     * @param githubToken
+     * @param bitbucketToken
+     * @param gitlabToken
+     * @param client
+     */
+    private void updateToolMetadata(Tool tool, Token githubToken, Token bitbucketToken, Token gitlabToken, final HttpClient client) {
         final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory
                 .createSourceCodeRepo(tool.getGitUrl(), client, bitbucketToken == null ? null : bitbucketToken.getContent(),
                         gitlabToken == null ? null : gitlabToken.getContent(), githubToken.getContent());
@@ -323,8 +430,6 @@ public abstract class AbstractImageRegistry {
             }
 
         }
-        toolDAO.create(tool);
-
     }
 
     /**
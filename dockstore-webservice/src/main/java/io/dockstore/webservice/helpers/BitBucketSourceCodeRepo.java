@@ -16,6 +16,7 @@
 
 package io.dockstore.webservice.helpers;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -78,26 +79,13 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
         String branch = null;
 
         if (reference == null) {
-            String mainBranchUrl = BITBUCKET_API_URL + "repositories/" + gitRepository + "/main-branch";
-
-            Optional<String> asString = ResourceUtilities.asString(mainBranchUrl, bitbucketTokenContent, client);
-            LOG.info(gitUsername + ": RESOURCE CALL: {}", mainBranchUrl);
-            if (asString.isPresent()) {
-                String branchJson = asString.get();
-
-                Gson gson = new Gson();
-                Map<String, String> map = new HashMap<>();
-                map = (Map<String, String>)gson.fromJson(branchJson, map.getClass());
-
-                branch = map.get("name");
-
-                if (branch == null) {
-                    LOG.info(gitUsername + ": Could NOT find bitbucket default branch!");
-                    return null;
-                    // throw new CustomWebApplicationException(HttpStatus.SC_INTERNAL_SERVER_ERROR);
-                } else {
-                    LOG.info(gitUsername + ": Default branch: {}", branch);
-                }
+            branch = getMainBranch(gitRepository);
+            if (branch == null) {
+                LOG.info(gitUsername + ": Could NOT find bitbucket default branch!");
+                return null;
+                // throw new CustomWebApplicationException(HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            } else {
+                LOG.info(gitUsername + ": Default branch: {}", branch);
             }
         } else {
             branch = reference;
@@ -121,6 +109,21 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
         }
     }
 
+    @Override
+    protected String getPointedRepositoryId() {
+        return gitRepository == null ? null : gitUsername + "/" + gitRepository;
+    }
+
+    @Override
+    protected String getArchiveUrl(String repositoryId, String reference) {
+        return "https://bitbucket.org/" + repositoryId + "/get/" + reference + ".zip";
+    }
+
+    @Override
+    protected String getArchiveAuthorization() {
+        return "Bearer " + bitbucketTokenContent;
+    }
+
     @Override
     public String getOrganizationEmail() {
         // TODO: Need to get email of the container's organization/user
@@ -169,16 +172,23 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
         // I think it is fine since in the next part we just check that source file has content or not (no content is like null)
         SourceFile file = new SourceFile();
 
-        // Get descriptor content using the BitBucket API
-        String url = BITBUCKET_API_URL + "repositories/" + repositoryId + "/raw/" + branch + "/" + path;
-        Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
-
-        LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+        String content = null;
+        RepositorySnapshot snapshot = getSnapshot(repositoryId, branch);
+        if (snapshot != null) {
+            content = snapshot.read(path);
+        } else {
+            // Get descriptor content using the BitBucket API
+            String url = BITBUCKET_API_URL + "repositories/" + repositoryId + "/raw/" + branch + "/" + path;
+            Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
 
-        if (asString.isPresent()) {
-            // Grab content from found file
-            String content = asString.get();
+            LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+            if (asString.isPresent()) {
+                // Grab content from found file
+                content = asString.get();
+            }
+        }
 
+        if (content != null) {
             // Is workflow descriptor valid?
             boolean validWorkflow;
 
@@ -239,8 +249,14 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
                 // Iterate over both arrays
                 for (JsonElement branch : branchArray) {
                     String branchName = branch.getAsJsonObject().get("name").getAsString();
+                    JsonElement changeset = branch.getAsJsonObject().get("changeset");
+                    String commitID = changeset == null || changeset.isJsonNull() ? null : changeset.getAsString();
 
                     WorkflowVersion version = initializeWorkflowVersion(branchName, existingWorkflow, existingDefaults);
+                    if (reuseUnchangedVersion(version, commitID, existingDefaults)) {
+                        workflow.addWorkflowVersion(version);
+                        continue;
+                    }
                     String calculatedPath = version.getWorkflowPath();
 
                     // Now grab source files
@@ -282,6 +298,36 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
         return repositoryId;
     }
 
+    /**
+     * @param repositoryId the repository
+     * @return the "main branch" of a repository on bitbucket, looked up at most once per refresh
+     */
+    private String getMainBranch(String repositoryId) {
+        try {
+            return getRepositoryMetadata("bitbucket-main-branch", repositoryId, () -> {
+                // Create API call string
+                String url = BITBUCKET_API_URL + "repositories/" + repositoryId + "/main-branch";
+
+                // Call BitBucket API
+                Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
+                LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
+
+                if (asString.isPresent()) {
+                    String branchJson = asString.get();
+                    Gson gson = new Gson();
+                    Map<String, String> map = new HashMap<>();
+                    map = (Map<String, String>)gson.fromJson(branchJson, map.getClass());
+
+                    // Branch stores the "main branch" on bitbucket
+                    return map.get("name");
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     @Override
     public String getMainBranch(Entry entry, String repositoryId) {
         String branch;
@@ -291,25 +337,7 @@ public class BitBucketSourceCodeRepo extends SourceCodeRepoInterface {
             branch = entry.getDefaultVersion();
         } else {
             // If default version is not set, need to find the main branch
-
-            // Create API call string
-            String url = BITBUCKET_API_URL + "repositories/" + repositoryId + "/main-branch";
-
-            // Call BitBucket API
-            Optional<String> asString = ResourceUtilities.asString(url, bitbucketTokenContent, client);
-            LOG.info(gitUsername + ": RESOURCE CALL: {}", url);
-
-            if (asString.isPresent()) {
-                String branchJson = asString.get();
-                Gson gson = new Gson();
-                Map<String, String> map = new HashMap<>();
-                map = (Map<String, String>)gson.fromJson(branchJson, map.getClass());
-
-                // Branch stores the "main branch" on bitbucket
-                branch = map.get("name");
-            } else {
-                branch = null;
-            }
+            branch = getMainBranch(repositoryId);
         }
 
         return branch;
@@ -0,0 +1,143 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.hash.Hashing;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Remembers the ETag and Last-Modified validators of GET responses from quay.io, Bitbucket and GitLab so that repeated requests
+ * can be made conditional. A 304 Not Modified response is answered from the stored body, which saves bandwidth and, for most
+ * providers, rate limit.
+ * Responses are keyed by URL and Authorization header since the same URL returns different content for different users.
+ *
+ * @author agent
+ */
+public class ConditionalRequestCache {
+
+    private final Cache<String, CachedResponse> cache;
+    private final Set<String> providers;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param cachePolicy    bounds the number of stored responses
+     * @param providers      hosts such as quay.io for which requests are made conditional, subdomains are included
+     * @param metricRegistry where hit and miss counts are reported
+     */
+    public ConditionalRequestCache(CacheBuilderSpec cachePolicy, Collection<String> providers, MetricRegistry metricRegistry) {
+        this.cache = CacheBuilder.from(cachePolicy).build();
+        this.providers = new HashSet<>(providers);
+        this.hits = metricRegistry.counter(MetricRegistry.name(ConditionalRequestCache.class, "hits"));
+        this.misses = metricRegistry.counter(MetricRegistry.name(ConditionalRequestCache.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(ConditionalRequestCache.class, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    /**
+     * @param uri the location being requested
+     * @return true if conditional requests are enabled for the provider hosting this location
+     */
+    public boolean isEnabled(URI uri) {
+        String host = uri.getHost();
+        if (host == null) {
+            return false;
+        }
+        return providers.stream().anyMatch(provider -> host.equals(provider) || host.endsWith('.' + provider));
+    }
+
+    /**
+     * Add the validators of a previous response to a GET, if there is one
+     *
+     * @param request the request, must be a GET
+     * @return a handler for the response to this request that returns the body of the response, or the stored body if the server
+     * says it has not been modified. Like a BasicResponseHandler, it throws an HttpResponseException for unsuccessful responses
+     */
+    public ResponseHandler<String> prepare(HttpRequestBase request) {
+        final String key = key(request);
+        final CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (cached.etag != null) {
+                request.addHeader(HttpHeaders.IF_NONE_MATCH, cached.etag);
+            }
+            if (cached.lastModified != null) {
+                request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified);
+            }
+        }
+        return (HttpResponse response) -> {
+            if (cached != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                EntityUtils.consume(response.getEntity());
+                hits.inc();
+                return cached.body;
+            }
+            misses.inc();
+            String body = new BasicResponseHandler().handleResponse(response);
+            Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+            Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+            if (body != null && (etag != null || lastModified != null)) {
+                cache.put(key, new CachedResponse(etag == null ? null : etag.getValue(), lastModified == null ? null : lastModified.getValue(),
+                        body));
+            } else {
+                cache.invalidate(key);
+            }
+            return body;
+        };
+    }
+
+    private static String key(HttpRequestBase request) {
+        Header authorization = request.getFirstHeader(HttpHeaders.AUTHORIZATION);
+        // never keep credentials in memory longer than needed, a digest is enough to tell users apart
+        String user = authorization == null ? "" : Hashing.sha256().hashString(authorization.getValue(), StandardCharsets.UTF_8).toString();
+        return request.getURI().toString() + ' ' + user;
+    }
+
+    private static final class CachedResponse {
+        private final String etag;
+        private final String lastModified;
+        private final String body;
+
+        CachedResponse(String etag, String lastModified, String body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+}
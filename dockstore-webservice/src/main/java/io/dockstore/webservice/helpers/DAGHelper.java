@@ -16,7 +16,6 @@
 
 package io.dockstore.webservice.helpers;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -48,6 +47,7 @@ import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.Yaml;
+import wdl4s.NamespaceWithWorkflow;
 
 /**
  * A helper class for DAG and tool table creation
@@ -65,15 +65,19 @@ public class DAGHelper {
      * This method will get the content for tool tab with descriptor type = WDL
      * It will then call another method to transform the content into JSON string and return
      *
-     * @param tempMainDescriptor
-     * @param type               either dag or tools
+     * @param mainDescName         path of the main descriptor
+     * @param content              has the content of main descriptor file
+     * @param secondaryDescContent has the secondary files and the content, imports are resolved from these
+     * @param type                 either dag or tools
      * @return String
      */
-    public String getContentWDL(String mainDescName, File tempMainDescriptor, Map<String, String> secondaryDescContent,
+    public String getContentWDL(String mainDescName, String content, Map<String, String> secondaryDescContent,
             WorkflowResource.Type type) {
         // Initialize general variables
         Bridge bridge = new Bridge();
-        bridge.setSecondaryFiles((HashMap<String, String>)secondaryDescContent);
+        bridge.setSecondaryFiles(secondaryDescContent);
+        // parse once, in memory, for all of the lookups below
+        NamespaceWithWorkflow namespace = bridge.parseWorkflow(content);
         String callType = "call"; // This may change later (ex. tool, workflow)
         String toolType = "tool";
 
@@ -86,10 +90,10 @@ public class DAGHelper {
         Map<String, Triple<String, String, String>> nodeDockerInfo = new HashMap<>(); // map of stepId -> (run path, docker image, docker url)
 
         // Iterate over each call, grab docker containers
-        Map<String, String> callToDockerMap = (LinkedHashMap)bridge.getCallsToDockerMap(tempMainDescriptor);
+        Map<String, String> callToDockerMap = (LinkedHashMap)bridge.getCallsToDockerMap(namespace);
 
         // Get import files
-        Map<String, String> namespaceToPath = bridge.getImportMap(tempMainDescriptor);
+        Map<String, String> namespaceToPath = bridge.getImportMap(namespace);
 
         // Create nodePairs, callToType, toolID, and toolDocker
         for (Map.Entry<String, String> entry : callToDockerMap.entrySet()) {
@@ -117,7 +121,7 @@ public class DAGHelper {
         }
 
         // Iterate over each call, determine dependencies
-        callToDependencies = (LinkedHashMap)bridge.getCallsToDependencies(tempMainDescriptor);
+        callToDependencies = (LinkedHashMap)bridge.getCallsToDependencies(namespace);
 
         // Determine start node edges
         for (Pair<String, String> node : nodePairs) {
@@ -0,0 +1,151 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.dockstore.webservice.core.DescriptorResult;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.jdbi.DescriptorResultDAO;
+import io.dockstore.webservice.resources.WorkflowResource;
+
+/**
+ * Remembers the DAG and tool table of workflow versions, which take parsing every descriptor and looking up every tool to compute.
+ * Results are keyed by a hash of the source files of the version so that new content is never answered with an old result.
+ * They also link to the tools published on Dockstore, so they are only kept for a while rather than for as long as the files
+ * stay the same.
+ * Results are looked up first in memory, then, if enabled, in the database.
+ *
+ * @author agent
+ */
+public class DescriptorResultCache {
+
+    private final Cache<String, String> cache;
+    private final DescriptorResultDAO descriptorResultDAO;
+    private final long persistedMillis;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param cachePolicy         bounds the number and lifetime of results kept in memory, maximumSize=0 to keep none
+     * @param descriptorResultDAO where results are persisted
+     * @param persistedHours      how long persisted results are used, 0 to not persist results
+     * @param metricRegistry      where hit and miss counts are reported
+     */
+    public DescriptorResultCache(CacheBuilderSpec cachePolicy, DescriptorResultDAO descriptorResultDAO, int persistedHours,
+            MetricRegistry metricRegistry) {
+        this.cache = CacheBuilder.from(cachePolicy).build();
+        this.descriptorResultDAO = descriptorResultDAO;
+        this.persistedMillis = TimeUnit.HOURS.toMillis(persistedHours);
+        this.hits = metricRegistry.counter(MetricRegistry.name(DescriptorResultCache.class, "hits"));
+        this.misses = metricRegistry.counter(MetricRegistry.name(DescriptorResultCache.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(DescriptorResultCache.class, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    /**
+     * @return true if results are stored in the database, in which case it is worth computing them ahead of requests
+     */
+    public boolean isPersistent() {
+        return persistedMillis > 0;
+    }
+
+    /**
+     * @param workflowVersion the workflow version
+     * @param descriptorType  cwl or wdl
+     * @param type            DAG or tool table
+     * @param loader          computes the result if it is not cached
+     * @return the result, null if the loader did not produce one in which case nothing is cached
+     */
+    public String get(WorkflowVersion workflowVersion, String descriptorType, WorkflowResource.Type type, Supplier<String> loader) {
+        final String sourceHash = sourceHash(descriptorType, workflowVersion);
+        final String key = workflowVersion.getId() + " " + type + " " + sourceHash;
+        String result = cache.getIfPresent(key);
+        if (result != null) {
+            hits.inc();
+            return result;
+        }
+
+        DescriptorResult stored = null;
+        if (isPersistent()) {
+            stored = descriptorResultDAO.findByWorkflowVersionIdAndType(workflowVersion.getId(), type.name());
+            if (stored != null && stored.getSourceHash().equals(sourceHash)
+                    && System.currentTimeMillis() - stored.getCreated().getTime() < persistedMillis) {
+                hits.inc();
+                cache.put(key, stored.getContent());
+                return stored.getContent();
+            }
+        }
+
+        misses.inc();
+        result = loader.get();
+        if (result == null) {
+            return null;
+        }
+        cache.put(key, result);
+        if (isPersistent()) {
+            if (stored == null) {
+                stored = new DescriptorResult(workflowVersion.getId(), type.name());
+                stored.update(sourceHash, result);
+                // a concurrent request may have stored the same result first
+                descriptorResultDAO.createIfMissing(stored);
+            } else {
+                stored.update(sourceHash, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param descriptorType  cwl or wdl
+     * @param workflowVersion the workflow version
+     * @return hex SHA-256 over everything the DAG and tool table are computed from: the descriptor type, the path of the main
+     * descriptor and the path, type and content hash of every source file
+     */
+    public static String sourceHash(String descriptorType, WorkflowVersion workflowVersion) {
+        List<SourceFile> files = workflowVersion.getSourceFiles().stream()
+                .sorted(Comparator.comparing(SourceFile::getPath).thenComparing(file -> String.valueOf(file.getType())))
+                .collect(Collectors.toList());
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(String.valueOf(descriptorType), StandardCharsets.UTF_8).putChar('\n');
+        hasher.putString(String.valueOf(workflowVersion.getWorkflowPath()), StandardCharsets.UTF_8).putChar('\n');
+        for (SourceFile file : files) {
+            hasher.putString(file.getPath(), StandardCharsets.UTF_8).putChar('\t');
+            hasher.putString(String.valueOf(file.getType()), StandardCharsets.UTF_8).putChar('\t');
+            hasher.putString(String.valueOf(file.getContentId()), StandardCharsets.UTF_8).putChar('\n');
+        }
+        return hasher.hash().toString();
+    }
+}
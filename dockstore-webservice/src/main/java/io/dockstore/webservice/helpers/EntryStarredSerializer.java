@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 
 import io.dockstore.webservice.core.User;
+import org.hibernate.Hibernate;
 
 /**
  * Created by aduncan on 19/12/16.
@@ -41,6 +42,11 @@ public class EntryStarredSerializer extends StdSerializer<Set<User>> {
     @Override
     public void serialize(Set<User> value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
 
+        if (!Hibernate.isInitialized(value)) {
+            // stars are lazy, not loaded for this response
+            jgen.writeNull();
+            return;
+        }
         jgen.writeStartArray();
         for (User user : value) {
             jgen.writeStartObject();
@@ -51,13 +51,26 @@ public class EntryVersionHelper<T extends Entry> {
     }
 
     public List<T> filterContainersForHiddenTags(List<T> entries) {
+        return filterContainersForHiddenTags(entries, FetchPlan.FULL);
+    }
+
+    /**
+     * @param entries entries attached to the current session
+     * @param plan    what to load before the entries are detached
+     * @return the same entries, detached and without their hidden versions
+     */
+    public List<T> filterContainersForHiddenTags(List<T> entries, FetchPlan plan) {
+        // collections cannot be loaded once the entries are evicted
+        plan.apply(entries);
         for (T entry : entries) {
             dao.evict(entry);
             // clear users which are also lazy loaded
             entry.setUsers(null);
-            // need to have this evict so that hibernate does not actually delete the tags and users
-            Set<Version> versions = entry.getVersions();
-            versions.removeIf(Version::isHidden);
+            if (plan.loadsVersions()) {
+                // need to have this evict so that hibernate does not actually delete the tags and users
+                Set<Version> versions = entry.getVersions();
+                versions.removeIf(Version::isHidden);
+            }
         }
         return entries;
     }
@@ -0,0 +1,90 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.Collection;
+import java.util.Set;
+
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.Version;
+import org.hibernate.Hibernate;
+
+/**
+ * How much of an entry a resource method returns. Labels, stars, versions and files are mapped lazily and the session is
+ * closed before responses are serialized, so whatever a plan does not load here is written out as null.
+ *
+ * @author agent
+ */
+public enum FetchPlan {
+    /**
+     * The entry with its labels and stars, for listings
+     */
+    SUMMARY(false, false),
+    /**
+     * Also the versions of the entry, without their files
+     */
+    VERSIONS(true, false),
+    /**
+     * Also the files of each version, including their content
+     */
+    FULL(true, true);
+
+    private final boolean versions;
+    private final boolean files;
+
+    FetchPlan(boolean versions, boolean files) {
+        this.versions = versions;
+        this.files = files;
+    }
+
+    /**
+     * Load what this plan returns, must be called from the unit of work that loaded the entry
+     *
+     * @param entry an entry attached to the current session
+     * @param <T>   type of entry
+     * @return the same entry
+     */
+    public <T extends Entry> T apply(T entry) {
+        Hibernate.initialize(entry.getLabels());
+        Hibernate.initialize(entry.getStarredUsers());
+        if (versions) {
+            Set<? extends Version> entryVersions = entry.getVersions();
+            Hibernate.initialize(entryVersions);
+            if (files) {
+                entryVersions.forEach(version -> Hibernate.initialize(version.getSourceFiles()));
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @param entries entries attached to the current session, their collections are loaded in batches
+     * @param <C>     type of collection
+     * @return the same entries
+     */
+    public <C extends Collection<? extends Entry>> C apply(C entries) {
+        entries.forEach(this::apply);
+        return entries;
+    }
+
+    /**
+     * @return whether this plan loads the versions of an entry
+     */
+    public boolean loadsVersions() {
+        return versions;
+    }
+}
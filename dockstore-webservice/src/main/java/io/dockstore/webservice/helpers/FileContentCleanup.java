@@ -0,0 +1,70 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import io.dockstore.webservice.jdbi.FileDAO;
+import io.dropwizard.hibernate.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deletes stored file content that no source file refers to any more. Source files share their content by hash, so the content
+ * is left behind when the last file with it is deleted or refreshed with other content, or when the transaction that was to
+ * write the file fails.
+ * Each batch is deleted in a session and transaction of its own, so this class must be created through a
+ * UnitOfWorkAwareProxyFactory.
+ *
+ * @author agent
+ */
+public class FileContentCleanup implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(FileContentCleanup.class);
+    private static final int BATCH_SIZE = 1000;
+    /**
+     * Content is stored before the files that refer to it are committed, which can take as long as a refresh
+     */
+    private static final int GRACE_HOURS = 24;
+
+    private final FileDAO fileDAO;
+
+    public FileContentCleanup(FileDAO fileDAO) {
+        this.fileDAO = fileDAO;
+    }
+
+    /**
+     * @return the number of rows deleted, less than a full batch when nothing is left to delete
+     */
+    @UnitOfWork
+    public int deleteBatch() {
+        return fileDAO.deleteOrphanedContent(BATCH_SIZE, GRACE_HOURS);
+    }
+
+    @Override
+    public void run() {
+        try {
+            int total = 0;
+            int deleted;
+            do {
+                deleted = deleteBatch();
+                total += deleted;
+            } while (deleted == BATCH_SIZE);
+            LOG.info("Deleted " + total + " unused file contents");
+        } catch (RuntimeException e) {
+            // a failed run must not cancel the schedule, the next run picks up what is left
+            LOG.error("Could not delete unused file contents", e);
+        }
+    }
+}
@@ -16,12 +16,8 @@
 
 package io.dockstore.webservice.helpers;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -29,14 +25,12 @@ import java.util.regex.Pattern;
 import com.esotericsoftware.yamlbeans.YamlException;
 import com.esotericsoftware.yamlbeans.YamlReader;
 import com.google.common.base.Strings;
-import com.google.common.io.Files;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.Entry;
 import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tag;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.WorkflowVersion;
-import org.apache.commons.io.FileUtils;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +41,10 @@ import org.slf4j.LoggerFactory;
 public class FileImporter {
 
     public static final Logger LOG = LoggerFactory.getLogger(FileImporter.class);
+    /**
+     * An import at the start of a line of a WDL descriptor
+     */
+    private static final Pattern WDL_IMPORT = Pattern.compile("^import\\s+\"(\\S+)\"", Pattern.MULTILINE);
     private final SourceCodeRepoInterface sourceCodeRepo;
 
     public FileImporter(SourceCodeRepoInterface sourceCodeRepo) {
@@ -97,7 +95,7 @@ public class FileImporter {
             fileName = workflowVersion.getWorkflowPath();
         }
 
-        return sourceCodeRepo.readFile(fileName, reference);
+        return sourceCodeRepo.readRepositoryFile(fileName, reference);
     }
 
     public Map<String, SourceFile> resolveImports(String content, Entry entry, SourceFile.FileType fileType, Version version) {
@@ -123,43 +121,28 @@ public class FileImporter {
             recursiveImports.putAll(imports);
             return recursiveImports;
         } else if (fileType == SourceFile.FileType.DOCKSTORE_WDL) {
-            final File tempDesc;
-            try {
-                tempDesc = File.createTempFile("temp", ".wdl", Files.createTempDir());
-                Files.write(content, tempDesc, StandardCharsets.UTF_8);
-
-                // Use matcher to get imports
-                List<String> lines = FileUtils.readLines(tempDesc, StandardCharsets.UTF_8);
-                ArrayList<String> importPaths = new ArrayList<>();
-                Pattern p = Pattern.compile("^import\\s+\"(\\S+)\"");
-
-                for (String line : lines) {
-                    Matcher m = p.matcher(line);
-
-                    while (m.find()) {
-                        String match = m.group(1);
-                        if (!match.startsWith("http://") && !match.startsWith("https://")) { // Don't resolve URLs
-                            importPaths.add(match.replaceFirst("file://", "")); // remove file:// from path
-                        }
-                    }
+            // Use matcher to get imports
+            ArrayList<String> importPaths = new ArrayList<>();
+            Matcher m = WDL_IMPORT.matcher(content);
+            while (m.find()) {
+                String match = m.group(1);
+                if (!match.startsWith("http://") && !match.startsWith("https://")) { // Don't resolve URLs
+                    importPaths.add(match.replaceFirst("file://", "")); // remove file:// from path
                 }
+            }
+
+            for (String importPath : importPaths) {
+                SourceFile importFile = new SourceFile();
 
-                for (String importPath : importPaths) {
-                    SourceFile importFile = new SourceFile();
-
-                    final String fileResponse = readGitRepositoryFile(fileType, version, importPath);
-                    if (fileResponse == null) {
-                        SourceCodeRepoInterface.LOG.error("Could not read: " + importPath);
-                        continue;
-                    }
-                    importFile.setContent(fileResponse);
-                    importFile.setPath(importPath);
-                    importFile.setType(SourceFile.FileType.DOCKSTORE_WDL);
-                    imports.put(importFile.getPath(), importFile);
+                final String fileResponse = readGitRepositoryFile(fileType, version, importPath);
+                if (fileResponse == null) {
+                    SourceCodeRepoInterface.LOG.error("Could not read: " + importPath);
+                    continue;
                 }
-            } catch (IOException e) {
-                throw new CustomWebApplicationException("Internal server error, out of space",
-                        HttpStatus.SC_INSUFFICIENT_SPACE_ON_RESOURCE);
+                importFile.setContent(fileResponse);
+                importFile.setPath(importPath);
+                importFile.setType(SourceFile.FileType.DOCKSTORE_WDL);
+                imports.put(importFile.getPath(), importFile);
             }
 
             return imports;
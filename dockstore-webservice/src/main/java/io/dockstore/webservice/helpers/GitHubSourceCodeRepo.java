@@ -18,10 +18,10 @@ package io.dockstore.webservice.helpers;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -34,6 +34,7 @@ import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.resources.ResourceUtilities;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.http.HttpStatus;
 import org.eclipse.egit.github.core.Repository;
@@ -41,7 +42,9 @@ import org.eclipse.egit.github.core.RepositoryContents;
 import org.eclipse.egit.github.core.RepositoryId;
 import org.eclipse.egit.github.core.User;
 import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.IGitHubConstants;
 import org.eclipse.egit.github.core.client.RequestException;
+import org.eclipse.egit.github.core.service.CommitService;
 import org.eclipse.egit.github.core.service.ContentsService;
 import org.eclipse.egit.github.core.service.OrganizationService;
 import org.eclipse.egit.github.core.service.RepositoryService;
@@ -62,28 +65,31 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
     private final RepositoryService service;
     private final OrganizationService oService;
     private final UserService uService;
+    private final CommitService commitService;
     private final String gitRepository;
+    private final String githubTokenContent;
 
     // TODO: should be made protected in favour of factory
     public GitHubSourceCodeRepo(String gitUsername, String githubTokenContent, String gitRepository) {
 
-        GitHubClient githubClient = new GitHubClient();
-        githubClient.setOAuth2Token(githubTokenContent);
+        GitHubClient githubClient = new ScheduledGitHubClient(ResourceUtilities.getRequestScheduler(), githubTokenContent);
 
         this.service = new RepositoryService(githubClient);
         this.cService = new ContentsService(githubClient);
         this.oService = new OrganizationService(githubClient);
         this.uService = new UserService(githubClient);
+        this.commitService = new CommitService(githubClient);
         this.gitUsername = gitUsername;
         this.gitRepository = gitRepository;
+        this.githubTokenContent = githubTokenContent;
     }
 
     @Override
     public String readFile(String fileName, String reference) {
         checkNotNull(fileName, "The fileName given is null.");
         try {
-            Repository repo = service.getRepository(gitUsername,
-                    gitRepository); // may need to pass owner from git url, as this may differ from the git username
+            // may need to pass owner from git url, as this may differ from the git username
+            Repository repo = getRepository(gitUsername + "/" + gitRepository);
             List<RepositoryContents> contents;
             try {
                 contents = cService.getContents(repo, fileName, reference);
@@ -110,6 +116,44 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
         return null;
     }
 
+    /**
+     * @param repositoryId the repository in the form owner/name
+     * @return the repository, which is looked up from GitHub at most once per refresh
+     * @throws IOException if GitHub cannot be reached or the repository is not visible
+     */
+    private Repository getRepository(String repositoryId) throws IOException {
+        return getRepositoryMetadata("github-repository", repositoryId,
+                () -> service.getRepository(RepositoryId.createFromId(repositoryId)));
+    }
+
+    @Override
+    protected String getPointedRepositoryId() {
+        return gitRepository == null ? null : gitUsername + "/" + gitRepository;
+    }
+
+    @Override
+    protected String getArchiveUrl(String repositoryId, String reference) {
+        return "https://" + IGitHubConstants.HOST_API + "/repos/" + repositoryId + "/zipball/" + reference;
+    }
+
+    @Override
+    protected String getArchiveAuthorization() {
+        return "token " + githubTokenContent;
+    }
+
+    @Override
+    public String getCommitID(String reference) {
+        if (gitRepository == null || reference == null) {
+            return null;
+        }
+        try {
+            return commitService.getCommit(RepositoryId.create(gitUsername, gitRepository), reference).getSha();
+        } catch (IOException e) {
+            LOG.info(gitUsername + ": Cannot find commit for " + gitRepository + " on " + reference);
+            return null;
+        }
+    }
+
     @Override
     public String getOrganizationEmail() {
         User organization;
@@ -156,7 +200,7 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
 
         // Get repository from API and setup workflow
         try {
-            final Repository repository = service.getRepository(id);
+            final Repository repository = getRepository(id.generateId());
             workflow.setOrganization(repository.getOwner().getLogin());
             workflow.setRepository(repository.getName());
             workflow.setGitUrl(repository.getSshUrl());
@@ -176,21 +220,29 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
         RepositoryId id = RepositoryId.createFromId(repositoryId);
 
         // when getting a full workflow, look for versions and check each version for valid workflows
-        List<String> references = new ArrayList<>();
+        // reference name -> commit it points to
+        Map<String, String> references = new LinkedHashMap<>();
         try {
-            service.getBranches(id).forEach(branch -> references.add(branch.getName()));
-            service.getTags(id).forEach(tag -> references.add(tag.getName()));
+            service.getBranches(id)
+                    .forEach(branch -> references.put(branch.getName(), branch.getCommit() == null ? null : branch.getCommit().getSha()));
+            service.getTags(id).forEach(tag -> references.put(tag.getName(), tag.getCommit() == null ? null : tag.getCommit().getSha()));
         } catch (IOException e) {
             LOG.info(gitUsername + ": Cannot branches or tags for workflow {}");
             throw new CustomWebApplicationException("Could not reach GitHub, please try again later", HttpStatus.SC_SERVICE_UNAVAILABLE);
         }
 
         // For each branch (reference) found, create a workflow version and find the associated descriptor files
-        for (String ref : references) {
+        for (Map.Entry<String, String> reference : references.entrySet()) {
+            String ref = reference.getKey();
             LOG.info(gitUsername + ": Looking at reference: " + ref);
 
             // Initialize the workflow version
             WorkflowVersion version = initializeWorkflowVersion(ref, existingWorkflow, existingDefaults);
+            if (reuseUnchangedVersion(version, reference.getValue(), existingDefaults)) {
+                LOG.info(gitUsername + ": Reference " + ref + " has not changed since the last refresh");
+                workflow.addWorkflowVersion(version);
+                continue;
+            }
             String calculatedPath = version.getWorkflowPath();
 
             //TODO: is there a case-insensitive endsWith?
@@ -200,9 +252,8 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
             // Grab workflow file from github
             try {
                 // Get contents of descriptor file and store
-                final List<RepositoryContents> descriptorContents = cService.getContents(id, calculatedPath, ref);
-                if (descriptorContents != null && descriptorContents.size() > 0) {
-                    String content = extractGitHubContents(descriptorContents);
+                final String content = readWorkflowDescriptor(id, calculatedPath, ref);
+                if (content != null) {
                     SourceFile testJson = new SourceFile();
 
                     // TODO: Is this the best way to determine file type? I don't think so
@@ -243,6 +294,18 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
         return workflow;
     }
 
+    private String readWorkflowDescriptor(RepositoryId id, String path, String ref) throws IOException {
+        RepositorySnapshot snapshot = getSnapshot(id.generateId(), ref);
+        if (snapshot != null) {
+            return snapshot.read(path);
+        }
+        final List<RepositoryContents> descriptorContents = cService.getContents(id, path, ref);
+        if (descriptorContents != null && descriptorContents.size() > 0) {
+            return extractGitHubContents(descriptorContents);
+        }
+        return null;
+    }
+
     @Override
     public String getRepositoryId(Entry entry) {
         String repositoryId;
@@ -275,7 +338,7 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
         // Get repository based on username and repo id
         if (repositoryId != null) {
             try {
-                repository = service.getRepository(gitUsername, repositoryId);
+                repository = getRepository(gitUsername + "/" + repositoryId);
 
                 // Determine the default branch on Github
                 mainBranch = repository.getDefaultBranch();
@@ -297,7 +360,7 @@ public class GitHubSourceCodeRepo extends SourceCodeRepoInterface {
         String content = null;
 
         try {
-            Repository repository = service.getRepository(gitUsername, repositoryId);
+            Repository repository = getRepository(gitUsername + "/" + repositoryId);
             List<RepositoryContents> contents = cService.getContents(repository, filePath, branch);
             if (!(contents == null || contents.isEmpty())) {
                 content = extractGitHubContents(contents);
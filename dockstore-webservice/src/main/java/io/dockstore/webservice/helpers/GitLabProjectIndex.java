@@ -0,0 +1,172 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.google.common.base.Optional;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Every GitLab project visible to one token, indexed by path_with_namespace, so that finding the id or default branch of a
+ * project does not require listing all projects again.
+ * The index is built by paging through the project list once. When a project cannot be found, only the most recently active
+ * projects are read again until a page reaches projects that were already indexed.
+ *
+ * @author agent
+ */
+public class GitLabProjectIndex {
+    static final int PAGE_SIZE = 100;
+
+    private final String apiUrl;
+    private final Function<String, Optional<String>> reader;
+    private final Map<String, Project> projects = new ConcurrentHashMap<>();
+    /**
+     * last_activity_at of the most recently active project that was indexed, ISO 8601 timestamps compare as strings
+     */
+    private String lastActivity = "";
+
+    /**
+     * @param apiUrl the GitLab API, ending with a slash
+     * @param reader reads a URL with the token this index is for, absent if the call failed
+     */
+    GitLabProjectIndex(String apiUrl, Function<String, Optional<String>> reader) {
+        this.apiUrl = apiUrl;
+        this.reader = reader;
+    }
+
+    /**
+     * @param apiUrl the GitLab API, ending with a slash
+     * @param reader reads a URL with the token this index is for, absent if the call failed
+     * @return an index of every visible project, null if the first page of projects could not be read
+     */
+    public static GitLabProjectIndex build(String apiUrl, Function<String, Optional<String>> reader) {
+        GitLabProjectIndex index = new GitLabProjectIndex(apiUrl, reader);
+        return index.readPages(false) ? index : null;
+    }
+
+    /**
+     * @param pathWithNamespace the project, such as namespace/name
+     * @return the project, or null if it was not visible when the index was last refreshed
+     */
+    public Project get(String pathWithNamespace) {
+        return projects.get(pathWithNamespace);
+    }
+
+    public Collection<Project> getProjects() {
+        return Collections.unmodifiableCollection(projects.values());
+    }
+
+    /**
+     * Read the most recently active projects until reaching ones that are already indexed, which picks up new projects
+     */
+    public void refresh() {
+        readPages(true);
+    }
+
+    private synchronized boolean readPages(boolean onlyNewer) {
+        final String previousActivity = lastActivity;
+        for (int page = 1; ; page++) {
+            String url = apiUrl + "projects?order_by=last_activity_at&sort=desc&per_page=" + PAGE_SIZE + "&page=" + page;
+            Optional<String> asString = reader.apply(url);
+            if (!asString.isPresent()) {
+                return page > 1;
+            }
+            List<Project> pageProjects = parse(asString.get());
+            boolean reachedIndexed = false;
+            for (Project project : pageProjects) {
+                if (onlyNewer && project.lastActivity.compareTo(previousActivity) < 0) {
+                    reachedIndexed = true;
+                    break;
+                }
+                projects.put(project.pathWithNamespace, project);
+                if (project.lastActivity.compareTo(lastActivity) > 0) {
+                    lastActivity = project.lastActivity;
+                }
+            }
+            if (reachedIndexed || pageProjects.size() < PAGE_SIZE) {
+                return true;
+            }
+        }
+    }
+
+    static List<Project> parse(String projectJson) {
+        List<Project> result = new ArrayList<>();
+        JsonElement jsonElement = new JsonParser().parse(projectJson);
+        if (jsonElement instanceof JsonArray) {
+            for (JsonElement project : jsonElement.getAsJsonArray()) {
+                JsonObject projectObject = project.getAsJsonObject();
+                if (string(projectObject, "path_with_namespace") == null) {
+                    continue;
+                }
+                result.add(new Project(string(projectObject, "id"), string(projectObject, "path_with_namespace"),
+                        string(projectObject, "default_branch"), string(projectObject, "ssh_url_to_repo"),
+                        string(projectObject, "last_activity_at")));
+            }
+        }
+        return result;
+    }
+
+    private static String string(JsonObject object, String member) {
+        JsonElement element = object.get(member);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+
+    /**
+     * What Dockstore needs to know about a GitLab project
+     */
+    public static final class Project {
+        private final String id;
+        private final String pathWithNamespace;
+        private final String defaultBranch;
+        private final String sshUrl;
+        private final String lastActivity;
+
+        Project(String id, String pathWithNamespace, String defaultBranch, String sshUrl, String lastActivity) {
+            this.id = id;
+            this.pathWithNamespace = pathWithNamespace;
+            this.defaultBranch = defaultBranch;
+            this.sshUrl = sshUrl;
+            this.lastActivity = lastActivity == null ? "" : lastActivity;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getPathWithNamespace() {
+            return pathWithNamespace;
+        }
+
+        public String getDefaultBranch() {
+            return defaultBranch;
+        }
+
+        public String getSshUrl() {
+            return sshUrl;
+        }
+    }
+}
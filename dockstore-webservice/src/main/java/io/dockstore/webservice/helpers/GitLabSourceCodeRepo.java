@@ -16,6 +16,10 @@
 
 package io.dockstore.webservice.helpers;
 
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -70,29 +74,13 @@ public class GitLabSourceCodeRepo extends SourceCodeRepoInterface {
         String id = null;
 
         // Determine a branches default branch (if needed) and ID
-        String projectsUrl = GITLAB_API_URL + "projects";
-        Optional<String> asString = ResourceUtilities.asString(projectsUrl, gitlabTokenContent, client);
-
-        if (asString.isPresent()) {
-            String projectJson = asString.get();
-
-            JsonElement jsonElement = new JsonParser().parse(projectJson);
-            if (jsonElement instanceof JsonArray) {
-                JsonArray jsonArray = jsonElement.getAsJsonArray();
-                for (JsonElement project : jsonArray) {
-                    JsonObject projectObject = project.getAsJsonObject();
-
-                    // What if username != namespace?
-                    if (projectObject.get("path_with_namespace").getAsString().equals(gitUsername + "/" + gitRepository)) {
-                        id = projectObject.get("id").getAsString();
-                        if (reference == null) {
-                            branch = projectObject.get("default_branch").getAsString();
-                        }
-                        break;
-                    }
-                }
+        // What if username != namespace?
+        GitLabProjectIndex.Project project = findProject(gitUsername + "/" + gitRepository);
+        if (project != null) {
+            id = project.getId();
+            if (reference == null) {
+                branch = project.getDefaultBranch();
             }
-
         }
 
         // Get file contents
@@ -103,6 +91,29 @@ public class GitLabSourceCodeRepo extends SourceCodeRepoInterface {
         return content;
     }
 
+    @Override
+    protected String getPointedRepositoryId() {
+        if (gitRepository == null) {
+            return null;
+        }
+        try {
+            // GitLab accepts the URL-encoded path of a project wherever it accepts its id
+            return URLEncoder.encode(gitUsername + "/" + gitRepository, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected String getArchiveUrl(String repositoryId, String reference) {
+        return GITLAB_API_URL + "projects/" + repositoryId + "/repository/archive.zip?sha=" + reference;
+    }
+
+    @Override
+    protected String getArchiveAuthorization() {
+        return "Bearer " + gitlabTokenContent;
+    }
+
     @Override
     public String getOrganizationEmail() {
         return null;
@@ -111,22 +122,12 @@ public class GitLabSourceCodeRepo extends SourceCodeRepoInterface {
     @Override
     public Map<String, String> getWorkflowGitUrl2RepositoryId() {
         Map<String, String> reposByGitUrl = new HashMap<>();
-        String projectsUrl = GITLAB_API_URL + "projects";
-
-        Optional<String> asString = ResourceUtilities.asString(projectsUrl, gitlabTokenContent, client);
-
-        if (asString.isPresent()) {
-            String projectJson = asString.get();
-
-            JsonElement jsonElement = new JsonParser().parse(projectJson);
-            if (jsonElement instanceof JsonArray) {
-                JsonArray jsonArray = jsonElement.getAsJsonArray();
-                for (JsonElement project : jsonArray) {
-                    JsonObject projectObject = project.getAsJsonObject();
-                    String gitlabUrl = projectObject.get("ssh_url_to_repo").getAsString();
-                    String id = projectObject.get("path_with_namespace").getAsString();
-                    reposByGitUrl.put(gitlabUrl, id);
-                }
+        GitLabProjectIndex index = getProjectIndex();
+        if (index != null) {
+            // pick up projects created since the index was built
+            index.refresh();
+            for (GitLabProjectIndex.Project project : index.getProjects()) {
+                reposByGitUrl.put(project.getSshUrl(), project.getPathWithNamespace());
             }
         }
 
@@ -181,6 +182,13 @@ public class GitLabSourceCodeRepo extends SourceCodeRepoInterface {
 
                     // Initialize workflow version
                     WorkflowVersion version = initializeWorkflowVersion(branchName, existingWorkflow, existingDefaults);
+                    JsonElement commit = branchObject.get("commit");
+                    String commitID = commit != null && commit.isJsonObject() && commit.getAsJsonObject().has("id") ? commit
+                            .getAsJsonObject().get("id").getAsString() : null;
+                    if (reuseUnchangedVersion(version, commitID, existingDefaults)) {
+                        workflow.addWorkflowVersion(version);
+                        continue;
+                    }
                     String calculatedPath = version.getWorkflowPath();
 
                     // Now grab source files
@@ -223,24 +231,9 @@ public class GitLabSourceCodeRepo extends SourceCodeRepoInterface {
         if (entry.getDefaultVersion() != null) {
             return entry.getDefaultVersion();
         } else {
-            String projectsUrl = GITLAB_API_URL + "projects";
-            // I think I have to pass tokens with ?private_token=...
-            Optional<String> asString = ResourceUtilities.asString(projectsUrl, gitlabTokenContent, client);
-
-            if (asString.isPresent()) {
-                String projectJson = asString.get();
-                JsonElement jsonElement = new JsonParser().parse(projectJson);
-                if (jsonElement instanceof JsonArray) {
-                    JsonArray jsonArray = jsonElement.getAsJsonArray();
-                    for (JsonElement project : jsonArray) {
-                        JsonObject projectObject = project.getAsJsonObject();
-                        if (projectObject.get("path_with_namespace").getAsString().equals(repositoryId)) {
-                            return projectObject.get("default_branch").getAsString();
-                        }
-
-                    }
-                }
-
+            GitLabProjectIndex.Project project = findProject(repositoryId);
+            if (project != null) {
+                return project.getDefaultBranch();
             }
         }
 
@@ -259,25 +252,38 @@ public class GitLabSourceCodeRepo extends SourceCodeRepoInterface {
      * @return
      */
     private String getProjectId(String repositoryId) {
-        String projectsUrl = GITLAB_API_URL + "projects";
-
-        Optional<String> asString = ResourceUtilities.asString(projectsUrl, gitlabTokenContent, client);
+        GitLabProjectIndex.Project project = findProject(repositoryId);
+        return project == null ? null : project.getId();
+    }
 
-        if (asString.isPresent()) {
-            String projectJson = asString.get();
+    /**
+     * @return every project visible to the token, listed once per refresh or once per cache lifetime across refreshes
+     */
+    private GitLabProjectIndex getProjectIndex() {
+        try {
+            return getRepositoryMetadata("gitlab-project-index", GITLAB_API_URL,
+                    () -> GitLabProjectIndex.build(GITLAB_API_URL, url -> ResourceUtilities.asString(url, gitlabTokenContent, client)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
 
-            JsonElement jsonElement = new JsonParser().parse(projectJson);
-            if (jsonElement instanceof JsonArray) {
-                JsonArray jsonArray = jsonElement.getAsJsonArray();
-                for (JsonElement project : jsonArray) {
-                    JsonObject projectObject = project.getAsJsonObject();
-                    if (projectObject.get("path_with_namespace").getAsString().equals(repositoryId)) {
-                        return projectObject.get("id").getAsString();
-                    }
-                }
-            }
+    /**
+     * @param repositoryId namespace/reponame
+     * @return the project, or null if it is not visible to the token
+     */
+    private GitLabProjectIndex.Project findProject(String repositoryId) {
+        GitLabProjectIndex index = getProjectIndex();
+        if (index == null) {
+            return null;
         }
-        return null;
+        GitLabProjectIndex.Project project = index.get(repositoryId);
+        if (project == null) {
+            // the project may have been created after the index was built
+            index.refresh();
+            project = index.get(repositoryId);
+        }
+        return project;
     }
 
     /**
@@ -293,7 +299,8 @@ public class GitLabSourceCodeRepo extends SourceCodeRepoInterface {
         // TODO: should we even be creating a sourcefile before checking that it is valid?
         // I think it is fine since in the next part we just check that source file has content or not (no content is like null)
         SourceFile file = new SourceFile();
-        String content = getFileContentsFromId(id, branch, path);
+        RepositorySnapshot snapshot = getSnapshot(id, branch);
+        String content = snapshot != null ? snapshot.read(path) : getFileContentsFromId(id, branch, path);
 
         if (content != null) {
             // Is workflow descriptor valid?
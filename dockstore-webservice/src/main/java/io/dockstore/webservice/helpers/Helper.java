@@ -18,10 +18,13 @@ package io.dockstore.webservice.helpers;
 
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -58,6 +61,10 @@ public final class Helper {
     private static final Logger LOG = LoggerFactory.getLogger(Helper.class);
 
     private static final String BITBUCKET_URL = "https://bitbucket.org/";
+    /**
+     * Most search results returned in one page
+     */
+    private static final int MAX_SEARCH_LIMIT = 1000;
 
     private Helper() {
         // hide the constructor for utility classes
@@ -65,14 +72,81 @@ public final class Helper {
 
     public static void updateFiles(Tool tool, final HttpClient client, final FileDAO fileDAO, final Token githubToken,
             final Token bitbucketToken, final Token gitlabToken) {
-        Set<Tag> tags = tool.getTags();
+        Map<Tag, List<SourceFile>> tagFiles = loadFilesForTags(tool, client, githubToken, bitbucketToken, gitlabToken, false);
+        saveFilesForTags(tool, tagFiles, fileDAO, githubToken);
+    }
 
-        // For each tag, will download files to db and determine if the tag is valid
-        for (Tag tag : tags) {
-            LOG.info(githubToken.getUsername() + " : Updating files for tag {}", tag.getName());
+    /**
+     * Download the files for each tag of a tool from its git repository. This does not touch the database so it is safe to call
+     * from a refresh worker.
+     *
+     * @param tool
+     * @param client
+     * @param githubToken
+     * @param bitbucketToken
+     * @param gitlabToken
+     * @param incremental    skip tags whose git reference still points at the commit their files were read from
+     * @return files found for each tag, tags that were skipped are left out
+     */
+    public static Map<Tag, List<SourceFile>> loadFilesForTags(Tool tool, final HttpClient client, final Token githubToken,
+            final Token bitbucketToken, final Token gitlabToken, boolean incremental) {
+        if (tool.getTags().isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        final String bitbucketTokenContent = bitbucketToken == null ? null : bitbucketToken.getContent();
+        final String gitlabTokenContent = gitlabToken == null ? null : gitlabToken.getContent();
+        final String githubTokenContent = githubToken == null ? null : githubToken.getContent();
+        final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory
+                .createSourceCodeRepo(tool.getGitUrl(), client, bitbucketTokenContent, gitlabTokenContent, githubTokenContent);
+        return loadFilesForTags(tool, sourceCodeRepo, githubToken.getUsername(), incremental);
+    }
+
+    /**
+     * @param tool
+     * @param sourceCodeRepo the git repository of the tool, null if it is not supported
+     * @param username       user being refreshed, for logging
+     * @param incremental    skip tags whose git reference still points at the commit their files were read from
+     * @return files found for each tag, tags that were skipped are left out
+     */
+    static Map<Tag, List<SourceFile>> loadFilesForTags(Tool tool, final SourceCodeRepoInterface sourceCodeRepo, final String username,
+            boolean incremental) {
+        Map<Tag, List<SourceFile>> tagFiles = new LinkedHashMap<>();
+        for (Tag tag : tool.getTags()) {
+            // looking up the commit costs a request per tag, which only pays off when it can save reading the files
+            String commitID = null;
+            if (incremental && sourceCodeRepo != null) {
+                commitID = sourceCodeRepo.getCommitID(tag.getReference());
+                if (commitID != null && commitID.equals(tag.getCommitID())) {
+                    LOG.info(username + " : Files for tag {} have not changed", tag.getName());
+                    continue;
+                }
+            }
+            LOG.info(username + " : Updating files for tag {}", tag.getName());
+            // without a lookup the commit these files come from is unknown, so the next incremental refresh reads them again
+            tag.setCommitID(commitID);
 
             // Get all of the required sourcefiles for the given tag
-            List<SourceFile> newFiles = loadFiles(client, bitbucketToken, githubToken, gitlabToken, tool, tag);
+            tagFiles.put(tag, loadFiles(sourceCodeRepo, tool, tag));
+        }
+        if (sourceCodeRepo != null) {
+            sourceCodeRepo.discardSnapshot();
+        }
+        return tagFiles;
+    }
+
+    /**
+     * Replace the files of each tag with newly downloaded files and determine if the tag is valid
+     *
+     * @param tool
+     * @param tagFiles files found for each tag, see {@link #loadFilesForTags(Tool, HttpClient, Token, Token, Token, boolean)}
+     * @param fileDAO
+     * @param githubToken
+     */
+    public static void saveFilesForTags(Tool tool, Map<Tag, List<SourceFile>> tagFiles, final FileDAO fileDAO, final Token githubToken) {
+        // For each tag, will download files to db and determine if the tag is valid
+        for (Map.Entry<Tag, List<SourceFile>> entry : tagFiles.entrySet()) {
+            Tag tag = entry.getKey();
+            List<SourceFile> newFiles = entry.getValue();
 
             // Remove all existing sourcefiles
             tag.getSourceFiles().clear();
@@ -82,9 +156,8 @@ public final class Helper {
             boolean hasWdl = false;
             boolean hasDockerfile = false;
 
-            for (SourceFile newFile : newFiles) {
-                long id = fileDAO.create(newFile);
-                SourceFile file = fileDAO.findById(id);
+            for (SourceFile file : newFiles) {
+                fileDAO.create(file);
                 tag.addSourceFile(file);
 
                 if (file.getType() == FileType.DOCKERFILE) {
@@ -133,14 +206,12 @@ public final class Helper {
      * @param tool
      * @param client
      * @param objectMapper
-     * @param tokenDAO
-     * @param userId
+     * @param tokens the user's tokens
      * @return true if tool has tags, false otherwise
      */
     public static boolean checkQuayContainerForTags(final Tool tool, final HttpClient client, final ObjectMapper objectMapper,
-            final TokenDAO tokenDAO, final long userId) {
-        List<Token> tokens = tokenDAO.findByUserId(userId);
-        Token quayToken = extractToken(tokens, TokenType.QUAY_IO.toString());
+            final UserTokens tokens) {
+        Token quayToken = tokens.get(TokenType.QUAY_IO);
         if (quayToken == null) {
             // no quay token extracted
             throw new CustomWebApplicationException("no quay token found, please link your quay.io account to read from quay.io",
@@ -157,22 +228,14 @@ public final class Helper {
     /**
      * Given a container and tags, load up required files from git repository
      *
-     * @param client
-     * @param bitbucketToken
-     * @param githubToken
+     * @param sourceCodeRepo
      * @param c
      * @param tag
      * @return list of SourceFiles containing cwl and dockerfile.
      */
-    private static List<SourceFile> loadFiles(HttpClient client, Token bitbucketToken, Token githubToken, Token gitlabToken, Tool c,
-            Tag tag) {
+    private static List<SourceFile> loadFiles(SourceCodeRepoInterface sourceCodeRepo, Tool c, Tag tag) {
         List<SourceFile> files = new ArrayList<>();
 
-        final String bitbucketTokenContent = bitbucketToken == null ? null : bitbucketToken.getContent();
-        final String gitlabTokenContent = gitlabToken == null ? null : gitlabToken.getContent();
-        final String githubTokenContent = githubToken == null ? null : githubToken.getContent();
-        final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory
-                .createSourceCodeRepo(c.getGitUrl(), client, bitbucketTokenContent, gitlabTokenContent, githubTokenContent);
         FileImporter importer = new FileImporter(sourceCodeRepo);
 
         // Add for new descriptor types
@@ -241,20 +304,21 @@ public final class Helper {
      * @param objectMapper
      * @param userDAO
      * @param toolDAO
-     * @param tokenDAO
+     * @param tokens the user's tokens
      * @param tagDAO
      * @param fileDAO
+     * @param refreshExecutor workers used to fetch tags and files from remote services
      * @return list of updated containers
      */
     @SuppressWarnings("checkstyle:parameternumber")
     public static List<Tool> refresh(final Long userId, final HttpClient client, final ObjectMapper objectMapper, final UserDAO userDAO,
-            final ToolDAO toolDAO, final TokenDAO tokenDAO, final TagDAO tagDAO, final FileDAO fileDAO) {
+            final ToolDAO toolDAO, final UserTokens tokens, final TagDAO tagDAO, final FileDAO fileDAO,
+            final RefreshExecutor refreshExecutor) {
         // Get user's quay and git tokens
-        List<Token> tokens = tokenDAO.findByUserId(userId);
-        Token quayToken = extractToken(tokens, TokenType.QUAY_IO.toString());
-        Token githubToken = extractToken(tokens, TokenType.GITHUB_COM.toString());
-        Token bitbucketToken = extractToken(tokens, TokenType.BITBUCKET_ORG.toString());
-        Token gitlabToken = extractToken(tokens, TokenType.GITLAB_COM.toString());
+        Token quayToken = tokens.get(TokenType.QUAY_IO);
+        Token githubToken = tokens.get(TokenType.GITHUB_COM);
+        Token bitbucketToken = tokens.get(TokenType.BITBUCKET_ORG);
+        Token gitlabToken = tokens.get(TokenType.GITLAB_COM);
 
         // with Docker Hub support it is now possible that there is no quayToken
         checkTokens(quayToken, githubToken, bitbucketToken, gitlabToken);
@@ -263,21 +327,25 @@ public final class Helper {
         ImageRegistryFactory factory = new ImageRegistryFactory(client, objectMapper, quayToken);
         final List<AbstractImageRegistry> allRegistries = factory.getAllRegistries();
 
-        // Get a list of all namespaces from all image registries
+        // Get a list of all namespaces and their tools from all image registries
+        List<List<Tool>> registryTools = AbstractImageRegistry.getToolsFromAllNamespaces(allRegistries, refreshExecutor);
+
         List<Tool> updatedTools = new ArrayList<>();
-        for (AbstractImageRegistry abstractImageRegistry : allRegistries) {
+        for (int i = 0; i < allRegistries.size(); i++) {
+            AbstractImageRegistry abstractImageRegistry = allRegistries.get(i);
             Registry registry = abstractImageRegistry.getRegistry();
             LOG.info("Grabbing " + registry.getFriendlyName() + " repos");
 
             updatedTools.addAll(abstractImageRegistry
-                    .refreshTools(userId, userDAO, toolDAO, tagDAO, fileDAO, client, githubToken, bitbucketToken, gitlabToken));
+                    .refreshTools(userId, userDAO, toolDAO, tagDAO, fileDAO, client, githubToken, bitbucketToken, gitlabToken,
+                            registryTools.get(i), refreshExecutor));
         }
         return updatedTools;
     }
 
     @SuppressWarnings("checkstyle:parameternumber")
     public static Tool refreshContainer(final long containerId, final long userId, final HttpClient client, final ObjectMapper objectMapper,
-            final UserDAO userDAO, final ToolDAO toolDAO, final TokenDAO tokenDAO, final TagDAO tagDAO, final FileDAO fileDAO) {
+            final UserDAO userDAO, final ToolDAO toolDAO, final UserTokens tokens, final TagDAO tagDAO, final FileDAO fileDAO) {
         Tool tool = toolDAO.findById(containerId);
 
         // Check if tool has a valid Git URL (needed to refresh!)
@@ -290,11 +358,10 @@ public final class Helper {
         }
 
         // Get user's quay and git tokens
-        List<Token> tokens = tokenDAO.findByUserId(userId);
-        Token quayToken = extractToken(tokens, TokenType.QUAY_IO.toString());
-        Token githubToken = extractToken(tokens, TokenType.GITHUB_COM.toString());
-        Token gitlabToken = extractToken(tokens, TokenType.GITLAB_COM.toString());
-        Token bitbucketToken = extractToken(tokens, TokenType.BITBUCKET_ORG.toString());
+        Token quayToken = tokens.get(TokenType.QUAY_IO);
+        Token githubToken = tokens.get(TokenType.GITHUB_COM);
+        Token gitlabToken = tokens.get(TokenType.GITLAB_COM);
+        Token bitbucketToken = tokens.get(TokenType.BITBUCKET_ORG);
 
         // with Docker Hub support it is now possible that there is no quayToken
         checkTokens(quayToken, githubToken, bitbucketToken, gitlabToken);
@@ -308,15 +375,6 @@ public final class Helper {
 
     }
 
-    public static Token extractToken(List<Token> tokens, String source) {
-        for (Token token : tokens) {
-            if (token.getTokenSource().equals(source)) {
-                return token;
-            }
-        }
-        return null;
-    }
-
     /**
      * Refreshes user's Bitbucket token.
      *
@@ -343,14 +401,19 @@ public final class Helper {
                 String json = asString.get();
 
                 Gson gson = new Gson();
-                Map<String, String> map = new HashMap<>();
-                map = (Map<String, String>)gson.fromJson(json, map.getClass());
+                Map<String, Object> map = new HashMap<>();
+                map = (Map<String, Object>)gson.fromJson(json, map.getClass());
 
-                accessToken = map.get("access_token");
-                refreshToken = map.get("refresh_token");
+                accessToken = (String)map.get("access_token");
+                refreshToken = (String)map.get("refresh_token");
+                // Gson reads every JSON number as a Double
+                Number expiresIn = (Number)map.get("expires_in");
 
                 token.setContent(accessToken);
                 token.setRefreshToken(refreshToken);
+                if (expiresIn != null) {
+                    token.setExpiry(new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresIn.longValue())));
+                }
 
                 long create = tokenDAO.create(token);
                 return tokenDAO.findById(create);
@@ -427,6 +490,21 @@ public final class Helper {
         entry.forEach(Helper::checkEntry);
     }
 
+    /**
+     * Check the page of search results that was asked for
+     *
+     * @param offset index of the first result
+     * @param limit  number of results
+     */
+    public static void checkSearchPage(int offset, int limit) {
+        if (offset < 0) {
+            throw new CustomWebApplicationException("offset must not be negative", HttpStatus.SC_BAD_REQUEST);
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_LIMIT) {
+            throw new CustomWebApplicationException("limit must be between 1 and " + MAX_SEARCH_LIMIT, HttpStatus.SC_BAD_REQUEST);
+        }
+    }
+
     public static String convertHttpsToSsh(String url) {
         Pattern p = Pattern.compile("^(https?:)?\\/\\/(www\\.)?(github\\.com|bitbucket\\.org|gitlab\\.com)\\/([\\w-\\.]+)\\/([\\w-\\.]+)$");
         Matcher m = p.matcher(url);
@@ -467,15 +545,13 @@ public final class Helper {
      * @param tool
      * @param client
      * @param objectMapper
-     * @param tokenDAO
-     * @param userId
+     * @param tokens the user's tokens
      * @return
      */
     public static boolean checkIfUserOwns(final Tool tool, final HttpClient client, final ObjectMapper objectMapper,
-            final TokenDAO tokenDAO, final long userId) {
-        List<Token> tokens = tokenDAO.findByUserId(userId);
+            final UserTokens tokens) {
         // get quay token
-        Token quayToken = extractToken(tokens, TokenType.QUAY_IO.toString());
+        Token quayToken = tokens.get(TokenType.QUAY_IO);
 
         if (tool.getRegistry() == Registry.QUAY_IO && quayToken == null) {
             LOG.info("WARNING: QUAY.IO token not found!");
@@ -571,8 +647,22 @@ public final class Helper {
      * @return updated user
      */
     public static User updateUserHelper(final User user, final UserDAO userDAO, final TokenDAO tokenDAO) {
+        return updateUserHelper(user, userDAO, UserTokens.load(tokenDAO, user.getId()));
+    }
+
+    /**
+     * Updates the given user with metadata from Github
+     * @param user
+     * @param userDAO
+     * @param tokens the user's tokens, already loaded by the caller
+     * @return updated user
+     */
+    public static User updateUserHelper(final User user, final UserDAO userDAO, final UserTokens tokens) {
         User existingUser = userDAO.findById(user.getId());
-        Token githubToken = tokenDAO.findGithubByUserId(existingUser.getId()).get(0);
+        Token githubToken = tokens.get(TokenType.GITHUB_COM);
+        if (githubToken == null) {
+            throw new CustomWebApplicationException("A valid GitHub token is required to update user data.", HttpStatus.SC_BAD_REQUEST);
+        }
         GitHubSourceCodeRepo gitHubSourceCodeRepo = new GitHubSourceCodeRepo(existingUser.getUsername(), githubToken.getContent(), null);
         existingUser.update(gitHubSourceCodeRepo.getUserMetadata(existingUser));
         return existingUser;
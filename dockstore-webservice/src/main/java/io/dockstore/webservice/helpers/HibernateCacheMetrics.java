@@ -0,0 +1,68 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.function.ToLongFunction;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Reports hits, misses and puts of the Hibernate second-level and query caches as gauges, overall and for each cache region.
+ *
+ * @author agent
+ */
+public final class HibernateCacheMetrics {
+    private static final String PREFIX = "hibernate-cache";
+
+    private HibernateCacheMetrics() {
+    }
+
+    /**
+     * @param sessionFactory a session factory with hibernate.generate_statistics enabled
+     * @param metricRegistry where the gauges are registered
+     */
+    public static void register(SessionFactory sessionFactory, MetricRegistry metricRegistry) {
+        final Statistics statistics = sessionFactory.getStatistics();
+        gauge(metricRegistry, MetricRegistry.name(PREFIX, "second-level", "hits"), statistics, Statistics::getSecondLevelCacheHitCount);
+        gauge(metricRegistry, MetricRegistry.name(PREFIX, "second-level", "misses"), statistics, Statistics::getSecondLevelCacheMissCount);
+        gauge(metricRegistry, MetricRegistry.name(PREFIX, "second-level", "puts"), statistics, Statistics::getSecondLevelCachePutCount);
+        gauge(metricRegistry, MetricRegistry.name(PREFIX, "query", "hits"), statistics, Statistics::getQueryCacheHitCount);
+        gauge(metricRegistry, MetricRegistry.name(PREFIX, "query", "misses"), statistics, Statistics::getQueryCacheMissCount);
+        gauge(metricRegistry, MetricRegistry.name(PREFIX, "query", "puts"), statistics, Statistics::getQueryCachePutCount);
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            final String name = MetricRegistry.name(PREFIX, region);
+            regionGauge(metricRegistry, MetricRegistry.name(name, "hits"), statistics, region, SecondLevelCacheStatistics::getHitCount);
+            regionGauge(metricRegistry, MetricRegistry.name(name, "misses"), statistics, region, SecondLevelCacheStatistics::getMissCount);
+            regionGauge(metricRegistry, MetricRegistry.name(name, "puts"), statistics, region, SecondLevelCacheStatistics::getPutCount);
+            regionGauge(metricRegistry, MetricRegistry.name(name, "entries"), statistics, region,
+                    SecondLevelCacheStatistics::getElementCountInMemory);
+        }
+    }
+
+    private static void gauge(MetricRegistry metricRegistry, String name, Statistics statistics, ToLongFunction<Statistics> value) {
+        metricRegistry.register(name, (Gauge<Long>)() -> value.applyAsLong(statistics));
+    }
+
+    private static void regionGauge(MetricRegistry metricRegistry, String name, Statistics statistics, String region,
+            ToLongFunction<SecondLevelCacheStatistics> value) {
+        metricRegistry.register(name, (Gauge<Long>)() -> value.applyAsLong(statistics.getSecondLevelCacheStatistics(region)));
+    }
+}
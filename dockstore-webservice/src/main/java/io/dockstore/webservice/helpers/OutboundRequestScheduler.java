@@ -0,0 +1,297 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.RateLimiter;
+import io.dockstore.webservice.RateLimitedException;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Paces outbound calls to quay.io and git hosts so that large refreshes run as fast as the providers allow instead of
+ * failing halfway through.
+ * <ul>
+ * <li>every host and every (host, credentials) pair has a token bucket</li>
+ * <li>when a provider reports that no requests remain, or asks us to retry after some time, calls with the same credentials
+ * fail with a {@link RateLimitedException} until then, rather than holding a request thread</li>
+ * <li>server errors and 429 responses to idempotent requests are retried with jittered exponential backoff</li>
+ * </ul>
+ * Limiters and blocks are kept for recently used hosts and credentials only, so tokens that are no longer used are forgotten.
+ *
+ * @author agent
+ */
+public class OutboundRequestScheduler {
+    private static final Logger LOG = LoggerFactory.getLogger(OutboundRequestScheduler.class);
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * Rate limits that reset sooner than this are waited out, later ones fail right away
+     */
+    private static final long MAX_THROTTLE_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    /**
+     * Longest a provider's rate limit is remembered, GitHub resets its limits every hour
+     */
+    private static final long MAX_BLOCK_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long LIMITER_IDLE_MINUTES = 10;
+    private static final int DEFAULT_MAX_KEYS = 10000;
+    /**
+     * Methods that can be sent again without changing the result, see RFC 7231 section 4.2.2
+     */
+    private static final Set<String> IDEMPOTENT_METHODS = ImmutableSet.of("GET", "HEAD", "OPTIONS", "TRACE", "PUT", "DELETE");
+
+    private final double hostRequestsPerSecond;
+    private final double tokenRequestsPerSecond;
+    private final int maxRetries;
+
+    private final Cache<String, RateLimiter> hostLimiters;
+    private final Cache<String, RateLimiter> tokenLimiters;
+    /**
+     * (host, credentials) -> time in milliseconds when the provider allows requests again
+     */
+    private final Cache<String, Long> blockedUntil;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Timer throttleTimer;
+    private final Meter retries;
+
+    /**
+     * @param hostRequestsPerSecond  requests per second allowed to one host
+     * @param tokenRequestsPerSecond requests per second allowed to one host with the same credentials
+     * @param maxRetries             how many times to retry server errors
+     * @param metricRegistry         where queue depth, throttle time and retries are reported
+     */
+    public OutboundRequestScheduler(double hostRequestsPerSecond, double tokenRequestsPerSecond, int maxRetries,
+            MetricRegistry metricRegistry) {
+        this(hostRequestsPerSecond, tokenRequestsPerSecond, maxRetries, DEFAULT_MAX_KEYS, metricRegistry);
+    }
+
+    OutboundRequestScheduler(double hostRequestsPerSecond, double tokenRequestsPerSecond, int maxRetries, int maxKeys,
+            MetricRegistry metricRegistry) {
+        this.hostRequestsPerSecond = hostRequestsPerSecond;
+        this.tokenRequestsPerSecond = tokenRequestsPerSecond;
+        this.maxRetries = maxRetries;
+        this.hostLimiters = CacheBuilder.newBuilder().maximumSize(maxKeys).expireAfterAccess(LIMITER_IDLE_MINUTES, TimeUnit.MINUTES)
+                .build();
+        this.tokenLimiters = CacheBuilder.newBuilder().maximumSize(maxKeys).expireAfterAccess(LIMITER_IDLE_MINUTES, TimeUnit.MINUTES)
+                .build();
+        this.blockedUntil = CacheBuilder.newBuilder().maximumSize(maxKeys).expireAfterWrite(MAX_BLOCK_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+        this.throttleTimer = metricRegistry.timer(MetricRegistry.name(OutboundRequestScheduler.class, "throttle"));
+        this.retries = metricRegistry.meter(MetricRegistry.name(OutboundRequestScheduler.class, "retries"));
+        metricRegistry.register(MetricRegistry.name(OutboundRequestScheduler.class, "queue-depth"), (Gauge<Integer>)queueDepth::get);
+    }
+
+    /**
+     * Execute a request once the rate limits for its host and credentials allow it, retrying server errors of idempotent requests
+     *
+     * @param client  client to execute the request with
+     * @param request the request
+     * @param handler handles the final response
+     * @param <T>     result of the handler
+     * @return what the handler returned
+     * @throws IOException for connection problems, or an HttpResponseException if every attempt failed with a server error
+     * @throws RateLimitedException if the provider does not accept requests with these credentials for now
+     */
+    public <T> T execute(HttpClient client, HttpRequestBase request, ResponseHandler<T> handler) throws IOException {
+        final String host = request.getURI().getHost();
+        final Header authorization = request.getFirstHeader(HttpHeaders.AUTHORIZATION);
+        final String key = key(host, authorization == null ? null : authorization.getValue());
+        final int retriesAllowed = IDEMPOTENT_METHODS.contains(request.getMethod()) ? maxRetries : 0;
+        for (int attempt = 0; ; attempt++) {
+            acquire(host, key);
+            try {
+                return client.execute(request, (HttpResponse response) -> {
+                    recordRateLimit(key, response);
+                    int status = response.getStatusLine().getStatusCode();
+                    if (status >= HttpStatus.SC_INTERNAL_SERVER_ERROR || status == SC_TOO_MANY_REQUESTS) {
+                        EntityUtils.consume(response.getEntity());
+                        throw new RetryableResponseException(status, response.getStatusLine().getReasonPhrase());
+                    }
+                    return handler.handleResponse(response);
+                });
+            } catch (RetryableResponseException e) {
+                if (attempt >= retriesAllowed) {
+                    throw e;
+                }
+                retries.mark();
+                long backoff = ThreadLocalRandom.current().nextLong(Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt) + 1);
+                LOG.info("{} returned {}, retrying in {} ms", host, e.getStatusCode(), backoff);
+                sleep(backoff);
+            } finally {
+                request.releaseConnection();
+            }
+        }
+    }
+
+    /**
+     * Wait until a request to a host with some credentials is allowed, for clients that do not go through
+     * {@link #execute(HttpClient, HttpRequestBase, ResponseHandler)}
+     *
+     * @param host          host being called
+     * @param authorization value of the Authorization header, null for anonymous calls
+     * @throws InterruptedIOException if interrupted while waiting
+     * @throws RateLimitedException   if the provider does not accept requests with these credentials for now
+     */
+    public void acquire(String host, String authorization) throws InterruptedIOException {
+        acquireKey(host, key(host, authorization));
+    }
+
+    /**
+     * Remember how many requests a provider allows before its rate limit resets
+     *
+     * @param host          host that was called
+     * @param authorization value of the Authorization header, null for anonymous calls
+     * @param remaining     requests remaining, negative if unknown
+     * @param resetSeconds  epoch seconds when the limit resets, negative if unknown
+     */
+    public void recordRateLimit(String host, String authorization, long remaining, long resetSeconds) {
+        block(key(host, authorization), remaining, resetSeconds, -1);
+    }
+
+    private void acquireKey(String host, String key) throws InterruptedIOException {
+        queueDepth.incrementAndGet();
+        final long start = System.nanoTime();
+        try {
+            Long until = blockedUntil.getIfPresent(key);
+            if (until != null) {
+                long wait = until - System.currentTimeMillis();
+                if (wait > MAX_THROTTLE_MILLIS) {
+                    LOG.info("Rate limit reached for {}, failing requests for {} ms", host, wait);
+                    throw new RateLimitedException(host, TimeUnit.MILLISECONDS.toSeconds(wait) + 1);
+                }
+                if (wait > 0) {
+                    sleep(wait);
+                }
+                blockedUntil.asMap().remove(key, until);
+            }
+            limiter(hostLimiters, host == null ? "" : host, hostRequestsPerSecond).acquire();
+            limiter(tokenLimiters, key, tokenRequestsPerSecond).acquire();
+        } finally {
+            throttleTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            queueDepth.decrementAndGet();
+        }
+    }
+
+    private void recordRateLimit(String key, HttpResponse response) {
+        // GitHub and Bitbucket use the X- prefix, GitLab does not
+        long remaining = longHeader(response, "X-RateLimit-Remaining", "RateLimit-Remaining");
+        long reset = longHeader(response, "X-RateLimit-Reset", "RateLimit-Reset");
+        long retryAfterMillis = -1;
+        Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null) {
+            try {
+                retryAfterMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.getValue().trim()));
+            } catch (NumberFormatException e) {
+                Date date = DateUtils.parseDate(retryAfter.getValue());
+                if (date != null) {
+                    retryAfterMillis = date.getTime() - System.currentTimeMillis();
+                }
+            }
+        }
+        block(key, remaining, reset, retryAfterMillis);
+    }
+
+    private void block(String key, long remaining, long resetSeconds, long retryAfterMillis) {
+        long until = -1;
+        if (retryAfterMillis > 0) {
+            until = System.currentTimeMillis() + retryAfterMillis;
+        } else if (remaining == 0 && resetSeconds > 0) {
+            until = TimeUnit.SECONDS.toMillis(resetSeconds);
+        }
+        if (until > System.currentTimeMillis()) {
+            blockedUntil.asMap().merge(key, until, Math::max);
+        }
+    }
+
+    private static RateLimiter limiter(Cache<String, RateLimiter> limiters, String key, double permitsPerSecond) {
+        return limiters.asMap().computeIfAbsent(key, k -> RateLimiter.create(permitsPerSecond));
+    }
+
+    /**
+     * @return number of (host, credentials) pairs currently tracked
+     */
+    long trackedCredentials() {
+        tokenLimiters.cleanUp();
+        return tokenLimiters.size();
+    }
+
+    private static long longHeader(HttpResponse response, String... names) {
+        for (String name : names) {
+            Header header = response.getFirstHeader(name);
+            if (header != null) {
+                try {
+                    return Long.parseLong(header.getValue().trim());
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String key(String host, String authorization) {
+        // keep a digest rather than the credentials themselves
+        String user = authorization == null ? "" : Hashing.sha256().hashString(authorization, StandardCharsets.UTF_8).toString();
+        return host + ' ' + user;
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a rate limit");
+        }
+    }
+
+    /**
+     * A response worth retrying. It is thrown out of the response handler so that the connection is released before waiting
+     */
+    private static final class RetryableResponseException extends HttpResponseException {
+        RetryableResponseException(int statusCode, String message) {
+            super(statusCode, message);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * The builds of one quay.io repository, reduced to what a refresh needs: the most recent build, and the most recent build of
+ * every tag. Builds are read one at a time from the response rather than as one large tree.
+ *
+ * @author agent
+ */
+public final class QuayBuildHistory {
+    private final Build latest;
+    private final Map<String, Build> latestByTag;
+
+    private QuayBuildHistory(Build latest, Map<String, Build> latestByTag) {
+        this.latest = latest;
+        this.latestByTag = latestByTag;
+    }
+
+    /**
+     * @param json a response from repository/{repository}/build/, in which builds are listed most recent first
+     * @return the build history
+     * @throws IOException if the response is not valid json
+     */
+    static QuayBuildHistory parse(String json) throws IOException {
+        Build latest = null;
+        Map<String, Build> latestByTag = new HashMap<>();
+        JsonParser parser = new JsonParser();
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"builds".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    JsonObject buildObject = parser.parse(reader).getAsJsonObject();
+                    Build build = new Build(buildObject);
+                    if (latest == null) {
+                        latest = build;
+                    }
+                    JsonElement tags = buildObject.get("tags");
+                    if (tags != null && tags.isJsonArray()) {
+                        for (JsonElement tag : tags.getAsJsonArray()) {
+                            latestByTag.putIfAbsent(tag.getAsString(), build);
+                        }
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            throw new IOException("Unexpected build list from quay.io", e);
+        }
+        return new QuayBuildHistory(latest, latestByTag);
+    }
+
+    /**
+     * @return the most recent build, null if the repository was never built
+     */
+    public Build getLatest() {
+        return latest;
+    }
+
+    /**
+     * @param tag name of a tag
+     * @return the most recent build that pushed this tag, null if none did
+     */
+    public Build getLatest(String tag) {
+        return latestByTag.get(tag);
+    }
+
+    /**
+     * One build of a repository
+     */
+    public static final class Build {
+        private final boolean triggered;
+        private final String gitUrl;
+        private final String ref;
+        private final String started;
+
+        Build(JsonObject build) {
+            JsonElement triggerMetadata = build.get("trigger_metadata");
+            this.triggered = triggerMetadata != null && triggerMetadata.isJsonObject();
+            this.gitUrl = triggered ? string(triggerMetadata.getAsJsonObject(), "git_url") : null;
+            this.ref = triggered ? string(triggerMetadata.getAsJsonObject(), "ref") : null;
+            this.started = string(build, "started");
+        }
+
+        private static String string(JsonObject object, String member) {
+            JsonElement element = object.get(member);
+            return element == null || element.isJsonNull() ? null : element.getAsString();
+        }
+
+        /**
+         * @return true if the build has trigger metadata, which is where the git url and reference come from
+         */
+        public boolean isTriggered() {
+            return triggered;
+        }
+
+        public String getGitUrl() {
+            return gitUrl;
+        }
+
+        public String getRef() {
+            return ref;
+        }
+
+        public String getStarted() {
+            return started;
+        }
+    }
+}
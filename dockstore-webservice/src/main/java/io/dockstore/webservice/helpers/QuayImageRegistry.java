@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,6 +61,10 @@ public class QuayImageRegistry extends AbstractImageRegistry {
     private final ObjectMapper objectMapper;
     private final Token quayToken;
     private final ApiClient apiClient;
+    /**
+     * repository -> builds, registries are created for each refresh so this lives as long as one refresh
+     */
+    private final Map<String, QuayBuildHistory> buildHistories = new ConcurrentHashMap<>();
 
     public QuayImageRegistry(final HttpClient client, final ObjectMapper objectMapper, final Token quayToken) {
         this.client = client;
@@ -162,7 +167,6 @@ public class QuayImageRegistry extends AbstractImageRegistry {
     @Override
     public void updateAPIToolsWithBuildInformation(List<Tool> apiTools) {
         // Initialize useful classes
-        final Gson gson = new Gson();
         final SimpleDateFormat formatter = new SimpleDateFormat("EEE, d MMM yyyy HH:mm:ss Z");
 
         for (Tool tool : apiTools) {
@@ -176,101 +180,58 @@ public class QuayImageRegistry extends AbstractImageRegistry {
             // Initialize giturl
             String gitUrl = null;
 
-            // Make call for build information from quay (only need most recent)
-            String urlBuilds = QUAY_URL + "repository/" + repo + "/build/?limit=1";
-            Optional<String> asStringBuilds = ResourceUtilities.asString(urlBuilds, quayToken.getContent(), client);
-
-            // Check result of API call
-            if (asStringBuilds.isPresent()) {
-                String json = asStringBuilds.get();
-
-                // Store the json file into a map for parsing
-                Map<String, ArrayList> buildMap = new HashMap<>();
-                buildMap = (Map<String, ArrayList>)gson.fromJson(json, buildMap.getClass());
-
-                // Grad build information
-                ArrayList builds = buildMap.get("builds");
+            // Build information from quay (only need most recent)
+            QuayBuildHistory.Build latestBuild = getLatestBuild(repo);
 
-                if (builds.size() > 0) {
-                    // Look at the latest build for the git url
-                    // ASSUMPTION : We are assuming that for a given Quay repo users are only using one git trigger
-                    if (!builds.isEmpty()) {
-                        // If a build exists, grab data from it and update the tool
-                        Map<String, Map<String, String>> individualBuild = (Map<String, Map<String, String>>)builds.get(0);
+            // Look at the latest build for the git url
+            // ASSUMPTION : We are assuming that for a given Quay repo users are only using one git trigger
+            if (latestBuild != null) {
+                // If a build exists, grab data from it and update the tool
+                // Get the git url
+                gitUrl = latestBuild.getGitUrl();
 
-                        // Get the git url
-                        Map<String, String> triggerMetadata = individualBuild.get("trigger_metadata");
+                // Get lastbuild time
+                String lastBuild = latestBuild.getStarted();
 
-                        if (triggerMetadata != null) {
-                            gitUrl = triggerMetadata.get("git_url");
-                        }
-
-                        // Get lastbuild time
-                        Map<String, String> individualBuildStringMap = (Map<String, String>)builds.get(0);
-                        String lastBuild = individualBuildStringMap.get("started");
-
-                        Date date;
-                        try {
-                            date = formatter.parse(lastBuild);
-                            tool.setLastBuild(date);
-                        } catch (ParseException ex) {
-                            LOG.warn(quayToken.getUsername() + ": " + quayToken.getUsername()
-                                    + " Build date did not match format 'EEE, d MMM yyyy HH:mm:ss Z'");
-                        }
-                    }
+                Date date;
+                try {
+                    date = formatter.parse(lastBuild);
+                    tool.setLastBuild(date);
+                } catch (ParseException ex) {
+                    LOG.warn(quayToken.getUsername() + ": " + quayToken.getUsername()
+                            + " Build date did not match format 'EEE, d MMM yyyy HH:mm:ss Z'");
+                }
 
-                    // Set some attributes if not manual
-                    if (tool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
-                        tool.setRegistry(Registry.QUAY_IO);
-                        tool.setGitUrl(gitUrl);
-                    }
+                // Set some attributes if not manual
+                if (tool.getMode() != ToolMode.MANUAL_IMAGE_PATH) {
+                    tool.setRegistry(Registry.QUAY_IO);
+                    tool.setGitUrl(gitUrl);
                 }
             }
         }
     }
 
     private void updateTagsWithBuildInformation(String repository, List<Tag> tags, Tool tool) {
-        final Gson gson = new Gson();
-
         // Grab build information for given repository
-        String urlBuilds = QUAY_URL + "repository/" + repository + "/build/?limit=2147483647";
-        Optional<String> asStringBuilds = ResourceUtilities.asString(urlBuilds, quayToken.getContent(), client);
-
-        // List of builds for a tool
-        ArrayList builds;
-
-        if (asStringBuilds.isPresent()) {
-            String json = asStringBuilds.get();
-            Map<String, ArrayList> map = new HashMap<>();
-            map = (Map<String, ArrayList>)gson.fromJson(json, map.getClass());
-            builds = map.get("builds");
+        QuayBuildHistory buildHistory = getBuildHistory(repository);
 
+        if (buildHistory != null) {
             // Set up tags with build information
             for (Tag tag : tags) {
-                // Set tag information based on build info
-                for (Object build : builds) {
-                    Map<String, ArrayList<String>> tagsMap = (Map<String, ArrayList<String>>)build;
-                    List<String> buildTags = tagsMap.get("tags");
-
-                    // If build is for given tag
-                    if (buildTags.contains(tag.getName())) {
-                        // Find if tag has a git reference
-                        Map<String, Map<String, String>> triggerMetadataMap = (Map<String, Map<String, String>>)build;
-                        Map<String, String> triggerMetadata = triggerMetadataMap.get("trigger_metadata");
-                        if (triggerMetadata != null) {
-                            String ref = triggerMetadata.get("ref");
-                            ref = parseReference(ref);
-                            tag.setReference(ref);
-                            if (ref == null) {
-                                tag.setAutomated(false);
-                            } else {
-                                tag.setAutomated(true);
-                            }
+                // Set tag information based on the most recent build for the tag
+                QuayBuildHistory.Build build = buildHistory.getLatest(tag.getName());
+                if (build != null) {
+                    // Find if tag has a git reference
+                    if (build.isTriggered()) {
+                        String ref = parseReference(build.getRef());
+                        tag.setReference(ref);
+                        if (ref == null) {
+                            tag.setAutomated(false);
                         } else {
-                            LOG.error(quayToken.getUsername() + " : WARNING: trigger_metadata is NULL. Could not parse to get reference!");
+                            tag.setAutomated(true);
                         }
-
-                        break;
+                    } else {
+                        LOG.error(quayToken.getUsername() + " : WARNING: trigger_metadata is NULL. Could not parse to get reference!");
                     }
                 }
 
@@ -285,6 +246,57 @@ public class QuayImageRegistry extends AbstractImageRegistry {
 
     }
 
+    /**
+     * Fetch all builds of a repository once per refresh, the tags of a tool need more than its most recent build
+     *
+     * @param repository namespace/name of the repository
+     * @return the build history, or null if quay.io did not return it
+     */
+    private QuayBuildHistory getBuildHistory(String repository) {
+        QuayBuildHistory buildHistory = buildHistories.get(repository);
+        if (buildHistory == null) {
+            buildHistory = fetchBuildHistory(repository, Integer.MAX_VALUE);
+            if (buildHistory != null) {
+                buildHistories.put(repository, buildHistory);
+            }
+        }
+        return buildHistory;
+    }
+
+    /**
+     * Tools are updated one after another before their tags are fetched in parallel, so only the most recent build is fetched
+     * for them unless the full history was fetched already
+     *
+     * @param repository namespace/name of the repository
+     * @return the most recent build, or null if there is none or quay.io did not return it
+     */
+    private QuayBuildHistory.Build getLatestBuild(String repository) {
+        QuayBuildHistory buildHistory = buildHistories.get(repository);
+        if (buildHistory == null) {
+            buildHistory = fetchBuildHistory(repository, 1);
+        }
+        return buildHistory == null ? null : buildHistory.getLatest();
+    }
+
+    /**
+     * @param repository namespace/name of the repository
+     * @param limit      the most builds to fetch, most recent first
+     * @return the build history, or null if quay.io did not return it
+     */
+    private QuayBuildHistory fetchBuildHistory(String repository, int limit) {
+        String urlBuilds = QUAY_URL + "repository/" + repository + "/build/?limit=" + limit;
+        Optional<String> asStringBuilds = ResourceUtilities.asString(urlBuilds, quayToken.getContent(), client);
+        if (!asStringBuilds.isPresent()) {
+            return null;
+        }
+        try {
+            return QuayBuildHistory.parse(asStringBuilds.get());
+        } catch (IOException ex) {
+            LOG.warn(quayToken.getUsername() + " Exception: {}", ex);
+            return null;
+        }
+    }
+
     /**
      * Get the map of the given Quay tool
      * Todo: this should be implemented with the Quay API, but they currently don't have a return model for this call
@@ -0,0 +1,85 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dockstore.webservice.CustomWebApplicationException;
+import org.apache.http.HttpStatus;
+
+/**
+ * Runs the remote (git host and image registry) portion of a refresh on a bounded pool of workers.
+ * <p>
+ * Tasks handed to this class must not touch the database, the Hibernate session is bound to the request thread and is not thread-safe.
+ * Callers fetch in parallel and then write the results back on the request thread.
+ *
+ * @author agent
+ */
+public class RefreshExecutor {
+
+    private final ExecutorService executorService;
+    private final MetricRegistry metricRegistry;
+
+    public RefreshExecutor(ExecutorService executorService, MetricRegistry metricRegistry) {
+        this.executorService = executorService;
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Run all tasks and wait for them to complete.
+     *
+     * @param tasks tasks to run, these should only make remote calls
+     * @param <T>   result type of each task
+     * @return results in the same order as the tasks that were given
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            List<Future<T>> futures = executorService.invokeAll(tasks);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomWebApplicationException("Refresh was interrupted", HttpStatus.SC_SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            // surface the same exception that the serial path would have thrown
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new CustomWebApplicationException(e.getCause().toString(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+        }
+        return results;
+    }
+
+    /**
+     * Start timing a refresh, close the returned context when the refresh is done.
+     *
+     * @param name name of the timer under this class
+     * @return a running timer context
+     */
+    public Timer.Context time(String name) {
+        return metricRegistry.timer(MetricRegistry.name(RefreshExecutor.class, name)).time();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.dockstore.webservice.core.RefreshJob;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
+import io.dockstore.webservice.jdbi.UserDAO;
+import io.dockstore.webservice.resources.DockerRepoResource;
+import io.dockstore.webservice.resources.WorkflowResource;
+import io.dropwizard.hibernate.UnitOfWork;
+
+/**
+ * The transactional steps of a refresh job. Each method runs in its own session and transaction,
+ * so this class must be created through a UnitOfWorkAwareProxyFactory and is only called from {@link RefreshJobService}.
+ *
+ * @author agent
+ */
+public class RefreshJobRunner {
+    private final RefreshJobDAO refreshJobDAO;
+    private final UserDAO userDAO;
+    private final DockerRepoResource dockerRepoResource;
+    private final WorkflowResource workflowResource;
+
+    public RefreshJobRunner(RefreshJobDAO refreshJobDAO, UserDAO userDAO, DockerRepoResource dockerRepoResource,
+            WorkflowResource workflowResource) {
+        this.refreshJobDAO = refreshJobDAO;
+        this.userDAO = userDAO;
+        this.dockerRepoResource = dockerRepoResource;
+        this.workflowResource = workflowResource;
+    }
+
+    @UnitOfWork
+    public RefreshJob findActive(Long userId, RefreshJob.Type type) {
+        return refreshJobDAO.findActive(userId, type);
+    }
+
+    /**
+     * @param userId user to refresh, null to refresh every user
+     * @param type   tools or workflows
+     * @param owner  the web service that will run the job
+     * @return the new job
+     */
+    @UnitOfWork
+    public RefreshJob create(Long userId, RefreshJob.Type type, String owner) {
+        long id = refreshJobDAO.create(new RefreshJob(userId, type, owner));
+        return refreshJobDAO.findById(id);
+    }
+
+    /**
+     * Renew the leases of the jobs held by a web service
+     *
+     * @param owner the web service
+     */
+    @UnitOfWork
+    public void renewLeases(String owner) {
+        refreshJobDAO.renewLeases(owner, new Date());
+    }
+
+    /**
+     * Take over the unfinished jobs whose owner stopped renewing its lease, such as jobs that were running when a web service
+     * stopped. They are started over from the beginning.
+     *
+     * @param owner       the web service taking the jobs
+     * @param leaseMillis how long a lease lasts without being renewed
+     * @return ids of the jobs taken over, oldest first
+     */
+    @UnitOfWork
+    public List<Long> claimExpired(String owner, long leaseMillis) {
+        Date now = new Date();
+        Date expiredBefore = new Date(now.getTime() - leaseMillis);
+        return refreshJobDAO.findUnclaimed(expiredBefore).stream().filter(id -> refreshJobDAO.claim(id, owner, now, expiredBefore))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Mark a job as running
+     *
+     * @param jobId the job to start
+     * @param owner the web service running the job
+     * @return ids of the users that this job refreshes, null if another web service has taken the job over
+     */
+    @UnitOfWork
+    public List<Long> start(long jobId, String owner) {
+        RefreshJob job = refreshJobDAO.findByIdForUpdate(jobId);
+        if (!isHeldBy(job, owner)) {
+            return null;
+        }
+        List<Long> userIds = new ArrayList<>();
+        if (job.getUserId() == null) {
+            userIds.addAll(userDAO.findAll().stream().map(User::getId).collect(Collectors.toList()));
+        } else {
+            userIds.add(job.getUserId());
+        }
+        job.setStatus(RefreshJob.Status.RUNNING);
+        job.setStarted(new Date());
+        job.setTotal(userIds.size());
+        job.setCompleted(0);
+        job.getErrors().clear();
+        return userIds;
+    }
+
+    /**
+     * Refresh the entries of one user, any exception rolls back the changes made for this user only
+     *
+     * @param jobId  the job being run
+     * @param userId the user to refresh
+     */
+    @UnitOfWork
+    public void refreshUser(long jobId, long userId) {
+        RefreshJob job = refreshJobDAO.findById(jobId);
+        if (job.getType() == RefreshJob.Type.TOOLS) {
+            dockerRepoResource.refreshToolsForUser(userId);
+        } else {
+            User user = userDAO.findById(userId);
+            if (user != null) {
+                workflowResource.refreshStubWorkflowsForUser(user);
+            }
+        }
+    }
+
+    /**
+     * @param jobId the job being run
+     * @param owner the web service running the job
+     * @param error error for the user that was just refreshed, null if it succeeded
+     * @return false if another web service has taken the job over, which then stops it here
+     */
+    @UnitOfWork
+    public boolean recordProgress(long jobId, String owner, String error) {
+        RefreshJob job = refreshJobDAO.findByIdForUpdate(jobId);
+        if (!isHeldBy(job, owner)) {
+            return false;
+        }
+        job.setCompleted(job.getCompleted() + 1);
+        if (error != null) {
+            job.getErrors().add(error);
+        }
+        return true;
+    }
+
+    /**
+     * @param jobId the job being run
+     * @param owner the web service running the job
+     * @param error error that aborted the whole job, null if it ran to completion
+     */
+    @UnitOfWork
+    public void finish(long jobId, String owner, String error) {
+        RefreshJob job = refreshJobDAO.findByIdForUpdate(jobId);
+        if (!isHeldBy(job, owner)) {
+            return;
+        }
+        if (error != null) {
+            job.getErrors().add(error);
+        }
+        job.setStatus(job.getErrors().isEmpty() ? RefreshJob.Status.SUCCEEDED : RefreshJob.Status.FAILED);
+        job.setFinished(new Date());
+    }
+
+    private static boolean isHeldBy(RefreshJob job, String owner) {
+        return job != null && owner.equals(job.getOwner());
+    }
+}
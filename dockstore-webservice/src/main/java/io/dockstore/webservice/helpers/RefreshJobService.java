@@ -0,0 +1,165 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.helpers;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.dockstore.webservice.core.RefreshJob;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tool and workflow refreshes in the background so that HTTP requests only have to submit them.
+ * A job is refreshed one user at a time so progress is visible and a failure for one user does not undo the others.
+ * Submitting a refresh while an identical one is still queued or running returns the existing job.
+ * Several web services can share the jobs table: each one renews a lease on the jobs it holds and only takes over jobs whose
+ * lease has expired, which is how the jobs of a web service that stopped are resumed.
+ *
+ * @author agent
+ */
+public class RefreshJobService implements Managed {
+    private static final Logger LOG = LoggerFactory.getLogger(RefreshJobService.class);
+
+    private final RefreshJobRunner runner;
+    private final ExecutorService executorService;
+    private final ScheduledExecutorService heartbeatService;
+    private final String owner;
+    private final long leaseMillis;
+
+    /**
+     * @param runner           a RefreshJobRunner created through a UnitOfWorkAwareProxyFactory
+     * @param executorService  workers that run jobs, must not be the pool used by {@link RefreshExecutor}
+     * @param heartbeatService renews leases and looks for expired ones
+     * @param owner            identifies this web service among those sharing the database
+     * @param leaseMillis      how long a job stays with this web service without being renewed
+     */
+    public RefreshJobService(RefreshJobRunner runner, ExecutorService executorService, ScheduledExecutorService heartbeatService,
+            String owner, long leaseMillis) {
+        this.runner = runner;
+        this.executorService = executorService;
+        this.heartbeatService = heartbeatService;
+        this.owner = owner;
+        this.leaseMillis = leaseMillis;
+    }
+
+    /**
+     * @return a name for this web service that no other one, on this host or another, shares
+     */
+    public static String newOwner() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + '/' + UUID.randomUUID();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Queue a refresh, or find the identical one that is already queued or running
+     *
+     * @param userId user to refresh, null to refresh every user
+     * @param type   tools or workflows
+     * @return the job doing the refresh
+     */
+    public synchronized RefreshJob submit(Long userId, RefreshJob.Type type) {
+        RefreshJob active = runner.findActive(userId, type);
+        if (active != null) {
+            return active;
+        }
+        RefreshJob job = runner.create(userId, type, owner);
+        schedule(job.getId());
+        return job;
+    }
+
+    @Override
+    public void start() {
+        // renew well before the lease runs out so that a slow heartbeat does not hand jobs to another web service
+        final long period = Math.max(1, leaseMillis / 3);
+        heartbeatService.scheduleAtFixedRate(this::heartbeat, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        // the executor services are managed by the environment lifecycle, unfinished jobs are taken over once their lease expires
+    }
+
+    /**
+     * Renew the leases of the jobs held here, then take over the jobs whose lease expired
+     */
+    public void heartbeat() {
+        try {
+            runner.renewLeases(owner);
+            List<Long> jobIds = runner.claimExpired(owner, leaseMillis);
+            if (!jobIds.isEmpty()) {
+                LOG.info("Resuming {} unfinished refresh jobs", jobIds.size());
+            }
+            jobIds.forEach(this::schedule);
+        } catch (RuntimeException e) {
+            // an exception would cancel the scheduled heartbeat
+            LOG.error("Could not renew refresh job leases", e);
+        }
+    }
+
+    private void schedule(long jobId) {
+        executorService.submit(() -> run(jobId));
+    }
+
+    private void run(long jobId) {
+        String jobError = null;
+        try {
+            List<Long> userIds = runner.start(jobId, owner);
+            if (userIds == null) {
+                LOG.info("Refresh job {} was taken over by another web service", jobId);
+                return;
+            }
+            for (Long userId : userIds) {
+                String error = null;
+                try {
+                    runner.refreshUser(jobId, userId);
+                } catch (RuntimeException e) {
+                    LOG.warn("Refresh job {} failed to refresh user {}", jobId, userId, e);
+                    error = "User " + userId + ": " + e.getMessage();
+                }
+                if (!runner.recordProgress(jobId, owner, error)) {
+                    LOG.info("Refresh job {} was taken over by another web service", jobId);
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Refresh job {} aborted", jobId, e);
+            jobError = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        }
+        try {
+            runner.finish(jobId, owner, jobError);
+        } catch (RuntimeException e) {
+            LOG.error("Could not record the end of refresh job {}", jobId, e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.hash.Hashing;
+
+/**
+ * Remembers metadata about git repositories, such as the repository itself or its default branch, that is looked up over and
+ * over while refreshing tools and workflows.
+ * Lookups are answered first from a map that lives as long as one {@link SourceCodeRepoInterface}, typically one refresh, and
+ * then from a cache shared by all source code repositories whose entries expire according to the configured policy.
+ * Shared entries are keyed by the credentials used since private repositories are only visible to some users.
+ *
+ * @author agent
+ */
+public class RepositoryMetadataCache {
+
+    private final Cache<String, Object> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param cachePolicy    bounds the number and lifetime of entries shared across refreshes, maximumSize=0 to only cache within a refresh
+     * @param metricRegistry where hit and miss counts are reported
+     */
+    public RepositoryMetadataCache(CacheBuilderSpec cachePolicy, MetricRegistry metricRegistry) {
+        this.cache = CacheBuilder.from(cachePolicy).build();
+        this.hits = metricRegistry.counter(MetricRegistry.name(RepositoryMetadataCache.class, "hits"));
+        this.misses = metricRegistry.counter(MetricRegistry.name(RepositoryMetadataCache.class, "misses"));
+        metricRegistry.register(MetricRegistry.name(RepositoryMetadataCache.class, "hit-ratio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    /**
+     * @param refreshScope   metadata already looked up by the calling source code repository
+     * @param credentials    the credentials the loader uses, null for anonymous calls
+     * @param kind           what is being looked up, such as github-repository
+     * @param repositoryId   the repository
+     * @param loader         looks up the metadata if it is not cached
+     * @param <T>            type of the metadata
+     * @return the metadata, null if the loader did not find it in which case nothing is cached
+     * @throws IOException if the loader failed
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Map<String, Object> refreshScope, String credentials, String kind, String repositoryId, Loader<T> loader)
+            throws IOException {
+        final String localKey = kind + ' ' + repositoryId;
+        Object value = refreshScope.get(localKey);
+        if (value == null) {
+            // keep a digest rather than the credentials themselves
+            final String user = credentials == null ? "" : Hashing.sha256().hashString(credentials, StandardCharsets.UTF_8).toString();
+            final String sharedKey = localKey + ' ' + user;
+            value = cache.getIfPresent(sharedKey);
+            if (value == null) {
+                misses.inc();
+                value = loader.load();
+                if (value == null) {
+                    return null;
+                }
+                cache.put(sharedKey, value);
+            } else {
+                hits.inc();
+            }
+            refreshScope.put(localKey, value);
+        } else {
+            hits.inc();
+        }
+        return (T)value;
+    }
+
+    /**
+     * Looks up metadata from a provider
+     *
+     * @param <T> type of the metadata
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+}
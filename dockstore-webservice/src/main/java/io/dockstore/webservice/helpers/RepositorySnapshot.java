@@ -0,0 +1,129 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * All files of one git reference of a repository, read from a zip archive so that descriptors, imports and test parameter files
+ * can be resolved without one API call per file.
+ *
+ * @author agent
+ */
+public final class RepositorySnapshot {
+    private static final Logger LOG = LoggerFactory.getLogger(RepositorySnapshot.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String repositoryId;
+    private final String reference;
+    /**
+     * path relative to the root of the repository -> content, null if the snapshot could not be taken
+     */
+    private final Map<String, byte[]> files;
+
+    private RepositorySnapshot(String repositoryId, String reference, Map<String, byte[]> files) {
+        this.repositoryId = repositoryId;
+        this.reference = reference;
+        this.files = files;
+    }
+
+    /**
+     * @param repositoryId the repository
+     * @param reference    the branch or tag
+     * @return a snapshot that marks this reference as unavailable, so that it is not downloaded again
+     */
+    static RepositorySnapshot unavailable(String repositoryId, String reference) {
+        return new RepositorySnapshot(repositoryId, reference, null);
+    }
+
+    /**
+     * Read a zip archive as produced by GitHub, Bitbucket and GitLab, where everything is nested in one top-level directory
+     *
+     * @param repositoryId the repository
+     * @param reference    the branch or tag
+     * @param zip          the archive, not closed by this method
+     * @param maxBytes     the uncompressed size above which the snapshot is abandoned
+     * @return the snapshot, or an unavailable one if the archive is too large
+     * @throws IOException if the archive cannot be read
+     */
+    static RepositorySnapshot fromZip(String repositoryId, String reference, InputStream zip, long maxBytes) throws IOException {
+        Map<String, byte[]> files = new HashMap<>();
+        long total = 0;
+        ZipInputStream zipInputStream = new ZipInputStream(zip);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (ZipEntry entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            String name = entry.getName();
+            int slash = name.indexOf('/');
+            if (slash < 0) {
+                continue;
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            for (int read = zipInputStream.read(buffer); read != -1; read = zipInputStream.read(buffer)) {
+                total += read;
+                if (total > maxBytes) {
+                    LOG.info("Snapshot of " + repositoryId + " on " + reference + " is larger than " + maxBytes + " bytes, reading files one at a time");
+                    return unavailable(repositoryId, reference);
+                }
+                content.write(buffer, 0, read);
+            }
+            files.put(name.substring(slash + 1), content.toByteArray());
+        }
+        return new RepositorySnapshot(repositoryId, reference, files);
+    }
+
+    public boolean isFor(String otherRepositoryId, String otherReference) {
+        return repositoryId.equals(otherRepositoryId) && reference.equals(otherReference);
+    }
+
+    public boolean isAvailable() {
+        return files != null;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
+    /**
+     * @param path path of a file, relative to the root of the repository
+     * @return the content of the file, or null if this reference does not have it
+     */
+    public String read(String path) {
+        String normalized = path;
+        while (normalized.startsWith("/") || normalized.startsWith("./")) {
+            normalized = normalized.substring(normalized.indexOf('/') + 1);
+        }
+        byte[] content = files.get(normalized);
+        if (content == null) {
+            // matches reading files through the GitHub API, which also tries the lower case name
+            content = files.get(normalized.toLowerCase());
+        }
+        return content == null ? null : new String(content, StandardCharsets.UTF_8);
+    }
+}
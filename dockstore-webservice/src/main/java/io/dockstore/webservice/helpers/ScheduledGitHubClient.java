@@ -0,0 +1,64 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import org.eclipse.egit.github.core.client.GitHubClient;
+import org.eclipse.egit.github.core.client.IGitHubConstants;
+
+/**
+ * A GitHub client whose requests are paced by an {@link OutboundRequestScheduler}, which also learns about the remaining
+ * GitHub rate limit from every response.
+ *
+ * @author agent
+ */
+public class ScheduledGitHubClient extends GitHubClient {
+    private static final String RATE_LIMIT_RESET = "X-RateLimit-Reset";
+
+    private final OutboundRequestScheduler scheduler;
+    private final String tokenContent;
+
+    /**
+     * @param scheduler    paces requests, may be null to make requests right away
+     * @param tokenContent the OAuth token used for requests
+     */
+    public ScheduledGitHubClient(OutboundRequestScheduler scheduler, String tokenContent) {
+        this.scheduler = scheduler;
+        this.tokenContent = tokenContent;
+        setOAuth2Token(tokenContent);
+    }
+
+    @Override
+    protected HttpURLConnection createConnection(String uri) throws IOException {
+        if (scheduler != null) {
+            scheduler.acquire(IGitHubConstants.HOST_API, tokenContent);
+        }
+        return super.createConnection(uri);
+    }
+
+    @Override
+    protected GitHubClient updateRateLimits(HttpURLConnection request) {
+        super.updateRateLimits(request);
+        if (scheduler != null) {
+            long reset = request.getHeaderFieldLong(RATE_LIMIT_RESET, -1);
+            scheduler.recordRateLimit(IGitHubConstants.HOST_API, tokenContent, getRemainingRequests(), reset);
+        }
+        return this;
+    }
+}
@@ -16,19 +16,26 @@
 
 package io.dockstore.webservice.helpers;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import com.codahale.metrics.MetricRegistry;
 import com.esotericsoftware.yamlbeans.YamlException;
 import com.esotericsoftware.yamlbeans.YamlReader;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
-import io.dockstore.client.Bridge;
+import com.google.common.cache.CacheBuilderSpec;
 import io.dockstore.client.cli.nested.AbstractEntryClient;
 import io.dockstore.webservice.CustomWebApplicationException;
 import io.dockstore.webservice.core.Entry;
@@ -38,6 +45,7 @@ import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowMode;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.resources.ResourceUtilities;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
@@ -54,6 +62,69 @@ public abstract class SourceCodeRepoInterface {
 
     public static final Logger LOG = LoggerFactory.getLogger(SourceCodeRepoInterface.class);
 
+    private static long snapshotMaxBytes = 0;
+    private static int snapshotConnectTimeoutMillis = (int)TimeUnit.MINUTES.toMillis(1);
+    private static int snapshotReadTimeoutMillis = (int)TimeUnit.MINUTES.toMillis(1);
+    private static RepositoryMetadataCache metadataCache = new RepositoryMetadataCache(CacheBuilderSpec.parse("maximumSize=0"),
+            new MetricRegistry());
+
+    private boolean incrementalRefresh = false;
+    /**
+     * Only the most recent snapshot is kept, since versions are refreshed one reference at a time
+     */
+    private RepositorySnapshot snapshot = null;
+    /**
+     * Repository metadata looked up by this interface, see {@link RepositoryMetadataCache}
+     */
+    private final Map<String, Object> refreshMetadata = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxBytes the largest uncompressed repository that is downloaded as a snapshot, 0 to always read files one at a time
+     */
+    public static void setSnapshotMaxBytes(long maxBytes) {
+        snapshotMaxBytes = maxBytes;
+    }
+
+    /**
+     * @param connectTimeoutMillis longest wait to connect to the archive host
+     * @param readTimeoutMillis    longest wait for more bytes of an archive, so that a stalled download does not hold a refresh worker
+     */
+    public static void setSnapshotTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        snapshotConnectTimeoutMillis = connectTimeoutMillis;
+        snapshotReadTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * @param cache shares repository metadata across refreshes
+     */
+    public static void setRepositoryMetadataCache(RepositoryMetadataCache cache) {
+        metadataCache = cache;
+    }
+
+    /**
+     * When enabled, versions whose branch or tag still points at the commit seen during the last refresh keep their
+     * existing files instead of reading them again. Targeted refreshes leave this off so that they always re-read everything.
+     *
+     * @param incrementalRefresh whether to skip unchanged git references
+     */
+    public void setIncrementalRefresh(boolean incrementalRefresh) {
+        this.incrementalRefresh = incrementalRefresh;
+    }
+
+    public boolean isIncrementalRefresh() {
+        return incrementalRefresh;
+    }
+
+    /**
+     * If this interface is pointed at a specific repository, find the commit that a branch or tag currently points to
+     *
+     * @param reference the tag/branch to look up
+     * @return the commit id, or null if it cannot be determined in which case files must always be read again
+     */
+    public String getCommitID(String reference) {
+        return null;
+    }
+
     /**
      * If this interface is pointed at a specific repository, grab a
      * file from a specific branch/tag
@@ -64,6 +135,129 @@ public abstract class SourceCodeRepoInterface {
      */
     public abstract String readFile(String fileName, String reference);
 
+    /**
+     * Read a file from the snapshot of its reference when snapshots are enabled, otherwise with {@link #readFile(String, String)}
+     *
+     * @param fileName  the name of the file (full path) to retrieve
+     * @param reference the tag/branch to get the file from
+     * @return content of the file
+     */
+    public String readRepositoryFile(String fileName, String reference) {
+        if (snapshotMaxBytes > 0 && reference != null) {
+            String repositoryId = getPointedRepositoryId();
+            RepositorySnapshot current;
+            if (repositoryId != null) {
+                current = getSnapshot(repositoryId, reference);
+            } else {
+                // not pointed at a repository, imports are resolved against the repository being refreshed
+                current = snapshot != null && snapshot.isAvailable() && snapshot.getReference().equals(reference) ? snapshot : null;
+            }
+            if (current != null) {
+                return current.read(fileName);
+            }
+        }
+        return readFile(fileName, reference);
+    }
+
+    /**
+     * @return the repository that {@link #readFile(String, String)} reads from in the form used by {@link #getArchiveUrl(String, String)},
+     * null if this interface is not pointed at a specific repository
+     */
+    protected String getPointedRepositoryId() {
+        return null;
+    }
+
+    /**
+     * @param repositoryId the repository
+     * @param reference    the tag/branch
+     * @return where to download a zip archive of a reference, null if this source code repository does not support it
+     */
+    protected String getArchiveUrl(String repositoryId, String reference) {
+        return null;
+    }
+
+    /**
+     * @return value of the Authorization header when downloading archives, also identifies whose view of a repository is cached
+     */
+    protected String getArchiveAuthorization() {
+        return null;
+    }
+
+    /**
+     * Look up metadata about a repository, such as its default branch, at most once per refresh and, if enabled, once per
+     * cache lifetime across refreshes
+     *
+     * @param kind         what is being looked up
+     * @param repositoryId the repository
+     * @param loader       looks up the metadata from the provider
+     * @param <T>          type of the metadata
+     * @return the metadata, null if the loader did not find it
+     * @throws IOException if the loader failed
+     */
+    protected <T> T getRepositoryMetadata(String kind, String repositoryId, RepositoryMetadataCache.Loader<T> loader) throws IOException {
+        return metadataCache.get(refreshMetadata, getArchiveAuthorization(), kind, repositoryId, loader);
+    }
+
+    /**
+     * Get the snapshot of a reference, downloading it if it is not the most recent one. An earlier snapshot is discarded first.
+     *
+     * @param repositoryId the repository
+     * @param reference    the tag/branch
+     * @return the snapshot, or null if snapshots are disabled, unsupported or failed in which case files are read one at a time
+     */
+    protected RepositorySnapshot getSnapshot(String repositoryId, String reference) {
+        if (snapshotMaxBytes <= 0 || repositoryId == null || reference == null) {
+            return null;
+        }
+        if (snapshot == null || !snapshot.isFor(repositoryId, reference)) {
+            final String archiveUrl = getArchiveUrl(repositoryId, reference);
+            if (archiveUrl == null) {
+                return null;
+            }
+            snapshot = null;
+            snapshot = downloadSnapshot(archiveUrl, repositoryId, reference);
+        }
+        return snapshot.isAvailable() ? snapshot : null;
+    }
+
+    private RepositorySnapshot downloadSnapshot(String archiveUrl, String repositoryId, String reference) {
+        try {
+            URL url = new URL(archiveUrl);
+            String authorization = getArchiveAuthorization();
+            OutboundRequestScheduler scheduler = ResourceUtilities.getRequestScheduler();
+            if (scheduler != null) {
+                scheduler.acquire(url.getHost(), authorization);
+            }
+            HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+            connection.setConnectTimeout(snapshotConnectTimeoutMillis);
+            connection.setReadTimeout(snapshotReadTimeoutMillis);
+            if (authorization != null) {
+                connection.setRequestProperty("Authorization", authorization);
+            }
+            try {
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    LOG.info("Could not download snapshot of " + repositoryId + " on " + reference + ": " + connection.getResponseCode());
+                    return RepositorySnapshot.unavailable(repositoryId, reference);
+                }
+                try (InputStream inputStream = connection.getInputStream()) {
+                    return RepositorySnapshot.fromZip(repositoryId, reference, inputStream, snapshotMaxBytes);
+                }
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            LOG.info("Could not download snapshot of " + repositoryId + " on " + reference + ": " + e.getMessage());
+            return RepositorySnapshot.unavailable(repositoryId, reference);
+        }
+    }
+
+    /**
+     * Free the memory of the most recent snapshot, call when done refreshing an entry
+     */
+    public void discardSnapshot() {
+        snapshot = null;
+    }
+
     /**
      * Get the email for the current user
      *
@@ -178,11 +372,6 @@ public abstract class SourceCodeRepoInterface {
      */
     public abstract Map<String, String> getWorkflowGitUrl2RepositoryId();
 
-    List<String> getWdlImports(File workflowFile) {
-        Bridge bridge = new Bridge();
-        return bridge.getImportFiles(workflowFile);
-    }
-
     /**
      * Given the content of a file, determines if it is a valid WDL workflow
      *
@@ -271,7 +460,11 @@ public abstract class SourceCodeRepoInterface {
         }
 
         // Create branches and associated source files
-        setupWorkflowVersions(repositoryId, workflow, existingWorkflow, existingDefaults);
+        try {
+            setupWorkflowVersions(repositoryId, workflow, existingWorkflow, existingDefaults);
+        } finally {
+            discardSnapshot();
+        }
 
         // Get metadata for workflow and update workflow with it
         if (workflow.getDescriptorType().equals(AbstractEntryClient.Type.CWL.toString())) {
@@ -434,6 +627,27 @@ public abstract class SourceCodeRepoInterface {
         return version;
     }
 
+    /**
+     * Record the commit a new version was read from and, during an incremental refresh, reuse the files of the existing
+     * version if its reference has not moved and its workflow path is the same
+     *
+     * @param version          a version initialized by {@link #initializeWorkflowVersion(String, Optional, Map)}
+     * @param commitID         the commit that the reference currently points to, may be null
+     * @param existingDefaults existing versions keyed by reference
+     * @return true if the existing files were reused and nothing needs to be read from the repository
+     */
+    boolean reuseUnchangedVersion(WorkflowVersion version, String commitID, Map<String, WorkflowVersion> existingDefaults) {
+        version.setCommitID(commitID);
+        WorkflowVersion existingVersion = existingDefaults.get(version.getReference());
+        if (!incrementalRefresh || commitID == null || existingVersion == null || !commitID.equals(existingVersion.getCommitID())
+                || !Objects.equals(version.getWorkflowPath(), existingVersion.getWorkflowPath())) {
+            return false;
+        }
+        version.setValid(existingVersion.isValid());
+        version.getSourceFiles().addAll(existingVersion.getSourceFiles());
+        return true;
+    }
+
     /**
      * Determine descriptor type from file path
      *
@@ -0,0 +1,116 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.ToolProjection;
+import io.dockstore.webservice.jdbi.ToolProjectionDAO;
+import io.swagger.api.impl.ToolsApiServiceImpl;
+import io.swagger.model.Tool;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the stored GA4GH representation of published tools and workflows, see {@link ToolProjection}.
+ * Projections are only written by the requests that change an entry, reads never store one. Projections of deleted entries are
+ * removed by this service as a listener for deletes, whichever code path deleted the entry.
+ *
+ * @author agent
+ */
+public class ToolProjectionService implements PostDeleteEventListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ToolProjectionService.class);
+    private static final String DELETE = "DELETE FROM toolprojection WHERE entryid = ?";
+
+    private final ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ToolProjectionDAO toolProjectionDAO;
+
+    public ToolProjectionService(ToolProjectionDAO toolProjectionDAO) {
+        this.toolProjectionDAO = toolProjectionDAO;
+    }
+
+    /**
+     * Rewrite the projection of a tool or workflow. Call this from the unit of work that changed the entry, its versions or
+     * their files, so that the projection is committed together with the change.
+     *
+     * @param entry the entry after it was changed
+     */
+    public void update(Entry entry) {
+        Tool tool = entry.getIsPublished() ? ToolsApiServiceImpl.convertEntry(entry) : null;
+        if (tool == null) {
+            // only published entries are served
+            toolProjectionDAO.delete(entry.getId());
+            return;
+        }
+        try {
+            toolProjectionDAO.save(entry.getId(), mapper.writeValueAsString(tool));
+        } catch (JsonProcessingException e) {
+            LOG.error("Could not store the GA4GH representation of " + entry.getId(), e);
+            toolProjectionDAO.delete(entry.getId());
+        }
+    }
+
+    /**
+     * @param entries published entries
+     * @return the stored GA4GH representation of each entry that has a readable one, by entry id
+     */
+    public Map<Long, Tool> find(Collection<Entry> entries) {
+        Map<Long, Tool> tools = new HashMap<>();
+        List<Long> ids = entries.stream().map(Entry::getId).collect(Collectors.toList());
+        for (ToolProjection projection : toolProjectionDAO.findByEntryIds(ids)) {
+            try {
+                tools.put(projection.getEntryId(), mapper.readValue(projection.getJson(), Tool.class));
+            } catch (IOException e) {
+                LOG.error("Could not read the GA4GH representation of " + projection.getEntryId(), e);
+            }
+        }
+        return tools;
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (!(event.getEntity() instanceof Entry)) {
+            return;
+        }
+        final long entryId = ((Entry)event.getEntity()).getId();
+        event.getSession().doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(DELETE)) {
+                statement.setLong(1, entryId);
+                statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+}
@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 
 import io.dockstore.webservice.core.Entry;
+import org.hibernate.Hibernate;
 
 /**
  * Created by aduncan on 19/12/16.
@@ -41,6 +42,11 @@ public class UserStarredSerializer extends StdSerializer<Set<Entry>> {
     @Override
     public void serialize(Set<Entry> value, JsonGenerator jgen, SerializerProvider provider) throws IOException {
 
+        if (!Hibernate.isInitialized(value)) {
+            // stars are lazy, not loaded for this response
+            jgen.writeNull();
+            return;
+        }
         jgen.writeStartArray();
         for (Entry entry : value) {
             jgen.writeStartObject();
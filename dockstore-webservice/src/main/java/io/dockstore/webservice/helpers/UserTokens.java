@@ -0,0 +1,102 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.dockstore.webservice.core.Token;
+import io.dockstore.webservice.core.TokenType;
+import io.dockstore.webservice.jdbi.TokenDAO;
+import org.apache.http.client.HttpClient;
+
+/**
+ * The tokens of one user, loaded with a single query and handed down a refresh so that every step does not look them up again.
+ *
+ * @author agent
+ */
+public final class UserTokens {
+    /**
+     * Bitbucket access tokens last an hour, renew them when they have less than this left so that a refresh does not fail halfway
+     */
+    private static final long BITBUCKET_EXPIRY_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final long userId;
+    private final Map<TokenType, Token> tokens = new EnumMap<>(TokenType.class);
+
+    UserTokens(long userId, List<Token> tokenList) {
+        this.userId = userId;
+        for (Token token : tokenList) {
+            TokenType type = TokenType.fromSource(token.getTokenSource());
+            if (type != null) {
+                // a user has one token per service, keep the first if there are more
+                tokens.putIfAbsent(type, token);
+            }
+        }
+    }
+
+    /**
+     * @param tokenDAO
+     * @param userId
+     * @return all tokens of the user
+     */
+    public static UserTokens load(TokenDAO tokenDAO, long userId) {
+        return new UserTokens(userId, tokenDAO.findByUserId(userId));
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @param type
+     * @return the user's token for a service, null if the user has not linked it
+     */
+    public Token get(TokenType type) {
+        return tokens.get(type);
+    }
+
+    /**
+     * @param type
+     * @return the content of the user's token for a service, null if the user has not linked it
+     */
+    public String getContent(TokenType type) {
+        Token token = tokens.get(type);
+        return token == null ? null : token.getContent();
+    }
+
+    /**
+     * Renews the user's Bitbucket token if it is about to expire
+     *
+     * @param client
+     * @param tokenDAO
+     * @param bitbucketClientID
+     * @param bitbucketClientSecret
+     * @return the Bitbucket token, null if the user has not linked Bitbucket
+     */
+    public Token refreshBitbucketTokenIfNeeded(HttpClient client, TokenDAO tokenDAO, String bitbucketClientID,
+            String bitbucketClientSecret) {
+        Token bitbucketToken = tokens.get(TokenType.BITBUCKET_ORG);
+        if (bitbucketToken != null && bitbucketToken.isNearExpiry(BITBUCKET_EXPIRY_MARGIN_MILLIS)) {
+            bitbucketToken = Helper.refreshBitbucketToken(bitbucketToken, client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
+            tokens.put(TokenType.BITBUCKET_ORG, bitbucketToken);
+        }
+        return bitbucketToken;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.dockstore.webservice.core.FileContent;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * Compresses the file contents that were stored as text before large contents were stored gzipped, see {@link FileContent}.
+ * Postgres cannot gzip, so this runs in Java as part of the compressedfilecontent migration. Rows are rewritten in batches and
+ * contents that do not get smaller are left as they are.
+ *
+ * @author agent
+ */
+public class CompressFileContentChange implements CustomTaskChange {
+    private static final int BATCH_SIZE = 100;
+
+    private int compressed;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        Connection connection = ((JdbcConnection)database.getConnection()).getUnderlyingConnection();
+        try {
+            List<String> ids = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id FROM filecontent WHERE content IS NOT NULL AND octet_length(content) > ? ORDER BY id")) {
+                statement.setInt(1, FileContent.COMPRESSION_THRESHOLD);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getString(1));
+                    }
+                }
+            }
+            for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+                compress(connection, ids.subList(i, Math.min(i + BATCH_SIZE, ids.size())));
+            }
+        } catch (SQLException e) {
+            throw new CustomChangeException("Could not compress file contents", e);
+        }
+    }
+
+    private void compress(Connection connection, List<String> ids) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT id, content FROM filecontent WHERE id = ANY(?)");
+                PreparedStatement update = connection
+                        .prepareStatement("UPDATE filecontent SET content = ?, compressedcontent = ? WHERE id = ?")) {
+            select.setArray(1, connection.createArrayOf("text", ids.toArray()));
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    FileContent content = new FileContent(resultSet.getString(2));
+                    if (!content.isCompressed()) {
+                        continue;
+                    }
+                    update.setNull(1, Types.VARCHAR);
+                    update.setBytes(2, content.getCompressedContent());
+                    update.setString(3, resultSet.getString(1));
+                    update.addBatch();
+                    compressed++;
+                }
+            }
+            update.executeBatch();
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Compressed " + compressed + " file contents";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
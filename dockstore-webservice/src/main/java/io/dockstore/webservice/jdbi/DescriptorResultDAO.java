@@ -0,0 +1,74 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+
+import io.dockstore.webservice.core.DescriptorResult;
+import io.dropwizard.hibernate.AbstractDAO;
+import org.hibernate.SessionFactory;
+
+/**
+ * @author agent
+ */
+public class DescriptorResultDAO extends AbstractDAO<DescriptorResult> {
+    public DescriptorResultDAO(SessionFactory factory) {
+        super(factory);
+    }
+
+    /**
+     * Store a result unless another transaction stored one for the same workflow version and type first, there is one row for
+     * both. Postgres 9.4 has no INSERT ... ON CONFLICT, so writers take a transaction scoped advisory lock on the pair first, like
+     * the writers of file content. A second writer then waits for the first to commit and inserts nothing.
+     *
+     * @param result a result that is not persisted yet
+     * @return true if the result was stored, false if there already was one
+     */
+    public boolean createIfMissing(DescriptorResult result) {
+        return currentSession().doReturningWork(connection -> {
+            try (PreparedStatement statement = connection
+                    .prepareStatement("SELECT pg_advisory_xact_lock(hashtext('descriptorresult'), hashtext(? || ' ' || ?))")) {
+                statement.setLong(1, result.getWorkflowVersionId());
+                statement.setString(2, result.getType());
+                statement.executeQuery().close();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO descriptorresult (workflowversionid, type, sourcehash, content, created) SELECT ?, ?, ?, ?, ? "
+                            + "WHERE NOT EXISTS (SELECT 1 FROM descriptorresult WHERE workflowversionid = ? AND type = ?)")) {
+                statement.setLong(1, result.getWorkflowVersionId());
+                statement.setString(2, result.getType());
+                statement.setString(3, result.getSourceHash());
+                statement.setString(4, result.getContent());
+                statement.setTimestamp(5, new Timestamp(result.getCreated().getTime()));
+                statement.setLong(6, result.getWorkflowVersionId());
+                statement.setString(7, result.getType());
+                return statement.executeUpdate() == 1;
+            }
+        });
+    }
+
+    /**
+     * @param workflowVersionId the workflow version
+     * @param type              DAG or TOOLS
+     * @return the stored result, null if there is none
+     */
+    public DescriptorResult findByWorkflowVersionIdAndType(long workflowVersionId, String type) {
+        return uniqueResult(namedQuery("io.dockstore.webservice.core.DescriptorResult.findByWorkflowVersionIdAndType")
+                .setParameter("workflowVersionId", workflowVersionId).setParameter("type", type));
+    }
+}
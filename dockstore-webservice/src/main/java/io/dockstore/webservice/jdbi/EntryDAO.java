@@ -17,17 +17,33 @@
 package io.dockstore.webservice.jdbi;
 
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
+import com.google.common.collect.Lists;
+import io.dockstore.webservice.api.EntrySummary;
+import io.dockstore.webservice.api.VersionSummary;
 import io.dockstore.webservice.core.Entry;
 import io.dropwizard.hibernate.AbstractDAO;
+import org.hibernate.Query;
+import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.type.StandardBasicTypes;
 
 /**
  * @author dyuen
  */
 public class EntryDAO<T extends Entry> extends AbstractDAO<T> {
+    /**
+     * Versions and labels of summaries are looked up for this many entries per query
+     */
+    private static final int SUMMARY_BATCH_SIZE = 1000;
 
     private Class<T> typeOfT;
 
@@ -71,9 +87,107 @@ public class EntryDAO<T extends Entry> extends AbstractDAO<T> {
         return list(namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findAllPublished"));
     }
 
-    public List<T> searchPattern(String pattern) {
-        pattern = '%' + pattern + '%';
-        return list(
-                namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".searchPattern").setParameter("pattern", pattern));
+    /**
+     * Full-text search of published entries, see {@link #toPrefixQuery(String)}
+     *
+     * @param pattern     words to search for
+     * @param firstResult index of the first match to return
+     * @param maxResults  largest number of matches to return
+     * @return matching published entries, best match first
+     */
+    public List<T> searchPattern(String pattern, int firstResult, int maxResults) {
+        List<Long> ids = searchIds(pattern, firstResult, maxResults);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // returned in the order of the ids, so in order of rank
+        return currentSession().byMultipleIds(typeOfT).multiLoad(ids);
+    }
+
+    public List<EntrySummary> findPublishedSummaries() {
+        return summaries(namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findPublishedSummaries"));
+    }
+
+    public List<EntrySummary> findSummariesByUserId(long userId, boolean publishedOnly) {
+        final String name = publishedOnly ? ".findPublishedSummariesByUserId" : ".findSummariesByUserId";
+        return summaries(namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + name).setParameter("userId", userId));
+    }
+
+    public List<EntrySummary> searchSummaries(String pattern, int firstResult, int maxResults) {
+        List<Long> ids = searchIds(pattern, firstResult, maxResults);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<EntrySummary> summaries = summaries(
+                namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findSummariesByIds").setParameterList("ids", ids));
+        Map<Long, Integer> rankById = new HashMap<>();
+        ids.forEach(id -> rankById.put(id, rankById.size()));
+        summaries.sort(Comparator.comparing(summary -> rankById.get(summary.getId())));
+        return summaries;
+    }
+
+    /**
+     * Rank published entries against the search vector that a trigger keeps up to date on each row, see searchvector.sql. The
+     * GIN index on that vector keeps this fast however many entries there are.
+     *
+     * @param pattern     words to search for
+     * @param firstResult index of the first match to return
+     * @param maxResults  largest number of matches to return
+     * @return ids of matching published entries, best match first
+     */
+    private List<Long> searchIds(String pattern, int firstResult, int maxResults) {
+        final String table = typeOfT.getSimpleName().toLowerCase();
+        final String tsQuery = toPrefixQuery(pattern);
+        SQLQuery query;
+        if (tsQuery == null) {
+            // nothing to search for matches everything, as a substring search for an empty pattern did
+            query = currentSession().createSQLQuery("SELECT c.id FROM " + table + " c WHERE c.ispublished = true ORDER BY c.id");
+        } else {
+            query = currentSession().createSQLQuery("SELECT c.id FROM " + table + " c, to_tsquery('simple', :query) q"
+                    + " WHERE c.ispublished = true AND c.searchvector @@ q ORDER BY ts_rank(c.searchvector, q) DESC, c.id");
+            query.setParameter("query", tsQuery);
+        }
+        query.addScalar("id", StandardBasicTypes.LONG);
+        query.setFirstResult(firstResult);
+        query.setMaxResults(maxResults);
+        return query.list();
+    }
+
+    /**
+     * Turn what a user typed into a text search query that matches entries with words starting with each of the typed words.
+     * Punctuation separates words, like it does in the search vector, so that parts of paths such as quay.io/org/tool can be found.
+     *
+     * @param pattern what the user typed
+     * @return the query, or null if there are no words in the pattern
+     */
+    public static String toPrefixQuery(String pattern) {
+        if (pattern == null) {
+            return null;
+        }
+        String query = Arrays.stream(pattern.split("[^\\p{L}\\p{N}]+")).filter(word -> !word.isEmpty()).map(word -> word + ":*")
+                .collect(Collectors.joining(" & "));
+        return query.isEmpty() ? null : query;
+    }
+
+    /**
+     * Run a constructor expression query for summaries, then fill in their visible versions and labels with one query each per
+     * batch of entries
+     *
+     * @param query selects EntrySummary objects
+     * @return the summaries
+     */
+    private List<EntrySummary> summaries(Query query) {
+        List<EntrySummary> summaries = query.list();
+        Map<Long, EntrySummary> summaryById = new HashMap<>();
+        summaries.forEach(summary -> summaryById.put(summary.getId(), summary));
+        for (List<Long> ids : Lists.partition(new ArrayList<>(summaryById.keySet()), SUMMARY_BATCH_SIZE)) {
+            List<VersionSummary> versions = namedQuery(
+                    "io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findVersionSummaries").setParameterList("ids", ids).list();
+            versions.forEach(version -> summaryById.get(version.getEntryId()).getVersions().add(version));
+            List<Object[]> labels = namedQuery("io.dockstore.webservice.core." + typeOfT.getSimpleName() + ".findLabelSummaries")
+                    .setParameterList("ids", ids).list();
+            labels.forEach(row -> summaryById.get((Long)row[0]).getLabels().add((String)row[1]));
+        }
+        return summaries;
     }
 }
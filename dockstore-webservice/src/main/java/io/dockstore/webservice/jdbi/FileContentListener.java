@@ -0,0 +1,156 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import io.dockstore.webservice.core.FileContent;
+import io.dockstore.webservice.core.SourceFile;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+
+/**
+ * Stores the content of a source file right before the file is written, unless a file with the same content was stored before.
+ * This happens whenever a file is written, so it also covers files that are saved through cascades rather than through
+ * {@link FileDAO}.
+ * Contents are stored in a short transaction of their own rather than in the one that writes the files, which may stay open
+ * for a whole refresh. Refreshes that store the same content do not wait for each other, and contents of a refresh that
+ * fails are left for {@link FileDAO#deleteOrphanedContent(int, int)}. Storing content that is already there marks it as
+ * stored again, so that it is not deleted before the files that refer to it are committed.
+ * Postgres 9.4 has no INSERT ... ON CONFLICT, so writers of the same content take a transaction scoped advisory lock on it
+ * first. A second writer then waits for the first to commit and finds the row instead of failing on the primary key.
+ * The contents of all files written in one flush are locked with one statement, marked with one and stored with one batch.
+ *
+ * @author agent
+ */
+public class FileContentListener implements PreInsertEventListener, PreUpdateEventListener {
+    /**
+     * Counts the statements sent to store content
+     */
+    public static final String STATEMENTS_METRIC = MetricRegistry.name(FileContentListener.class, "statements");
+    /**
+     * Locks the content ids in the array parameter until the end of the transaction, in order so that writers do not deadlock
+     */
+    static final String LOCK_CONTENT = "SELECT pg_advisory_xact_lock(hashtext(id)) FROM (SELECT unnest(?) AS id ORDER BY 1) ids";
+    private static final String MARK_STORED = "UPDATE filecontent SET created = now() WHERE id = ANY(?)";
+    private static final String INSERT_IF_MISSING = "INSERT INTO filecontent (id, content, compressedcontent) SELECT ?, ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM filecontent WHERE id = ?)";
+
+    private final Counter statements;
+
+    public FileContentListener(MetricRegistry metricRegistry) {
+        statements = metricRegistry.counter(STATEMENTS_METRIC);
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        store(event.getEntity(), event.getSession());
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        store(event.getEntity(), event.getSession());
+        return false;
+    }
+
+    /**
+     * Store the new content of every source file in the session once the first of them is written. A refresh writes many files
+     * in one flush, they cost three statements together instead of three each.
+     */
+    private void store(Object entity, EventSource session) {
+        if (!(entity instanceof SourceFile) || ((SourceFile)entity).getNewContent() == null) {
+            return;
+        }
+        final List<SourceFile> files = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContext().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof SourceFile && ((SourceFile)entry.getKey()).getNewContent() != null) {
+                files.add((SourceFile)entry.getKey());
+            }
+        }
+        if (!files.contains(entity)) {
+            files.add((SourceFile)entity);
+        }
+        final Map<String, FileContent> contents = new TreeMap<>();
+        files.forEach(file -> contents.putIfAbsent(file.getNewContent().getId(), file.getNewContent()));
+
+        final Session contentSession = session.getFactory().openSession();
+        try {
+            final Transaction transaction = contentSession.beginTransaction();
+            try {
+                contentSession.doWork(connection -> storeContents(connection, contents));
+                transaction.commit();
+            } catch (RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+        } finally {
+            contentSession.close();
+        }
+        files.forEach(SourceFile::contentStored);
+    }
+
+    /**
+     * @param connection a connection in a transaction of its own, committed right after
+     * @param contents   content by id
+     */
+    private void storeContents(Connection connection, Map<String, FileContent> contents) throws SQLException {
+        final Array ids = connection.createArrayOf("text", contents.keySet().toArray());
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_CONTENT)) {
+            statement.setArray(1, ids);
+            statement.executeQuery().close();
+            statements.inc();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(MARK_STORED)) {
+            statement.setArray(1, ids);
+            statement.executeUpdate();
+            statements.inc();
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_IF_MISSING)) {
+            for (FileContent content : contents.values()) {
+                statement.setString(1, content.getId());
+                if (content.isCompressed()) {
+                    statement.setNull(2, Types.VARCHAR);
+                    statement.setBytes(3, content.getCompressedContent());
+                } else {
+                    statement.setString(2, content.getContent());
+                    statement.setNull(3, Types.BINARY);
+                }
+                statement.setString(4, content.getId());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            statements.inc();
+        }
+    }
+}
@@ -16,6 +16,11 @@
 
 package io.dockstore.webservice.jdbi;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
 import io.dockstore.webservice.core.SourceFile;
 import io.dropwizard.hibernate.AbstractDAO;
 import org.hibernate.SessionFactory;
@@ -24,6 +29,9 @@ import org.hibernate.SessionFactory;
  * @author xliu
  */
 public class FileDAO extends AbstractDAO<SourceFile> {
+    private static final String OLD_ORPHAN = "f.created < now() - ? * interval '1 hour' "
+            + "AND NOT EXISTS (SELECT 1 FROM sourcefile s WHERE s.contentid = f.id)";
+
     public FileDAO(SessionFactory sessionFactory) {
         super(sessionFactory);
     }
@@ -35,4 +43,43 @@ public class FileDAO extends AbstractDAO<SourceFile> {
     public long create(SourceFile file) {
         return persist(file).getId();
     }
+
+    /**
+     * Delete stored content that no source file refers to any more, for example after a version was refreshed with other files.
+     * {@link FileContentListener} stores content before the files that refer to it are committed, so content stored within the
+     * grace period is kept. The content is locked the same way the listener locks it, so that the two do not deadlock.
+     *
+     * @param maxRows    the most rows to delete
+     * @param graceHours how long content is kept after it was last stored, longer than a transaction that writes files takes
+     * @return the number of rows deleted
+     */
+    public int deleteOrphanedContent(int maxRows, int graceHours) {
+        return currentSession().doReturningWork(connection -> {
+            List<String> ids = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT f.id FROM filecontent f WHERE " + OLD_ORPHAN
+                    + " ORDER BY f.id LIMIT ?")) {
+                statement.setInt(1, graceHours);
+                statement.setInt(2, maxRows);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getString(1));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(FileContentListener.LOCK_CONTENT)) {
+                statement.setArray(1, connection.createArrayOf("text", ids.toArray()));
+                statement.executeQuery().close();
+            }
+            // content stored again since it was selected is newer now
+            try (PreparedStatement statement = connection
+                    .prepareStatement("DELETE FROM filecontent f WHERE f.id = ANY(?) AND " + OLD_ORPHAN)) {
+                statement.setArray(1, connection.createArrayOf("text", ids.toArray()));
+                statement.setInt(2, graceHours);
+                return statement.executeUpdate();
+            }
+        });
+    }
 }
@@ -34,7 +34,8 @@ public class LabelDAO extends AbstractDAO<Label> {
     }
 
     public Label findByLabelValue(String labelValue) {
-        return uniqueResult(namedQuery("io.dockstore.webservice.core.Label.findByLabelValue").setParameter("labelValue", labelValue));
+        return uniqueResult(namedQuery("io.dockstore.webservice.core.Label.findByLabelValue").setParameter("labelValue", labelValue)
+                .setCacheable(true));
     }
 
     public long create(Label label) {
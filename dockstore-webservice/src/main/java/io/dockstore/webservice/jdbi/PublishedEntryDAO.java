@@ -0,0 +1,185 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.dockstore.common.Registry;
+import io.dockstore.webservice.core.Entry;
+import io.dropwizard.hibernate.AbstractDAO;
+import org.hibernate.Query;
+import org.hibernate.SessionFactory;
+
+/**
+ * Lists published tools and workflows page by page, filtered and sorted by the database, for the GA4GH tools endpoint.
+ * Entries are ordered by git url and then id so that pages are stable.
+ *
+ * @author agent
+ */
+public class PublishedEntryDAO extends AbstractDAO<Entry> {
+    // entries without a git url sort first, a null would not compare with anything in the cursor condition
+    private static final String ORDER_BY = " ORDER BY coalesce(c.gitUrl, ''), c.id";
+
+    public PublishedEntryDAO(SessionFactory factory) {
+        super(factory);
+    }
+
+    /**
+     * @param filter      restricts which published entries are listed
+     * @param firstResult index of the first entry to return
+     * @param maxResults  largest number of entries to return
+     * @return one page of published entries, tools and workflows mixed
+     */
+    public List<Entry> findPublished(Filter filter, int firstResult, int maxResults) {
+        Query query = buildQuery("SELECT c", filter, false, ORDER_BY);
+        query.setFirstResult(firstResult);
+        query.setMaxResults(maxResults);
+        return list(query);
+    }
+
+    /**
+     * Keyset pagination, which costs the same however deep the page is and does not skip or repeat entries when others are
+     * published in the meantime
+     *
+     * @param filter     restricts which published entries are listed
+     * @param gitUrl     git url of the last entry of the previous page, empty if it has none
+     * @param id         id of the last entry of the previous page
+     * @param maxResults largest number of entries to return
+     * @return published entries that come after the given one
+     */
+    public List<Entry> findPublishedAfter(Filter filter, String gitUrl, long id, int maxResults) {
+        Query query = buildQuery("SELECT c", filter, true, ORDER_BY);
+        query.setParameter("gitUrl", gitUrl);
+        query.setParameter("id", id);
+        query.setMaxResults(maxResults);
+        return list(query);
+    }
+
+    /**
+     * @param filter restricts which published entries are counted
+     * @return number of published entries that the filter matches
+     */
+    public long countPublished(Filter filter) {
+        return (Long)buildQuery("SELECT count(c)", filter, false, "").uniqueResult();
+    }
+
+    private Query buildQuery(String select, Filter filter, boolean afterCursor, String orderBy) {
+        // tool specific filters leave out workflows, otherwise both tables are listed as one
+        StringBuilder hql = new StringBuilder(select).append(filter.isToolsOnly() ? " FROM Tool c" : " FROM Entry c")
+                .append(" WHERE c.isPublished = true");
+        Map<String, Object> parameters = new HashMap<>();
+        if (filter.registryId != null) {
+            // the registry id contains the tool path, which is the path followed by the tool name if there is one
+            hql.append(" AND locate(concat(c.path, CASE WHEN coalesce(c.toolname, '') = '' THEN '' ELSE concat('/', c.toolname) END),"
+                    + " :registryId) > 0");
+            parameters.put("registryId", filter.registryId);
+        }
+        // a filter does not rule out entries that do not have that field
+        if (filter.registries != null) {
+            hql.append(filter.registries.isEmpty() ? " AND c.registry IS NULL"
+                    : " AND (c.registry IS NULL OR c.registry IN (:registries))");
+        }
+        contains(hql, parameters, "namespace", "organization", filter.organization);
+        contains(hql, parameters, "name", "name", filter.name);
+        contains(hql, parameters, "toolname", "toolname", filter.toolname);
+        contains(hql, parameters, "description", "description", filter.description);
+        contains(hql, parameters, "author", "author", filter.author);
+        if (afterCursor) {
+            // matches the coalesce(giturl, ''), id index of each table
+            hql.append(" AND (coalesce(c.gitUrl, ''), c.id) > (:gitUrl, :id)");
+        }
+        hql.append(orderBy);
+
+        Query query = query(hql.toString());
+        parameters.forEach(query::setParameter);
+        if (filter.registries != null && !filter.registries.isEmpty()) {
+            query.setParameterList("registries", filter.registries);
+        }
+        return query;
+    }
+
+    private static void contains(StringBuilder hql, Map<String, Object> parameters, String property, String parameter, String value) {
+        if (value != null) {
+            hql.append(" AND (c.").append(property).append(" IS NULL OR locate(:").append(parameter).append(", c.").append(property)
+                    .append(") > 0)");
+            parameters.put(parameter, value);
+        }
+    }
+
+    /**
+     * Criteria for published entries, every criterion is a case-sensitive substring match
+     */
+    public static class Filter {
+        private String registryId;
+        private Set<Registry> registries;
+        private String organization;
+        private String name;
+        private String toolname;
+        private String description;
+        private String author;
+
+        /**
+         * @param registryId only tools whose tool path is part of this id
+         * @return this filter
+         */
+        public Filter registryId(String registryId) {
+            this.registryId = registryId;
+            return this;
+        }
+
+        /**
+         * @param registries only tools from these registries or without a registry, null for any registry
+         * @return this filter
+         */
+        public Filter registries(Set<Registry> registries) {
+            this.registries = registries;
+            return this;
+        }
+
+        public Filter organization(String organization) {
+            this.organization = organization;
+            return this;
+        }
+
+        public Filter name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Filter toolname(String toolname) {
+            this.toolname = toolname;
+            return this;
+        }
+
+        public Filter description(String description) {
+            this.description = description;
+            return this;
+        }
+
+        public Filter author(String author) {
+            this.author = author;
+            return this;
+        }
+
+        boolean isToolsOnly() {
+            return registryId != null || registries != null || organization != null || name != null || toolname != null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.jdbi;
+
+import java.util.Date;
+import java.util.List;
+
+import io.dockstore.webservice.core.RefreshJob;
+import io.dropwizard.hibernate.AbstractDAO;
+import org.hibernate.LockOptions;
+import org.hibernate.SessionFactory;
+
+/**
+ * @author agent
+ */
+public class RefreshJobDAO extends AbstractDAO<RefreshJob> {
+    public RefreshJobDAO(SessionFactory factory) {
+        super(factory);
+    }
+
+    public RefreshJob findById(Long id) {
+        return get(id);
+    }
+
+    /**
+     * Load a job and lock its row until the transaction ends, so that no other web service can take it over meanwhile
+     *
+     * @param id the job
+     * @return the job, null if there is none
+     */
+    public RefreshJob findByIdForUpdate(Long id) {
+        return currentSession().get(RefreshJob.class, id, LockOptions.UPGRADE);
+    }
+
+    public long create(RefreshJob job) {
+        return persist(job).getId();
+    }
+
+    public List<RefreshJob> findByUserId(long userId) {
+        return list(namedQuery("io.dockstore.webservice.core.RefreshJob.findByUserId").setParameter("userId", userId));
+    }
+
+    /**
+     * @param userId user being refreshed, null for a job refreshing every user
+     * @param type   tools or workflows
+     * @return the queued or running job for this user and type, if any
+     */
+    public RefreshJob findActive(Long userId, RefreshJob.Type type) {
+        List<RefreshJob> jobs;
+        if (userId == null) {
+            jobs = list(namedQuery("io.dockstore.webservice.core.RefreshJob.findActiveForAllUsersByType").setParameter("type", type));
+        } else {
+            jobs = list(namedQuery("io.dockstore.webservice.core.RefreshJob.findActiveByUserIdAndType").setParameter("userId", userId)
+                    .setParameter("type", type));
+        }
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * @param expiredBefore leases renewed before this have expired
+     * @return ids of the queued or running jobs that no web service holds a lease on, oldest first
+     */
+    public List<Long> findUnclaimed(Date expiredBefore) {
+        return namedQuery("io.dockstore.webservice.core.RefreshJob.findUnclaimed").setParameter("expiredBefore", expiredBefore).list();
+    }
+
+    /**
+     * Take a job over and queue it again. Only one web service can succeed, even if several try at once.
+     *
+     * @param id            the job to take over
+     * @param owner         the web service taking the job
+     * @param now           start of the new lease
+     * @param expiredBefore leases renewed before this have expired
+     * @return true if the job is now held by owner
+     */
+    public boolean claim(long id, String owner, Date now, Date expiredBefore) {
+        return namedQuery("io.dockstore.webservice.core.RefreshJob.claim").setParameter("id", id).setParameter("owner", owner)
+                .setParameter("now", now).setParameter("expiredBefore", expiredBefore).executeUpdate() == 1;
+    }
+
+    /**
+     * @param owner a web service
+     * @param now   start of the renewed leases
+     * @return number of unfinished jobs held by owner
+     */
+    public int renewLeases(String owner, Date now) {
+        return namedQuery("io.dockstore.webservice.core.RefreshJob.renewLeases").setParameter("owner", owner).setParameter("now", now)
+                .executeUpdate();
+    }
+}
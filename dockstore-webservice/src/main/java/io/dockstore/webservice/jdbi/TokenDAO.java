@@ -80,8 +80,4 @@ public class TokenDAO extends AbstractDAO<Token> {
     public List<Token> findBySource(String source) {
         return list(namedQuery("io.dockstore.webservice.core.Token.findBySource").setParameter("source", source));
     }
-
-    public Token findByContent(String content) {
-        return uniqueResult(namedQuery("io.dockstore.webservice.core.Token.findByContent").setParameter("content", content));
-    }
 }
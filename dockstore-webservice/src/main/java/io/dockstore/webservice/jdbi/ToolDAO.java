@@ -44,11 +44,11 @@ public class ToolDAO extends EntryDAO<Tool> {
     }
 
     public List<Tool> findPublishedByPath(String path) {
-        return list(namedQuery("io.dockstore.webservice.core.Tool.findPublishedByPath").setParameter("path", path));
+        return list(namedQuery("io.dockstore.webservice.core.Tool.findPublishedByPath").setParameter("path", path).setCacheable(true));
     }
 
     public Tool findPublishedByToolPath(String path, String tool) {
         return uniqueResult(namedQuery("io.dockstore.webservice.core.Tool.findPublishedByToolPath").setParameter("path", path)
-                .setParameter("toolname", tool));
+                .setParameter("toolname", tool).setCacheable(true));
     }
 }
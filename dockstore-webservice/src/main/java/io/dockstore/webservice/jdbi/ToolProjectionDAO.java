@@ -0,0 +1,67 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import io.dockstore.webservice.core.ToolProjection;
+import io.dropwizard.hibernate.AbstractDAO;
+import org.hibernate.SessionFactory;
+
+/**
+ * @author agent
+ */
+public class ToolProjectionDAO extends AbstractDAO<ToolProjection> {
+    public ToolProjectionDAO(SessionFactory factory) {
+        super(factory);
+    }
+
+    public ToolProjection findByEntryId(long entryId) {
+        return get(entryId);
+    }
+
+    public List<ToolProjection> findByEntryIds(Collection<Long> entryIds) {
+        if (entryIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return list(namedQuery("io.dockstore.webservice.core.ToolProjection.findByEntryIds").setParameterList("entryIds", entryIds));
+    }
+
+    /**
+     * Create or replace the projection of an entry
+     *
+     * @param entryId the tool or workflow
+     * @param json    its GA4GH representation
+     */
+    public void save(long entryId, String json) {
+        ToolProjection projection = get(entryId);
+        if (projection == null) {
+            persist(new ToolProjection(entryId, json));
+        } else {
+            projection.setJson(json);
+        }
+    }
+
+    public void delete(long entryId) {
+        ToolProjection projection = get(entryId);
+        if (projection != null) {
+            currentSession().delete(projection);
+        }
+    }
+}
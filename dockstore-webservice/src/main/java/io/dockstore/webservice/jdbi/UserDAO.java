@@ -18,6 +18,7 @@ package io.dockstore.webservice.jdbi;
 
 import java.util.List;
 
+import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.User;
 import io.dropwizard.hibernate.AbstractDAO;
 import org.hibernate.Query;
@@ -52,4 +53,15 @@ public class UserDAO extends AbstractDAO<User> {
         Query query = namedQuery("io.dockstore.webservice.core.User.findByUsername").setParameter("username", username);
         return (User)query.uniqueResult();
     }
+
+    /**
+     * Find the owner of a dockstore token with one lookup in the unique index on token hashes
+     *
+     * @param contentHash hash of the token, see {@link Token#hash(String)}
+     * @return the user, or null if there is no such dockstore token
+     */
+    public User findByDockstoreTokenHash(String contentHash) {
+        return uniqueResult(
+                namedQuery("io.dockstore.webservice.core.User.findByDockstoreTokenHash").setParameter("contentHash", contentHash));
+    }
 }
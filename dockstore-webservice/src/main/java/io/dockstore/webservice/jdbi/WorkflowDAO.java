@@ -34,7 +34,8 @@ public class WorkflowDAO extends EntryDAO<Workflow> {
     }
 
     public Workflow findPublishedByPath(String path) {
-        return uniqueResult(namedQuery("io.dockstore.webservice.core.Workflow.findPublishedByPath").setParameter("path", path));
+        return uniqueResult(
+                namedQuery("io.dockstore.webservice.core.Workflow.findPublishedByPath").setParameter("path", path).setCacheable(true));
     }
 
     public List<Workflow> findByGitUrl(String giturl) {
@@ -25,6 +25,7 @@ import java.util.Set;
 
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -43,6 +44,7 @@ import com.google.common.base.Optional;
 import com.google.gson.Gson;
 import io.dockstore.common.Registry;
 import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.api.EntrySummary;
 import io.dockstore.webservice.api.PublishRequest;
 import io.dockstore.webservice.api.StarRequest;
 import io.dockstore.webservice.core.Label;
@@ -56,7 +58,11 @@ import io.dockstore.webservice.core.ToolMode;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.helpers.EntryLabelHelper;
 import io.dockstore.webservice.helpers.EntryVersionHelper;
+import io.dockstore.webservice.helpers.FetchPlan;
 import io.dockstore.webservice.helpers.Helper;
+import io.dockstore.webservice.helpers.RefreshExecutor;
+import io.dockstore.webservice.helpers.ToolProjectionService;
+import io.dockstore.webservice.helpers.UserTokens;
 import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.LabelDAO;
 import io.dockstore.webservice.jdbi.TagDAO;
@@ -100,11 +106,16 @@ public class DockerRepoResource {
     private final String bitbucketClientSecret;
     private final EntryVersionHelper<Tool> entryVersionHelper;
     private final ObjectMapper objectMapper;
+    private final RefreshExecutor refreshExecutor;
+    private final ToolProjectionService toolProjectionService;
 
     @SuppressWarnings("checkstyle:parameternumber")
     public DockerRepoResource(ObjectMapper mapper, HttpClient client, UserDAO userDAO, TokenDAO tokenDAO, ToolDAO toolDAO, TagDAO tagDAO,
-            LabelDAO labelDAO, FileDAO fileDAO, String bitbucketClientID, String bitbucketClientSecret) {
+            LabelDAO labelDAO, FileDAO fileDAO, String bitbucketClientID, String bitbucketClientSecret, RefreshExecutor refreshExecutor,
+            ToolProjectionService toolProjectionService) {
         objectMapper = mapper;
+        this.refreshExecutor = refreshExecutor;
+        this.toolProjectionService = toolProjectionService;
         this.userDAO = userDAO;
         this.tokenDAO = tokenDAO;
         this.tagDAO = tagDAO;
@@ -135,18 +146,33 @@ public class DockerRepoResource {
 
         tools = toolDAO.findAll();
 
-        return tools;
+        return FetchPlan.VERSIONS.apply(tools);
     }
 
-    List<Tool> refreshToolsForUser(Long userId) {
-        List<Token> tokens = tokenDAO.findBitbucketByUserId(userId);
+    /**
+     * Refresh all tools owned by a user, also used by background refresh jobs
+     *
+     * @param userId the user to refresh
+     * @return the user's tools after the refresh
+     */
+    public List<Tool> refreshToolsForUser(Long userId) {
+        return refreshToolsForUser(userId, UserTokens.load(tokenDAO, userId));
+    }
 
-        if (!tokens.isEmpty()) {
-            Token bitbucketToken = tokens.get(0);
-            Helper.refreshBitbucketToken(bitbucketToken, client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
-        }
+    /**
+     * Refresh all tools owned by a user
+     *
+     * @param userId the user to refresh
+     * @param tokens the user's tokens, already loaded by the caller
+     * @return the user's tools after the refresh
+     */
+    public List<Tool> refreshToolsForUser(Long userId, UserTokens tokens) {
+        tokens.refreshBitbucketTokenIfNeeded(client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
 
-        return Helper.refresh(userId, client, objectMapper, userDAO, toolDAO, tokenDAO, tagDAO, fileDAO);
+        List<Tool> tools = Helper.refresh(userId, client, objectMapper, userDAO, toolDAO, tokens, tagDAO, fileDAO, refreshExecutor);
+        // keep what the GA4GH endpoints serve in step with the refreshed tags and files
+        tools.stream().filter(Tool::getIsPublished).forEach(toolProjectionService::update);
+        return FetchPlan.VERSIONS.apply(tools);
     }
 
     @GET
@@ -160,17 +186,16 @@ public class DockerRepoResource {
         Helper.checkEntry(c);
         Helper.checkUser(user, c);
 
+        UserTokens tokens = UserTokens.load(tokenDAO, user.getId());
+
         // Update user data
-        Helper.updateUserHelper(user, userDAO, tokenDAO);
+        Helper.updateUserHelper(user, userDAO, tokens);
 
-        List<Token> tokens = tokenDAO.findBitbucketByUserId(user.getId());
+        tokens.refreshBitbucketTokenIfNeeded(client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
 
-        if (!tokens.isEmpty()) {
-            Token bitbucketToken = tokens.get(0);
-            Helper.refreshBitbucketToken(bitbucketToken, client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
-        }
-
-        return Helper.refreshContainer(containerId, user.getId(), client, objectMapper, userDAO, toolDAO, tokenDAO, tagDAO, fileDAO);
+        Tool tool = Helper.refreshContainer(containerId, user.getId(), client, objectMapper, userDAO, toolDAO, tokens, tagDAO, fileDAO);
+        toolProjectionService.update(tool);
+        return FetchPlan.FULL.apply(tool);
 
     }
 
@@ -180,7 +205,7 @@ public class DockerRepoResource {
     @RolesAllowed("admin")
     @ApiOperation(value = "List all docker containers cached in database", notes = "List docker container repos currently known. Admin Only", response = Tool.class, responseContainer = "List")
     public List<Tool> allContainers(@ApiParam(hidden = true) @Auth User user) {
-        return toolDAO.findAll();
+        return FetchPlan.VERSIONS.apply(toolDAO.findAll());
     }
 
     @GET
@@ -195,7 +220,7 @@ public class DockerRepoResource {
 
         Helper.checkUser(user, c);
 
-        return c;
+        return FetchPlan.FULL.apply(c);
     }
 
     @PUT
@@ -211,7 +236,7 @@ public class DockerRepoResource {
         Helper.checkEntry(c);
 
         EntryLabelHelper<Tool> labeller = new EntryLabelHelper<>(labelDAO);
-        return labeller.updateLabels(c, labelStrings);
+        return FetchPlan.FULL.apply(labeller.updateLabels(c, labelStrings));
     }
 
     @PUT
@@ -238,8 +263,9 @@ public class DockerRepoResource {
 
         Tool result = toolDAO.findById(containerId);
         Helper.checkEntry(result);
+        toolProjectionService.update(result);
 
-        return result;
+        return FetchPlan.FULL.apply(result);
 
     }
 
@@ -267,8 +293,9 @@ public class DockerRepoResource {
                 tag.setDockerfilePath(tool.getDefaultDockerfilePath());
             }
         }
+        toolProjectionService.update(c);
 
-        return c;
+        return FetchPlan.FULL.apply(c);
     }
 
     @GET
@@ -309,8 +336,8 @@ public class DockerRepoResource {
         // create dependent Tags before creating tool
         Set<Tag> createdTags = new HashSet<>();
         for (Tag tag : tool.getTags()) {
-            final long l = tagDAO.create(tag);
-            createdTags.add(tagDAO.findById(l));
+            tagDAO.create(tag);
+            createdTags.add(tag);
         }
         tool.getTags().clear();
         tool.getTags().addAll(createdTags);
@@ -334,16 +361,17 @@ public class DockerRepoResource {
             throw new CustomWebApplicationException("Tool " + tool.getToolPath() + " already exists.", HttpStatus.SC_BAD_REQUEST);
         }
 
+        UserTokens tokens = UserTokens.load(tokenDAO, user.getId());
+
         // Check if tool has tags
-        if (tool.getRegistry() == Registry.QUAY_IO && !Helper
-                .checkQuayContainerForTags(tool, client, objectMapper, tokenDAO, user.getId())) {
+        if (tool.getRegistry() == Registry.QUAY_IO && !Helper.checkQuayContainerForTags(tool, client, objectMapper, tokens)) {
             LOG.info(user.getUsername() + ": tool has no tags.");
             throw new CustomWebApplicationException(
                     "Tool " + tool.getToolPath() + " has no tags. Quay containers must have at least one tag.", HttpStatus.SC_BAD_REQUEST);
         }
 
         // Check if user owns repo, or if user is in the organization which owns the tool
-        if (tool.getRegistry() == Registry.QUAY_IO && !Helper.checkIfUserOwns(tool, client, objectMapper, tokenDAO, user.getId())) {
+        if (tool.getRegistry() == Registry.QUAY_IO && !Helper.checkIfUserOwns(tool, client, objectMapper, tokens)) {
             LOG.info(user.getUsername() + ": User does not own the given Quay Repo.");
             throw new CustomWebApplicationException("User does not own the tool " + tool.getPath()
                     + ". You can only add Quay repositories that you own or are part of the organization", HttpStatus.SC_BAD_REQUEST);
@@ -352,7 +380,7 @@ public class DockerRepoResource {
         long id = toolDAO.create(tool);
 
         // Helper.refreshContainer(id, authToken.getUserId(), client, objectMapper, userDAO, toolDAO, tokenDAO, tagDAO, fileDAO);
-        return toolDAO.findById(id);
+        return FetchPlan.FULL.apply(toolDAO.findById(id));
     }
 
     @DELETE
@@ -427,7 +455,8 @@ public class DockerRepoResource {
 
         long id = toolDAO.create(c);
         c = toolDAO.findById(id);
-        return c;
+        toolProjectionService.update(c);
+        return FetchPlan.FULL.apply(c);
     }
 
     @GET
@@ -438,10 +467,20 @@ public class DockerRepoResource {
             "containers" }, notes = "NO authentication", response = Tool.class, responseContainer = "List")
     public List<Tool> allPublishedContainers() {
         List<Tool> tools = toolDAO.findAllPublished();
-        entryVersionHelper.filterContainersForHiddenTags(tools);
+        entryVersionHelper.filterContainersForHiddenTags(tools, FetchPlan.VERSIONS);
         return tools;
     }
 
+    @GET
+    @Timed
+    @UnitOfWork
+    @Path("published/summaries")
+    @ApiOperation(value = "List summaries of all published containers.", tags = {
+            "containers" }, notes = "NO authentication. Versions are listed by name only and files are left out", response = EntrySummary.class, responseContainer = "List")
+    public List<EntrySummary> allPublishedContainerSummaries() {
+        return toolDAO.findPublishedSummaries();
+    }
+
     @GET
     @Timed
     @UnitOfWork
@@ -450,7 +489,7 @@ public class DockerRepoResource {
     public List<Tool> getPublishedContainerByPath(
             @ApiParam(value = "repository path", required = true) @PathParam("repository") String path) {
         List<Tool> containers = toolDAO.findPublishedByPath(path);
-        entryVersionHelper.filterContainersForHiddenTags(containers);
+        entryVersionHelper.filterContainersForHiddenTags(containers, FetchPlan.VERSIONS);
         Helper.checkEntry(containers);
         return containers;
     }
@@ -468,7 +507,7 @@ public class DockerRepoResource {
 
         Helper.checkUser(user, tool);
 
-        return tool;
+        return FetchPlan.VERSIONS.apply(tool);
     }
 
     @GET
@@ -492,7 +531,7 @@ public class DockerRepoResource {
 
         Helper.checkUser(user, tool);
 
-        return tool;
+        return FetchPlan.FULL.apply(tool);
     }
 
     @GET
@@ -513,7 +552,7 @@ public class DockerRepoResource {
         try {
             Tool tool = toolDAO.findPublishedByToolPath(Joiner.on("/").join(split[0], split[1], split[2]), toolname);
             Helper.checkEntry(tool);
-            return tool;
+            return FetchPlan.FULL.apply(tool);
         } catch (ArrayIndexOutOfBoundsException e) {
             throw new CustomWebApplicationException(path + " not found", HttpStatus.SC_NOT_FOUND);
         }
@@ -588,10 +627,26 @@ public class DockerRepoResource {
     @Timed
     @UnitOfWork
     @Path("/search")
-    @ApiOperation(value = "Search for matching registered containers.", notes = "Search on the name (full path name) and description. NO authentication", response = Tool.class, responseContainer = "List", tags = {
+    @ApiOperation(value = "Search for matching registered containers.", notes = "Search on words that start the words of the name (full path name) and description, best matches first. NO authentication", response = Tool.class, responseContainer = "List", tags = {
+            "containers" })
+    public List<Tool> search(@QueryParam("pattern") String word,
+            @ApiParam(value = "Index of the first match to return") @DefaultValue("0") @QueryParam("offset") int offset,
+            @ApiParam(value = "Number of matches to return, at most 1000") @DefaultValue("100") @QueryParam("limit") int limit) {
+        Helper.checkSearchPage(offset, limit);
+        return FetchPlan.SUMMARY.apply(toolDAO.searchPattern(word, offset, limit));
+    }
+
+    @GET
+    @Timed
+    @UnitOfWork
+    @Path("/search/summaries")
+    @ApiOperation(value = "Search for summaries of matching registered containers.", notes = "Search on words that start the words of the name (full path name) and description, best matches first. NO authentication", response = EntrySummary.class, responseContainer = "List", tags = {
             "containers" })
-    public List<Tool> search(@QueryParam("pattern") String word) {
-        return toolDAO.searchPattern(word);
+    public List<EntrySummary> searchSummaries(@QueryParam("pattern") String word,
+            @ApiParam(value = "Index of the first match to return") @DefaultValue("0") @QueryParam("offset") int offset,
+            @ApiParam(value = "Number of matches to return, at most 1000") @DefaultValue("100") @QueryParam("limit") int limit) {
+        Helper.checkSearchPage(offset, limit);
+        return toolDAO.searchSummaries(word, offset, limit);
     }
 
     @GET
@@ -796,9 +851,8 @@ public class DockerRepoResource {
                 sourceFile.setPath(path);
                 sourceFile.setType(fileType);
 
-                long id = fileDAO.create(sourceFile);
-                SourceFile sourceFileWithId = fileDAO.findById(id);
-                tag.addSourceFile(sourceFileWithId);
+                fileDAO.create(sourceFile);
+                tag.addSourceFile(sourceFile);
             }
         }
 
@@ -878,7 +932,7 @@ public class DockerRepoResource {
     public Set<User> getStarredUsers(@ApiParam(value = "Tool to grab starred users for.", required = true) @PathParam("containerId") Long containerId) {
         Tool tool = toolDAO.findById(containerId);
         Helper.checkEntry(tool);
-        return tool.getStarredUsers();
+        return FetchPlan.SUMMARY.apply(tool).getStarredUsers();
     }
 
 }
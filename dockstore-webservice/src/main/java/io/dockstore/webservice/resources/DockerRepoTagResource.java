@@ -39,7 +39,9 @@ import io.dockstore.webservice.api.VerifyRequest;
 import io.dockstore.webservice.core.Tag;
 import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.helpers.FetchPlan;
 import io.dockstore.webservice.helpers.Helper;
+import io.dockstore.webservice.helpers.ToolProjectionService;
 import io.dockstore.webservice.jdbi.TagDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
 import io.dropwizard.auth.Auth;
@@ -63,9 +65,11 @@ public class DockerRepoTagResource {
 
     private final ToolDAO toolDAO;
     private final TagDAO tagDAO;
+    private final ToolProjectionService toolProjectionService;
 
-    public DockerRepoTagResource(ToolDAO toolDAO, TagDAO tagDAO) {
+    public DockerRepoTagResource(ToolDAO toolDAO, TagDAO tagDAO, ToolProjectionService toolProjectionService) {
         this.tagDAO = tagDAO;
+        this.toolProjectionService = toolProjectionService;
 
         this.toolDAO = toolDAO;
     }
@@ -82,7 +86,7 @@ public class DockerRepoTagResource {
 
         Helper.checkUser(user, c);
 
-        return c.getTags();
+        return FetchPlan.VERSIONS.apply(c).getTags();
     }
 
     @PUT
@@ -124,7 +128,8 @@ public class DockerRepoTagResource {
         }
         Tool result = toolDAO.findById(containerId);
         Helper.checkEntry(result);
-        return result.getTags();
+        toolProjectionService.update(result);
+        return FetchPlan.VERSIONS.apply(result).getTags();
     }
 
     @POST
@@ -142,18 +147,18 @@ public class DockerRepoTagResource {
         Helper.checkUser(user, c);
 
         for (Tag tag : tags) {
-            final long tagId = tagDAO.create(tag);
-            Tag byId = tagDAO.findById(tagId);
+            tagDAO.create(tag);
 
             // Set dirty bit since this is a manual add
-            byId.setDirtyBit(true);
+            tag.setDirtyBit(true);
 
-            c.addTag(byId);
+            c.addTag(tag);
         }
 
         Tool result = toolDAO.findById(containerId);
         Helper.checkEntry(result);
-        return result.getTags();
+        toolProjectionService.update(result);
+        return FetchPlan.VERSIONS.apply(result).getTags();
     }
 
     @DELETE
@@ -182,6 +187,7 @@ public class DockerRepoTagResource {
             tag.getSourceFiles().clear();
 
             if (c.getTags().remove(tag)) {
+                toolProjectionService.update(c);
                 return Response.ok().build();
             } else {
                 return Response.serverError().build();
@@ -223,6 +229,7 @@ public class DockerRepoTagResource {
 
         Tool result = toolDAO.findById(containerId);
         Helper.checkEntry(result);
-        return result.getTags();
+        toolProjectionService.update(result);
+        return FetchPlan.VERSIONS.apply(result).getTags();
     }
 }
@@ -0,0 +1,114 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package io.dockstore.webservice.resources;
+
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+import com.codahale.metrics.annotation.Timed;
+import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.core.RefreshJob;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.helpers.Helper;
+import io.dockstore.webservice.helpers.RefreshJobService;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
+import io.dropwizard.auth.Auth;
+import io.dropwizard.hibernate.UnitOfWork;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
+import org.apache.http.HttpStatus;
+
+/**
+ * Background refreshes of tools and workflows, an alternative to the synchronous refresh endpoints for large accounts.
+ *
+ * @author agent
+ */
+@Path("/refreshJobs")
+@Api("/refreshJobs")
+@Produces(MediaType.APPLICATION_JSON)
+public class RefreshJobResource {
+
+    private final RefreshJobDAO refreshJobDAO;
+    private final RefreshJobService refreshJobService;
+
+    public RefreshJobResource(RefreshJobDAO refreshJobDAO, RefreshJobService refreshJobService) {
+        this.refreshJobDAO = refreshJobDAO;
+        this.refreshJobService = refreshJobService;
+    }
+
+    // not a unit of work, the job has to be committed before a worker picks it up
+    @POST
+    @Timed
+    @ApiOperation(value = "Submit a refresh job", notes = "Refreshes the tools or workflows of a user in the background. "
+            + "Leave out the user to refresh every user, ADMIN ONLY. Returns the already queued or running job if there is one.", response = RefreshJob.class)
+    public RefreshJob submit(@ApiParam(hidden = true) @Auth User authUser,
+            @ApiParam(value = "What to refresh", required = true) @QueryParam("type") RefreshJob.Type type,
+            @ApiParam("User ID, refreshes every user if absent") @QueryParam("userId") Long userId) {
+        if (type == null) {
+            throw new CustomWebApplicationException("A refresh type of TOOLS or WORKFLOWS is required.", HttpStatus.SC_BAD_REQUEST);
+        }
+        if (userId == null) {
+            if (!authUser.getIsAdmin()) {
+                throw new CustomWebApplicationException("Forbidden: only admins can refresh every user.", HttpStatus.SC_FORBIDDEN);
+            }
+        } else {
+            Helper.checkUser(authUser, userId);
+        }
+        return refreshJobService.submit(userId, type);
+    }
+
+    @GET
+    @Timed
+    @UnitOfWork
+    @Path("/{jobId}")
+    @ApiOperation(value = "Get a refresh job", notes = "Reports status, progress, per-user errors and duration", response = RefreshJob.class)
+    public RefreshJob getJob(@ApiParam(hidden = true) @Auth User authUser,
+            @ApiParam(value = "Refresh job ID", required = true) @PathParam("jobId") Long jobId) {
+        RefreshJob job = refreshJobDAO.findById(jobId);
+        if (job == null) {
+            throw new CustomWebApplicationException("Refresh job not found.", HttpStatus.SC_NOT_FOUND);
+        }
+        if (job.getUserId() == null) {
+            if (!authUser.getIsAdmin()) {
+                throw new CustomWebApplicationException("Forbidden: please check your credentials.", HttpStatus.SC_FORBIDDEN);
+            }
+        } else {
+            Helper.checkUser(authUser, job.getUserId());
+        }
+        return job;
+    }
+
+    @GET
+    @Timed
+    @UnitOfWork
+    @ApiOperation(value = "List refresh jobs for a user", notes = "Most recent first", response = RefreshJob.class, responseContainer = "List")
+    public List<RefreshJob> listJobs(@ApiParam(hidden = true) @Auth User authUser,
+            @ApiParam("User ID, defaults to the logged-in user") @QueryParam("userId") Long userId) {
+        long id = userId == null ? authUser.getId() : userId;
+        Helper.checkUser(authUser, id);
+        return refreshJobDAO.findByUserId(id);
+    }
+}
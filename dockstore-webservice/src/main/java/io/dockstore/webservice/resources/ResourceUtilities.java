@@ -22,6 +22,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 
 import com.google.common.base.Optional;
+import io.dockstore.webservice.helpers.ConditionalRequestCache;
+import io.dockstore.webservice.helpers.OutboundRequestScheduler;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
@@ -39,11 +41,31 @@ import org.slf4j.LoggerFactory;
  */
 public final class ResourceUtilities {
     private static final Logger LOG = LoggerFactory.getLogger(ResourceUtilities.class);
+    private static ConditionalRequestCache conditionalRequestCache = null;
+    private static OutboundRequestScheduler requestScheduler = null;
 
     private ResourceUtilities() {
         // hide the constructor for utility classes
     }
 
+    /**
+     * @param cache used to make GET requests conditional, null to always make plain requests
+     */
+    public static void setConditionalRequestCache(ConditionalRequestCache cache) {
+        conditionalRequestCache = cache;
+    }
+
+    /**
+     * @param scheduler paces outbound requests and retries server errors, null to make requests right away
+     */
+    public static void setRequestScheduler(OutboundRequestScheduler scheduler) {
+        requestScheduler = scheduler;
+    }
+
+    public static OutboundRequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
     // from dropwizard example
     public static Optional<String> asString(String input, String token, HttpClient client) {
         return getResponseAsString(buildHttpGet(input, token), client);
@@ -79,16 +101,26 @@ public final class ResourceUtilities {
         return httpPost;
     }
 
-    // Todo: Implement a backoff algorithm for below HTTP calls
     public static Optional<String> getResponseAsString(HttpRequestBase httpRequest, HttpClient client) {
         Optional<String> result = Optional.absent();
         final int waitTime = 60000;
         try {
-            ResponseHandler<String> responseHandler = new BasicResponseHandler();
             RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(waitTime).setConnectTimeout(waitTime)
                     .setConnectionRequestTimeout(waitTime).build();
             httpRequest.setConfig(requestConfig);
-            result = Optional.of(client.execute(httpRequest, responseHandler));
+            final ConditionalRequestCache cache = conditionalRequestCache;
+            final ResponseHandler<String> responseHandler;
+            if (cache != null && HttpGet.METHOD_NAME.equals(httpRequest.getMethod()) && cache.isEnabled(httpRequest.getURI())) {
+                responseHandler = cache.prepare(httpRequest);
+            } else {
+                responseHandler = new BasicResponseHandler();
+            }
+            final OutboundRequestScheduler scheduler = requestScheduler;
+            if (scheduler != null) {
+                result = Optional.of(scheduler.execute(client, httpRequest, responseHandler));
+            } else {
+                result = Optional.of(client.execute(httpRequest, responseHandler));
+            }
         } catch (HttpResponseException httpResponseException) {
             LOG.error("getResponseAsString(): caught 'HttpResponseException' while processing request <{}> :=> <{}>", httpRequest,
                     httpResponseException.getMessage());
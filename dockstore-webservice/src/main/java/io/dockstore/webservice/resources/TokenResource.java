@@ -19,10 +19,12 @@ package io.dockstore.webservice.resources;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.DELETE;
@@ -398,11 +400,13 @@ public class TokenResource {
 
         String accessToken;
         String refreshToken;
+        Long expiresIn;
         try {
             TokenResponse tokenResponse = flow.newTokenRequest(code).setScopes(Collections.singletonList("user:email"))
                     .setRequestInitializer(request -> request.getHeaders().setAccept("application/json")).execute();
             accessToken = tokenResponse.getAccessToken();
             refreshToken = tokenResponse.getRefreshToken();
+            expiresIn = tokenResponse.getExpiresInSeconds();
         } catch (IOException e) {
             LOG.error("Retrieving accessToken was unsuccessful");
             throw new CustomWebApplicationException("Could not retrieve bitbucket.org token based on code", HttpStatus.SC_BAD_REQUEST);
@@ -420,6 +424,9 @@ public class TokenResource {
                 token.setTokenSource(TokenType.BITBUCKET_ORG.toString());
                 token.setContent(accessToken);
                 token.setRefreshToken(refreshToken);
+                if (expiresIn != null) {
+                    token.setExpiry(new Date(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expiresIn)));
+                }
                 token.setUserId(user.getId());
                 if (username != null) {
                     token.setUsername(username);
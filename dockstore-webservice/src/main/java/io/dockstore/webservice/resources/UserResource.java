@@ -37,16 +37,21 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.api.EntrySummary;
 import io.dockstore.webservice.core.Entry;
 import io.dockstore.webservice.core.Group;
 import io.dockstore.webservice.core.Token;
 import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.User;
 import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.helpers.FetchPlan;
 import io.dockstore.webservice.helpers.Helper;
+import io.dockstore.webservice.helpers.UserTokens;
 import io.dockstore.webservice.jdbi.GroupDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
+import io.dockstore.webservice.jdbi.ToolDAO;
 import io.dockstore.webservice.jdbi.UserDAO;
+import io.dockstore.webservice.jdbi.WorkflowDAO;
 import io.dropwizard.auth.Auth;
 import io.dropwizard.hibernate.UnitOfWork;
 import io.swagger.annotations.Api;
@@ -56,6 +61,7 @@ import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,16 +80,21 @@ public class UserResource {
     private final UserDAO userDAO;
     private final GroupDAO groupDAO;
     private final TokenDAO tokenDAO;
+    private final ToolDAO toolDAO;
+    private final WorkflowDAO workflowDAO;
 
     private final WorkflowResource workflowResource;
     private final DockerRepoResource dockerRepoResource;
 
-    public UserResource(HttpClient client, TokenDAO tokenDAO, UserDAO userDAO, GroupDAO groupDAO, WorkflowResource workflowResource,
-            DockerRepoResource dockerRepoResource) {
+    @SuppressWarnings("checkstyle:parameternumber")
+    public UserResource(HttpClient client, TokenDAO tokenDAO, UserDAO userDAO, GroupDAO groupDAO, ToolDAO toolDAO, WorkflowDAO workflowDAO,
+            WorkflowResource workflowResource, DockerRepoResource dockerRepoResource) {
         this.client = client;
         this.userDAO = userDAO;
         this.groupDAO = groupDAO;
         this.tokenDAO = tokenDAO;
+        this.toolDAO = toolDAO;
+        this.workflowDAO = workflowDAO;
         this.workflowResource = workflowResource;
         this.dockerRepoResource = dockerRepoResource;
     }
@@ -140,7 +151,7 @@ public class UserResource {
         User user = userDAO.findByUsername(username);
         Helper.checkUser(authUser, user.getId());
 
-        return user;
+        return withStars(user);
     }
 
     @GET
@@ -155,7 +166,7 @@ public class UserResource {
         if (user == null) {
             throw new CustomWebApplicationException("User not found.", HttpStatus.SC_BAD_REQUEST);
         }
-        return user;
+        return withStars(user);
     }
 
     @GET
@@ -164,7 +175,7 @@ public class UserResource {
     @Path("/user")
     @ApiOperation(value = "Get the logged-in user", response = User.class)
     public User getUser(@ApiParam(hidden = true) @Auth User user) {
-        return userDAO.findById(user.getId());
+        return withStars(userDAO.findById(user.getId()));
     }
 
     @GET
@@ -295,7 +306,7 @@ public class UserResource {
             throw new CustomWebApplicationException("Group and/or user not found.", HttpStatus.SC_BAD_REQUEST);
         }
 
-        return user;
+        return withStars(user);
 
     }
 
@@ -319,7 +330,7 @@ public class UserResource {
             LOG.info(user.getUsername() + ": " + "user or group is null");
             throw new CustomWebApplicationException("Group and/or user not found.", HttpStatus.SC_BAD_REQUEST);
         }
-        return user;
+        return withStars(user);
     }
 
     @GET
@@ -344,7 +355,7 @@ public class UserResource {
             }
         }
 
-        return repositories;
+        return FetchPlan.VERSIONS.apply(repositories);
     }
 
     @GET
@@ -369,7 +380,29 @@ public class UserResource {
             }
         }
 
-        return repositories;
+        return FetchPlan.VERSIONS.apply(repositories);
+    }
+
+    @GET
+    @Timed
+    @UnitOfWork
+    @Path("/{userId}/containers/published/summaries")
+    @ApiOperation(value = "List summaries of all published containers from a user", notes = "Versions are listed by name only and files are left out", response = EntrySummary.class, responseContainer = "List")
+    public List<EntrySummary> userPublishedContainerSummaries(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "User ID", required = true) @PathParam("userId") Long userId) {
+        Helper.checkUser(user, userId);
+        return toolDAO.findSummariesByUserId(userId, true);
+    }
+
+    @GET
+    @Timed
+    @UnitOfWork
+    @Path("/{userId}/workflows/published/summaries")
+    @ApiOperation(value = "List summaries of all published workflows from a user", notes = "Versions are listed by name only and files are left out", response = EntrySummary.class, responseContainer = "List")
+    public List<EntrySummary> userPublishedWorkflowSummaries(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "User ID", required = true) @PathParam("userId") Long userId) {
+        Helper.checkUser(user, userId);
+        return workflowDAO.findSummariesByUserId(userId, true);
     }
 
     @GET
@@ -383,9 +416,11 @@ public class UserResource {
         Helper.checkUser(authUser, userId);
 
         // Update user data
-        Helper.updateUserHelper(authUser, userDAO, tokenDAO);
+        UserTokens tokens = UserTokens.load(tokenDAO, authUser.getId());
+        Helper.updateUserHelper(authUser, userDAO, tokens);
 
-        return dockerRepoResource.refreshToolsForUser(userId);
+        // admins may refresh the tools of other users, with their tokens
+        return dockerRepoResource.refreshToolsForUser(userId, userId == authUser.getId() ? tokens : UserTokens.load(tokenDAO, userId));
     }
 
     @GET
@@ -399,14 +434,15 @@ public class UserResource {
         Helper.checkUser(authUser, userId);
 
         // Update user data
-        Helper.updateUserHelper(authUser, userDAO, tokenDAO);
+        UserTokens tokens = UserTokens.load(tokenDAO, authUser.getId());
+        Helper.updateUserHelper(authUser, userDAO, tokens);
 
         // Refresh all workflows, including full workflows
-        workflowResource.refreshStubWorkflowsForUser(authUser);
+        workflowResource.refreshStubWorkflowsForUser(authUser, tokens);
 
         // Refresh the user
         authUser = userDAO.findById(authUser.getId());
-        return FluentIterable.from(authUser.getEntries()).filter(Workflow.class).toList();
+        return FetchPlan.VERSIONS.apply(FluentIterable.from(authUser.getEntries()).filter(Workflow.class).toList());
     }
 
     @GET
@@ -419,7 +455,7 @@ public class UserResource {
         Helper.checkUser(user, userId);
         // need to avoid lazy initialize error
         final User byId = this.userDAO.findById(userId);
-        return FluentIterable.from(byId.getEntries()).filter(Workflow.class).toList();
+        return FetchPlan.VERSIONS.apply(FluentIterable.from(byId.getEntries()).filter(Workflow.class).toList());
     }
 
     @GET
@@ -432,10 +468,32 @@ public class UserResource {
         Helper.checkUser(user, userId);
         // need to avoid lazy initialize error
         final User byId = this.userDAO.findById(userId);
-        return FluentIterable.from(byId.getEntries()).filter(Tool.class).toList();
+        return FetchPlan.VERSIONS.apply(FluentIterable.from(byId.getEntries()).filter(Tool.class).toList());
     }
 
 
+    @GET
+    @Path("/{userId}/workflows/summaries")
+    @Timed
+    @UnitOfWork
+    @ApiOperation(value = "List summaries of workflows owned by the logged-in user", notes = "Versions are listed by name only and files are left out", response = EntrySummary.class, responseContainer = "List")
+    public List<EntrySummary> userWorkflowSummaries(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "User ID", required = true) @PathParam("userId") Long userId) {
+        Helper.checkUser(user, userId);
+        return workflowDAO.findSummariesByUserId(userId, false);
+    }
+
+    @GET
+    @Path("/{userId}/containers/summaries")
+    @Timed
+    @UnitOfWork
+    @ApiOperation(value = "List summaries of repos owned by the logged-in user", notes = "Versions are listed by name only and files are left out", response = EntrySummary.class, responseContainer = "List")
+    public List<EntrySummary> userContainerSummaries(@ApiParam(hidden = true) @Auth User user,
+            @ApiParam(value = "User ID", required = true) @PathParam("userId") Long userId) {
+        Helper.checkUser(user, userId);
+        return toolDAO.findSummariesByUserId(userId, false);
+    }
+
     @GET
     @Timed
     @UnitOfWork
@@ -443,7 +501,7 @@ public class UserResource {
     @ApiOperation(value = "Get the logged-in user's starred tools", response = Entry.class, responseContainer = "List")
     public Set<Entry> getStarredTools(@ApiParam(hidden = true) @Auth User user) {
         User u = userDAO.findById(user.getId());
-        return u.getStarredEntries().stream().filter(element -> element instanceof Tool).collect(Collectors.toSet());
+        return FetchPlan.SUMMARY.apply(u.getStarredEntries().stream().filter(element -> element instanceof Tool).collect(Collectors.toSet()));
     }
 
     @GET
@@ -453,7 +511,7 @@ public class UserResource {
     @ApiOperation(value = "Get the logged-in user's starred workflows", response = Entry.class, responseContainer = "List")
     public Set<Entry> getStarredWorkflows(@ApiParam(hidden = true) @Auth User user) {
         User u = userDAO.findById(user.getId());
-        return u.getStarredEntries().stream().filter(element -> element instanceof Workflow).collect(Collectors.toSet());
+        return FetchPlan.SUMMARY.apply(u.getStarredEntries().stream().filter(element -> element instanceof Workflow).collect(Collectors.toSet()));
     }
 
     @GET
@@ -478,6 +536,17 @@ public class UserResource {
     @ApiOperation(value = "Update metadata for logged in user", notes = "Update metadata for logged in user.", response = User.class)
     public User updateLoggedInUserMetadata(@ApiParam(hidden = true) @Auth User user) {
         Helper.updateUserHelper(user, userDAO, tokenDAO);
-        return userDAO.findById(user.getId());
+        return withStars(userDAO.findById(user.getId()));
+    }
+
+    /**
+     * Users are usually returned with the ids of the entries they starred, which are loaded lazily
+     *
+     * @param user a user attached to the current session
+     * @return the same user
+     */
+    private static User withStars(User user) {
+        Hibernate.initialize(user.getStarredEntries());
+        return user;
     }
 }
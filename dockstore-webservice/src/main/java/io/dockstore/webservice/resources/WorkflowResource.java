@@ -16,9 +16,6 @@
 
 package io.dockstore.webservice.resources;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,6 +26,7 @@ import java.util.SortedSet;
 
 import javax.annotation.security.RolesAllowed;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
@@ -42,8 +40,8 @@ import javax.ws.rs.core.MediaType;
 import com.codahale.metrics.annotation.Timed;
 import com.google.common.base.Optional;
 import com.google.common.base.Strings;
-import com.google.common.io.Files;
 import io.dockstore.webservice.CustomWebApplicationException;
+import io.dockstore.webservice.api.EntrySummary;
 import io.dockstore.webservice.api.PublishRequest;
 import io.dockstore.webservice.api.VerifyRequest;
 import io.dockstore.webservice.api.StarRequest;
@@ -58,13 +56,17 @@ import io.dockstore.webservice.core.WorkflowMode;
 import io.dockstore.webservice.core.WorkflowVersion;
 import io.dockstore.webservice.helpers.BitBucketSourceCodeRepo;
 import io.dockstore.webservice.helpers.DAGHelper;
+import io.dockstore.webservice.helpers.DescriptorResultCache;
 import io.dockstore.webservice.helpers.EntryLabelHelper;
 import io.dockstore.webservice.helpers.EntryVersionHelper;
+import io.dockstore.webservice.helpers.FetchPlan;
 import io.dockstore.webservice.helpers.GitHubSourceCodeRepo;
 import io.dockstore.webservice.helpers.GitLabSourceCodeRepo;
 import io.dockstore.webservice.helpers.Helper;
 import io.dockstore.webservice.helpers.SourceCodeRepoFactory;
 import io.dockstore.webservice.helpers.SourceCodeRepoInterface;
+import io.dockstore.webservice.helpers.ToolProjectionService;
+import io.dockstore.webservice.helpers.UserTokens;
 import io.dockstore.webservice.jdbi.FileDAO;
 import io.dockstore.webservice.jdbi.LabelDAO;
 import io.dockstore.webservice.jdbi.TokenDAO;
@@ -107,6 +109,8 @@ public class WorkflowResource {
     private final String bitbucketClientID;
     private final String bitbucketClientSecret;
     private final EntryVersionHelper<Workflow> entryVersionHelper;
+    private final DescriptorResultCache descriptorResultCache;
+    private final ToolProjectionService toolProjectionService;
 
     public enum Type {
         DAG, TOOLS
@@ -115,7 +119,7 @@ public class WorkflowResource {
     @SuppressWarnings("checkstyle:parameternumber")
     public WorkflowResource(HttpClient client, UserDAO userDAO, TokenDAO tokenDAO, ToolDAO toolDAO, WorkflowDAO workflowDAO,
             WorkflowVersionDAO workflowVersionDAO, LabelDAO labelDAO, FileDAO fileDAO, String bitbucketClientID,
-            String bitbucketClientSecret) {
+            String bitbucketClientSecret, DescriptorResultCache descriptorResultCache, ToolProjectionService toolProjectionService) {
         this.userDAO = userDAO;
         this.tokenDAO = tokenDAO;
         this.workflowVersionDAO = workflowVersionDAO;
@@ -129,6 +133,8 @@ public class WorkflowResource {
 
         this.workflowDAO = workflowDAO;
         entryVersionHelper = new EntryVersionHelper<>(workflowDAO);
+        this.descriptorResultCache = descriptorResultCache;
+        this.toolProjectionService = toolProjectionService;
     }
 
     @GET
@@ -140,7 +146,7 @@ public class WorkflowResource {
     public List<Workflow> refreshAll(@ApiParam(hidden = true) @Auth User authUser) {
         List<User> users = userDAO.findAll();
         users.forEach(this::refreshStubWorkflowsForUser);
-        return workflowDAO.findAll();
+        return FetchPlan.VERSIONS.apply(workflowDAO.findAll());
     }
 
     @GET
@@ -183,7 +189,7 @@ public class WorkflowResource {
         long id = workflowDAO.create(newWorkflow);
         newWorkflow.addUser(user);
         newWorkflow = workflowDAO.findById(id);
-        return newWorkflow;
+        return FetchPlan.FULL.apply(newWorkflow);
 
     }
 
@@ -193,13 +199,23 @@ public class WorkflowResource {
      * @param user a user to refresh workflows for
      */
     public void refreshStubWorkflowsForUser(User user) {
+        refreshStubWorkflowsForUser(user, UserTokens.load(tokenDAO, user.getId()));
+    }
+
+    /**
+     * For each valid token for a git hosting service, refresh all workflows
+     *
+     * @param user       a user to refresh workflows for
+     * @param userTokens the user's tokens, already loaded by the caller
+     */
+    public void refreshStubWorkflowsForUser(User user, UserTokens userTokens) {
         try {
-            List<Token> tokens = checkOnBitbucketToken(user);
+            UserTokens tokens = checkOnBitbucketToken(userTokens);
 
             // Check if tokens for git hosting services are valid and refresh corresponding workflows
 
             // Refresh Bitbucket
-            Token bitbucketToken = Helper.extractToken(tokens, TokenType.BITBUCKET_ORG.toString());
+            Token bitbucketToken = tokens.get(TokenType.BITBUCKET_ORG);
 
             // Update bitbucket workflows if token exists
             if (bitbucketToken != null && bitbucketToken.getContent() != null) {
@@ -208,7 +224,7 @@ public class WorkflowResource {
             }
 
             // Refresh Github
-            Token githubToken = Helper.extractToken(tokens, TokenType.GITHUB_COM.toString());
+            Token githubToken = tokens.get(TokenType.GITHUB_COM);
 
             // Update github workflows if token exists
             if (githubToken != null && githubToken.getContent() != null) {
@@ -217,7 +233,7 @@ public class WorkflowResource {
             }
 
             // Refresh Gitlab
-            Token gitlabToken = Helper.extractToken(tokens, TokenType.GITLAB_COM.toString());
+            Token gitlabToken = tokens.get(TokenType.GITLAB_COM);
 
             // Update gitlab workflows if token exists
             if (gitlabToken != null && gitlabToken.getContent() != null) {
@@ -238,6 +254,9 @@ public class WorkflowResource {
      * @param user
      */
     private void refreshHelper(final SourceCodeRepoInterface sourceCodeRepoInterface, User user) {
+        // bulk refreshes only re-read branches and tags that moved since the last refresh
+        sourceCodeRepoInterface.setIncrementalRefresh(true);
+
         // Mapping of git url to repository name (owner/repo)
         final Map<String, String> workflowGitUrl2Name = sourceCodeRepoInterface.getWorkflowGitUrl2RepositoryId();
 
@@ -265,28 +284,23 @@ public class WorkflowResource {
 
                 // The workflow was successfully created
                 if (newWorkflow != null) {
-                    final long workflowID = workflowDAO.create(newWorkflow);
-
-                    // need to create nested data models
-                    final Workflow workflowFromDB = workflowDAO.findById(workflowID);
-                    workflowFromDB.getUsers().add(user);
-
-                    // Update newly created template workflow (workflowFromDB) with found data from the repository
-                    updateDBWorkflowWithSourceControlWorkflow(workflowFromDB, newWorkflow);
+                    workflowDAO.create(newWorkflow);
+                    // a stub has no versions or files to create
+                    newWorkflow.getUsers().add(user);
                 }
             }
         }
     }
 
-    private List<Token> checkOnBitbucketToken(User user) {
-        List<Token> tokens = tokenDAO.findBitbucketByUserId(user.getId());
-
-        if (!tokens.isEmpty()) {
-            Token bitbucketToken = tokens.get(0);
-            Helper.refreshBitbucketToken(bitbucketToken, client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
-        }
-
-        return tokenDAO.findByUserId(user.getId());
+    /**
+     * Renews the user's Bitbucket token if it is about to expire
+     *
+     * @param tokens the user's tokens
+     * @return the same tokens, with a renewed Bitbucket token if needed
+     */
+    private UserTokens checkOnBitbucketToken(UserTokens tokens) {
+        tokens.refreshBitbucketTokenIfNeeded(client, tokenDAO, bitbucketClientID, bitbucketClientSecret);
+        return tokens;
     }
 
     @GET
@@ -300,13 +314,15 @@ public class WorkflowResource {
         Helper.checkEntry(workflow);
         Helper.checkUser(user, workflow);
 
+        UserTokens tokens = UserTokens.load(tokenDAO, user.getId());
+
         // Update user data
-        Helper.updateUserHelper(user, userDAO, tokenDAO);
+        Helper.updateUserHelper(user, userDAO, tokens);
 
         // get a live user for the following
         user = userDAO.findById(user.getId());
         // Set up source code interface and ensure token is set up
-        final SourceCodeRepoInterface sourceCodeRepo = getSourceCodeRepoInterface(workflow.getGitUrl(), user);
+        final SourceCodeRepoInterface sourceCodeRepo = getSourceCodeRepoInterface(workflow.getGitUrl(), tokens);
 
         // do a full refresh when targeted like this
         workflow.setMode(WorkflowMode.FULL);
@@ -315,7 +331,20 @@ public class WorkflowResource {
         workflow.getUsers().add(user);
         updateDBWorkflowWithSourceControlWorkflow(workflow, newWorkflow);
 
-        return workflowDAO.findById(workflowId);
+        if (descriptorResultCache.isPersistent()) {
+            // compute DAGs and tool tables now rather than on the first request for each of them
+            for (WorkflowVersion version : workflow.getVersions()) {
+                for (Type type : Type.values()) {
+                    try {
+                        getDescriptorResult(workflow, version, type);
+                    } catch (RuntimeException ex) {
+                        LOG.warn("Could not compute the " + type + " of " + workflow.getPath() + " version " + version.getName(), ex);
+                    }
+                }
+            }
+        }
+
+        return FetchPlan.FULL.apply(workflowDAO.findById(workflowId));
     }
 
     /**
@@ -334,8 +363,8 @@ public class WorkflowResource {
                 workflowVersionFromDB.update(version);
             } else {
                 // create a new one and replace the old one
-                final long workflowVersionId = workflowVersionDAO.create(version);
-                workflowVersionFromDB = workflowVersionDAO.findById(workflowVersionId);
+                workflowVersionDAO.create(version);
+                workflowVersionFromDB = version;
                 workflow.getVersions().add(workflowVersionFromDB);
                 existingVersionMap.put(workflowVersionFromDB.getName(), workflowVersionFromDB);
             }
@@ -346,9 +375,8 @@ public class WorkflowResource {
                 if (existingFileMap.containsKey(file.getType().toString() + file.getPath())) {
                     existingFileMap.get(file.getType().toString() + file.getPath()).setContent(file.getContent());
                 } else {
-                    final long fileID = fileDAO.create(file);
-                    final SourceFile fileFromDB = fileDAO.findById(fileID);
-                    workflowVersionFromDB.getSourceFiles().add(fileFromDB);
+                    fileDAO.create(file);
+                    workflowVersionFromDB.getSourceFiles().add(file);
                 }
             }
             // Remove existing files that are no longer present
@@ -366,6 +394,9 @@ public class WorkflowResource {
 
             //TODO: this needs a strategy for dealing with content on our side that has since been deleted
         }
+        if (workflow.getIsPublished()) {
+            toolProjectionService.update(workflow);
+        }
     }
 
     @GET
@@ -374,7 +405,7 @@ public class WorkflowResource {
     @RolesAllowed("admin")
     @ApiOperation(value = "List all workflows cached in database", notes = "List workflows currently known. Admin Only", response = Workflow.class, responseContainer = "List")
     public List<Workflow> allWorkflows(@ApiParam(hidden = true) @Auth User user) {
-        return workflowDAO.findAll();
+        return FetchPlan.VERSIONS.apply(workflowDAO.findAll());
     }
 
     @GET
@@ -389,7 +420,7 @@ public class WorkflowResource {
 
         Helper.checkUser(user, c);
 
-        return c;
+        return FetchPlan.FULL.apply(c);
     }
 
     @PUT
@@ -405,7 +436,7 @@ public class WorkflowResource {
         Helper.checkEntry(c);
 
         EntryLabelHelper<Workflow> labeller = new EntryLabelHelper<>(labelDAO);
-        return labeller.updateLabels(c, labelStrings);
+        return FetchPlan.FULL.apply(labeller.updateLabels(c, labelStrings));
     }
 
     @PUT
@@ -431,8 +462,9 @@ public class WorkflowResource {
         c.updateInfo(workflow);
         Workflow result = workflowDAO.findById(workflowId);
         Helper.checkEntry(result);
+        toolProjectionService.update(result);
 
-        return result;
+        return FetchPlan.FULL.apply(result);
 
     }
 
@@ -470,7 +502,8 @@ public class WorkflowResource {
 
         Workflow result = workflowDAO.findById(workflowId);
         Helper.checkEntry(result);
-        return result.getWorkflowVersions();
+        toolProjectionService.update(result);
+        return FetchPlan.VERSIONS.apply(result).getWorkflowVersions();
 
     }
 
@@ -496,8 +529,9 @@ public class WorkflowResource {
                 version.setWorkflowPath(workflow.getDefaultWorkflowPath());
             }
         }
+        toolProjectionService.update(c);
 
-        return c;
+        return FetchPlan.FULL.apply(c);
     }
 
     @GET
@@ -560,7 +594,8 @@ public class WorkflowResource {
 
         long id = workflowDAO.create(c);
         c = workflowDAO.findById(id);
-        return c;
+        toolProjectionService.update(c);
+        return FetchPlan.FULL.apply(c);
     }
 
     @GET
@@ -571,10 +606,20 @@ public class WorkflowResource {
             "workflows" }, notes = "NO authentication", response = Workflow.class, responseContainer = "List")
     public List<Workflow> allPublishedWorkflows() {
         List<Workflow> tools = workflowDAO.findAllPublished();
-        entryVersionHelper.filterContainersForHiddenTags(tools);
+        entryVersionHelper.filterContainersForHiddenTags(tools, FetchPlan.VERSIONS);
         return tools;
     }
 
+    @GET
+    @Timed
+    @UnitOfWork
+    @Path("published/summaries")
+    @ApiOperation(value = "List summaries of all published workflows.", tags = {
+            "workflows" }, notes = "NO authentication. Versions are listed by name only and files are left out", response = EntrySummary.class, responseContainer = "List")
+    public List<EntrySummary> allPublishedWorkflowSummaries() {
+        return workflowDAO.findPublishedSummaries();
+    }
+
     @GET
     @Timed
     @UnitOfWork
@@ -586,7 +631,7 @@ public class WorkflowResource {
         Workflow workflow = workflowDAO.findByPath(path);
         Helper.checkEntry(workflow);
         Helper.checkUser(user, workflow);
-        return workflow;
+        return FetchPlan.FULL.apply(workflow);
     }
 
     @GET
@@ -597,17 +642,33 @@ public class WorkflowResource {
     public Workflow getPublishedWorkflowByPath(@ApiParam(value = "repository path", required = true) @PathParam("repository") String path) {
         Workflow workflow = workflowDAO.findPublishedByPath(path);
         Helper.checkEntry(workflow);
-        return workflow;
+        return FetchPlan.FULL.apply(workflow);
     }
 
     @GET
     @Timed
     @UnitOfWork
     @Path("/search")
-    @ApiOperation(value = "Search for matching published workflows.", notes = "Search on the name (full path name) and description. NO authentication", response = Workflow.class, responseContainer = "List", tags = {
+    @ApiOperation(value = "Search for matching published workflows.", notes = "Search on words that start the words of the name (full path name) and description, best matches first. NO authentication", response = Workflow.class, responseContainer = "List", tags = {
+            "workflows" })
+    public List<Workflow> search(@QueryParam("pattern") String word,
+            @ApiParam(value = "Index of the first match to return") @DefaultValue("0") @QueryParam("offset") int offset,
+            @ApiParam(value = "Number of matches to return, at most 1000") @DefaultValue("100") @QueryParam("limit") int limit) {
+        Helper.checkSearchPage(offset, limit);
+        return FetchPlan.SUMMARY.apply(workflowDAO.searchPattern(word, offset, limit));
+    }
+
+    @GET
+    @Timed
+    @UnitOfWork
+    @Path("/search/summaries")
+    @ApiOperation(value = "Search for summaries of matching published workflows.", notes = "Search on words that start the words of the name (full path name) and description, best matches first. NO authentication", response = EntrySummary.class, responseContainer = "List", tags = {
             "workflows" })
-    public List<Workflow> search(@QueryParam("pattern") String word) {
-        return workflowDAO.searchPattern(word);
+    public List<EntrySummary> searchSummaries(@QueryParam("pattern") String word,
+            @ApiParam(value = "Index of the first match to return") @DefaultValue("0") @QueryParam("offset") int offset,
+            @ApiParam(value = "Number of matches to return, at most 1000") @DefaultValue("100") @QueryParam("limit") int limit) {
+        Helper.checkSearchPage(offset, limit);
+        return workflowDAO.searchSummaries(word, offset, limit);
     }
 
     @GET
@@ -790,9 +851,8 @@ public class WorkflowResource {
                 sourceFile.setPath(path);
                 sourceFile.setType(fileType);
 
-                long id = fileDAO.create(sourceFile);
-                SourceFile sourceFileWithId = fileDAO.findById(id);
-                workflowVersion.addSourceFile(sourceFileWithId);
+                fileDAO.create(sourceFile);
+                workflowVersion.addSourceFile(sourceFile);
             }
         }
 
@@ -886,7 +946,7 @@ public class WorkflowResource {
             throw new CustomWebApplicationException("The given git registry is not supported.", HttpStatus.SC_BAD_REQUEST);
         }
         String gitURL = "git@" + registryURLPrefix + ":" + workflowPath + ".git";
-        final SourceCodeRepoInterface sourceCodeRepo = getSourceCodeRepoInterface(gitURL, user);
+        final SourceCodeRepoInterface sourceCodeRepo = getSourceCodeRepoInterface(gitURL, UserTokens.load(tokenDAO, user.getId()));
 
         // Create workflow
         Workflow newWorkflow = sourceCodeRepo.getWorkflow(completeWorkflowPath, Optional.absent());
@@ -899,24 +959,18 @@ public class WorkflowResource {
         newWorkflow.setPath(completeWorkflowPath);
         newWorkflow.setDescriptorType(descriptorType);
 
-        final long workflowID = workflowDAO.create(newWorkflow);
-        // need to create nested data models
-        final Workflow workflowFromDB = workflowDAO.findById(workflowID);
-        workflowFromDB.getUsers().add(user);
-        updateDBWorkflowWithSourceControlWorkflow(workflowFromDB, newWorkflow);
-        return workflowDAO.findById(workflowID);
+        workflowDAO.create(newWorkflow);
+        // a stub has no versions or files to create
+        newWorkflow.getUsers().add(user);
+        return FetchPlan.FULL.apply(newWorkflow);
 
     }
 
-    private SourceCodeRepoInterface getSourceCodeRepoInterface(String gitUrl, User user) {
-        List<Token> tokens = checkOnBitbucketToken(user);
-        Token bitbucketToken = Helper.extractToken(tokens, TokenType.BITBUCKET_ORG.toString());
-        Token githubToken = Helper.extractToken(tokens, TokenType.GITHUB_COM.toString());
-        Token gitlabToken = Helper.extractToken(tokens, TokenType.GITLAB_COM.toString());
-
-        final String bitbucketTokenContent = bitbucketToken == null ? null : bitbucketToken.getContent();
-        final String gitHubTokenContent = githubToken == null ? null : githubToken.getContent();
-        final String gitlabTokenContent = gitlabToken == null ? null : gitlabToken.getContent();
+    private SourceCodeRepoInterface getSourceCodeRepoInterface(String gitUrl, UserTokens userTokens) {
+        UserTokens tokens = checkOnBitbucketToken(userTokens);
+        final String bitbucketTokenContent = tokens.getContent(TokenType.BITBUCKET_ORG);
+        final String gitHubTokenContent = tokens.getContent(TokenType.GITHUB_COM);
+        final String gitlabTokenContent = tokens.getContent(TokenType.GITLAB_COM);
 
         final SourceCodeRepoInterface sourceCodeRepo = SourceCodeRepoFactory
                 .createSourceCodeRepo(gitUrl, client, bitbucketTokenContent, gitlabTokenContent, gitHubTokenContent);
@@ -961,7 +1015,8 @@ public class WorkflowResource {
         }
         Workflow result = workflowDAO.findById(workflowId);
         Helper.checkEntry(result);
-        return result.getVersions();
+        toolProjectionService.update(result);
+        return FetchPlan.VERSIONS.apply(result).getVersions();
     }
 
     @GET
@@ -973,39 +1028,7 @@ public class WorkflowResource {
             @ApiParam(value = "workflowVersionId", required = true) @PathParam("workflowVersionId") Long workflowVersionId) {
         Workflow workflow = workflowDAO.findById(workflowId);
         WorkflowVersion workflowVersion = getWorkflowVersion(workflow, workflowVersionId);
-        SourceFile mainDescriptor = getMainDescriptorFile(workflowVersion);
-        String result = null;
-
-        if (mainDescriptor != null) {
-            String descFileContent = mainDescriptor.getContent();
-            Map<String, String> secondaryDescContent = new HashMap<>();
-            File tmpDir = Files.createTempDir();
-            File tempMainDescriptor = null;
-
-            try {
-                // Write main descriptor to file
-                // The use of temporary files is not needed here and might cause new problems
-                tempMainDescriptor = File.createTempFile("main", "descriptor", tmpDir);
-                Files.write(mainDescriptor.getContent(), tempMainDescriptor, StandardCharsets.UTF_8);
-
-                // get secondary files
-                for (SourceFile secondaryFile : workflowVersion.getSourceFiles()) {
-                    if (!secondaryFile.getPath().equals(workflowVersion.getWorkflowPath())) {
-                        secondaryDescContent.put(secondaryFile.getPath(), secondaryFile.getContent());
-                    }
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-
-            DAGHelper dagHelper = new DAGHelper(toolDAO);
-            if (workflow.getDescriptorType().equals("wdl")) {
-                result = dagHelper.getContentWDL(workflowVersion.getWorkflowPath(), tempMainDescriptor, secondaryDescContent, Type.DAG);
-            } else {
-                result = dagHelper.getContentCWL(workflowVersion.getWorkflowPath(), descFileContent, secondaryDescContent, Type.DAG);
-            }
-        }
-        return result;
+        return getDescriptorResult(workflow, workflowVersion, Type.DAG);
     }
 
     /**
@@ -1022,46 +1045,56 @@ public class WorkflowResource {
     @ApiOperation(value = "Get the Tools for a given workflow version", notes = "", response = String.class)
     public String getTableToolContent(@ApiParam(value = "workflowId", required = true) @PathParam("workflowId") Long workflowId,
             @ApiParam(value = "workflowVersionId", required = true) @PathParam("workflowVersionId") Long workflowVersionId) {
-
         Workflow workflow = workflowDAO.findById(workflowId);
         WorkflowVersion workflowVersion = getWorkflowVersion(workflow, workflowVersionId);
+        return getDescriptorResult(workflow, workflowVersion, Type.TOOLS);
+    }
+
+    /**
+     * The DAG or tool table of a workflow version, from the cache if its source files have not changed since it was computed
+     *
+     * @param workflow
+     * @param workflowVersion
+     * @param type
+     * @return the JSON for the DAG or tool table, null if the version has no main descriptor
+     */
+    private String getDescriptorResult(Workflow workflow, WorkflowVersion workflowVersion, Type type) {
         SourceFile mainDescriptor = getMainDescriptorFile(workflowVersion);
-        if (mainDescriptor != null) {
-            String descFileContent = mainDescriptor.getContent();
-            Map<String, String> secondaryDescContent = new HashMap<>();
-
-            File tmpDir = Files.createTempDir();
-            File tempMainDescriptor = null;
-
-            try {
-                // Write main descriptor to file
-                // The use of temporary files is not needed here and might cause new problems
-                tempMainDescriptor = File.createTempFile("main", "descriptor", tmpDir);
-                Files.write(mainDescriptor.getContent(), tempMainDescriptor, StandardCharsets.UTF_8);
-
-                // get secondary files
-                for (SourceFile secondaryFile : workflowVersion.getSourceFiles()) {
-                    if (!secondaryFile.getPath().equals(workflowVersion.getWorkflowPath())) {
-                        secondaryDescContent.put(secondaryFile.getPath(), secondaryFile.getContent());
-                    }
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        if (mainDescriptor == null) {
+            return null;
+        }
+        return descriptorResultCache.get(workflowVersion, workflow.getDescriptorType(), type,
+                () -> computeDescriptorResult(workflow, workflowVersion, mainDescriptor, type));
+    }
 
-            String result; // will have the JSON string after done calling the method
-            DAGHelper dagHelper = new DAGHelper(toolDAO);
-            if (workflow.getDescriptorType().equals("wdl")) {
-                //WDL workflow
-                result = dagHelper.getContentWDL(workflowVersion.getWorkflowPath(), tempMainDescriptor, secondaryDescContent, Type.TOOLS);
-            } else {
-                //CWL workflow
-                result = dagHelper.getContentCWL(workflowVersion.getWorkflowPath(), descFileContent, secondaryDescContent, Type.TOOLS);
+    /**
+     * Parses the descriptors of a workflow version
+     *
+     * @param workflow
+     * @param workflowVersion
+     * @param mainDescriptor
+     * @param type
+     * @return the JSON for the DAG or tool table
+     */
+    private String computeDescriptorResult(Workflow workflow, WorkflowVersion workflowVersion, SourceFile mainDescriptor, Type type) {
+        String descFileContent = mainDescriptor.getContent();
+        Map<String, String> secondaryDescContent = new HashMap<>();
+
+        // get secondary files
+        for (SourceFile secondaryFile : workflowVersion.getSourceFiles()) {
+            if (!secondaryFile.getPath().equals(workflowVersion.getWorkflowPath())) {
+                secondaryDescContent.put(secondaryFile.getPath(), secondaryFile.getContent());
             }
-            return result;
         }
 
-        return null;
+        DAGHelper dagHelper = new DAGHelper(toolDAO);
+        if (workflow.getDescriptorType().equals("wdl")) {
+            //WDL workflow
+            return dagHelper.getContentWDL(workflowVersion.getWorkflowPath(), descFileContent, secondaryDescContent, type);
+        } else {
+            //CWL workflow
+            return dagHelper.getContentCWL(workflowVersion.getWorkflowPath(), descFileContent, secondaryDescContent, type);
+        }
     }
 
     /**
@@ -1139,6 +1172,6 @@ public class WorkflowResource {
         Workflow workflow = workflowDAO.findById(workflowId);
         Helper.checkEntry(workflow);
 
-        return workflow.getStarredUsers();
+        return FetchPlan.SUMMARY.apply(workflow).getStarredUsers();
     }
 }
@@ -16,11 +16,13 @@
 package io.swagger.api;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
 
@@ -58,7 +60,7 @@ public class ToolsApi {
             @ApiParam(value = "The description of the tool.") @QueryParam("description") String description,
             @ApiParam(value = "The author of the tool (TODO a thought occurs, are we assuming that the author of the CWL and the image are the same?).") @QueryParam("author") String author,
             @ApiParam(value = "Start index of paging. Pagination results can be based on numbers or other values chosen by the registry implementor (for example, SHA values). If this exceeds the current result set return an empty set.  If not specified in the request this will start at the beginning of the results.") @QueryParam("offset") String offset,
-            @ApiParam(value = "Amount of records to return in a given page.  By default it is 1000.") @QueryParam("limit") Integer limit,
+            @ApiParam(value = "Amount of records to return in a given page.  By default it is 1000, which is also the most.") @QueryParam("limit") Integer limit,
             @Context SecurityContext securityContext) throws NotFoundException {
         return delegate.toolsGet(id, registry, organization, name, toolname, description, author, offset, limit, securityContext);
     }
@@ -156,8 +158,10 @@ public class ToolsApi {
             @ApiParam(value = "A unique identifier of the tool, scoped to this registry, for example `123456`", required = true) @PathParam("id") String id,
             @ApiParam(value = "An identifier of the tool version for this particular tool registry, for example `v1`", required = true) @PathParam("version-id") String versionId,
             @ApiParam(value = "A relative path to the additional file (same directory or subdirectories), for example 'foo.cwl' would return a 'foo.cwl' from the same directory as the main descriptor", required = true) @PathParam("relative-path") String relativePath,
+            @ApiParam(hidden = true) @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
             @Context SecurityContext securityContext) throws NotFoundException {
-        return delegate.toolsIdVersionsVersionIdTypeDescriptorRelativePathGet(type, id, versionId, relativePath, securityContext);
+        return delegate
+                .toolsIdVersionsVersionIdTypeDescriptorRelativePathGet(type, id, versionId, relativePath, acceptEncoding, securityContext);
     }
 
     @GET
@@ -37,7 +37,7 @@ public abstract class ToolsApiService {
             SecurityContext securityContext) throws NotFoundException;
 
     public abstract Response toolsIdVersionsVersionIdTypeDescriptorRelativePathGet(String type, String id, String versionId,
-            String relativePath, SecurityContext securityContext) throws NotFoundException;
+            String relativePath, String acceptEncoding, SecurityContext securityContext) throws NotFoundException;
 
     public abstract Response toolsIdVersionsVersionIdTypeTestsGet(String type, String id, String versionId, SecurityContext securityContext)
             throws NotFoundException;
@@ -24,15 +24,19 @@ import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.SecurityContext;
@@ -43,14 +47,18 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Table;
 import com.google.gson.Gson;
+import io.dockstore.common.Registry;
 import io.dockstore.webservice.DockstoreWebserviceConfiguration;
 import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.FileContent;
 import io.dockstore.webservice.core.SourceFile;
 import io.dockstore.webservice.core.Tag;
 import io.dockstore.webservice.core.Tool;
 import io.dockstore.webservice.core.Version;
 import io.dockstore.webservice.core.Workflow;
 import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.helpers.ToolProjectionService;
+import io.dockstore.webservice.jdbi.PublishedEntryDAO;
 import io.dockstore.webservice.jdbi.ToolDAO;
 import io.dockstore.webservice.jdbi.WorkflowDAO;
 import io.swagger.api.NotFoundException;
@@ -73,10 +81,17 @@ import static io.dockstore.webservice.core.SourceFile.FileType.DOCKSTORE_WDL;
 public class ToolsApiServiceImpl extends ToolsApiService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ToolsApiServiceImpl.class);
+    private static final String GZIP = "gzip";
     public static final int DEFAULT_PAGE_SIZE = 1000;
+    /**
+     * Largest page that is loaded and converted for one request, the same as for searches
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
 
     private static ToolDAO toolDAO = null;
     private static WorkflowDAO workflowDAO = null;
+    private static PublishedEntryDAO publishedEntryDAO = null;
+    private static ToolProjectionService toolProjectionService = null;
     private static DockstoreWebserviceConfiguration config = null;
 
     public static void setToolDAO(ToolDAO toolDAO) {
@@ -91,6 +106,46 @@ public class ToolsApiServiceImpl extends ToolsApiService {
         ToolsApiServiceImpl.workflowDAO = workflowDAO;
     }
 
+    public static void setPublishedEntryDAO(PublishedEntryDAO publishedEntryDAO) {
+        ToolsApiServiceImpl.publishedEntryDAO = publishedEntryDAO;
+    }
+
+    public static void setToolProjectionService(ToolProjectionService toolProjectionService) {
+        ToolsApiServiceImpl.toolProjectionService = toolProjectionService;
+    }
+
+    /**
+     * @param entry a tool or workflow
+     * @return its GA4GH representation, null if it could not be built
+     */
+    public static io.swagger.model.Tool convertEntry(Entry entry) {
+        Pair<io.swagger.model.Tool, Table<String, SourceFile.FileType, Object>> converted = convertContainer2Tool(entry);
+        return converted == null ? null : converted.getLeft();
+    }
+
+    /**
+     * @param entries published entries
+     * @return the GA4GH representation of each entry, from the stored projections where possible
+     */
+    private static List<io.swagger.model.Tool> getProjectedTools(List<Entry> entries) {
+        Map<Long, io.swagger.model.Tool> projections = toolProjectionService == null ? Collections.emptyMap()
+                : toolProjectionService.find(entries);
+        List<io.swagger.model.Tool> tools = new ArrayList<>();
+        for (Entry entry : entries) {
+            io.swagger.model.Tool tool = projections.get(entry.getId());
+            if (tool == null) {
+                // entries that have not changed since projections were introduced are converted on each request
+                tool = convertEntry(entry);
+            }
+            if (tool == null) {
+                // dropping the entry would make the page shorter than the count behind the page links says
+                throw new WebApplicationException("Could not convert entry " + entry.getId(), HttpStatus.SC_INTERNAL_SERVER_ERROR);
+            }
+            tools.add(tool);
+        }
+        return tools;
+    }
+
     /**
      * Convert our Tool object to a standard Tool format
      *
@@ -322,8 +377,9 @@ public class ToolsApiServiceImpl extends ToolsApiService {
             // check whether this is registered
             response = Response.status(Response.Status.UNAUTHORIZED).build();
         } else {
-            io.swagger.model.Tool tool = convertContainer2Tool(container).getLeft();
-            assert (tool != null);
+            List<io.swagger.model.Tool> tools = getProjectedTools(Collections.singletonList(container));
+            assert (!tools.isEmpty());
+            io.swagger.model.Tool tool = tools.get(0);
             // filter out other versions if we're narrowing to a specific version
             if (version != null) {
                 tool.getVersions().removeIf(v -> !v.getName().equals(version));
@@ -372,12 +428,12 @@ public class ToolsApiServiceImpl extends ToolsApiService {
         if (fileType == null) {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
-        return getFileByToolVersionID(id, versionId, fileType, null, StringUtils.containsIgnoreCase(type, "plain"));
+        return getFileByToolVersionID(id, versionId, fileType, null, StringUtils.containsIgnoreCase(type, "plain"), null);
     }
 
     @Override
     public Response toolsIdVersionsVersionIdTypeDescriptorRelativePathGet(String type, String id, String versionId, String relativePath,
-            SecurityContext securityContext) throws NotFoundException {
+            String acceptEncoding, SecurityContext securityContext) throws NotFoundException {
         if (type == null) {
             return Response.status(Response.Status.BAD_REQUEST).build();
         }
@@ -386,7 +442,7 @@ public class ToolsApiServiceImpl extends ToolsApiService {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        return getFileByToolVersionID(id, versionId, fileType, relativePath, StringUtils.containsIgnoreCase(type, "plain"));
+        return getFileByToolVersionID(id, versionId, fileType, relativePath, StringUtils.containsIgnoreCase(type, "plain"), acceptEncoding);
     }
 
     @Override
@@ -415,83 +471,51 @@ public class ToolsApiServiceImpl extends ToolsApiService {
     @Override
     public Response toolsIdVersionsVersionIdDockerfileGet(String id, String versionId, SecurityContext securityContext)
             throws NotFoundException {
-        return getFileByToolVersionID(id, versionId, DOCKERFILE, null, false);
+        return getFileByToolVersionID(id, versionId, DOCKERFILE, null, false, null);
     }
 
     @Override
     public Response toolsGet(String registryId, String registry, String organization, String name, String toolname, String description,
             String author, String offset, Integer limit, SecurityContext securityContext) throws NotFoundException {
-        final List<Entry> all = new ArrayList<>();
-        all.addAll(toolDAO.findAllPublished());
-        all.addAll(workflowDAO.findAllPublished());
-        all.sort((o1, o2) -> o1.getGitUrl().compareTo(o2.getGitUrl()));
-
-        List<io.swagger.model.Tool> results = new ArrayList<>();
-        for (Entry c : all) {
-            if (c instanceof Workflow && (registryId != null || registry != null || organization != null || name != null
-                    || toolname != null)) {
-                continue;
-            }
-
-            if (c instanceof Tool) {
-                Tool tool = (Tool)c;
-                // check each criteria. This sucks. Can we do this better with reflection? Or should we pre-convert?
-                if (registryId != null) {
-                    if (!registryId.contains(tool.getToolPath())) {
-                        continue;
-                    }
-                }
-                if (registry != null && tool.getRegistry() != null) {
-                    if (!tool.getRegistry().toString().contains(registry)) {
-                        continue;
-                    }
-                }
-                if (organization != null && tool.getNamespace() != null) {
-                    if (!tool.getNamespace().contains(organization)) {
-                        continue;
-                    }
-                }
-                if (name != null && tool.getName() != null) {
-                    if (!tool.getName().contains(name)) {
-                        continue;
-                    }
-                }
-                if (toolname != null && tool.getToolname() != null) {
-                    if (!tool.getToolname().contains(toolname)) {
-                        continue;
-                    }
-                }
-            }
-            if (description != null && c.getDescription() != null) {
-                if (!c.getDescription().contains(description)) {
-                    continue;
-                }
-            }
-            if (author != null && c.getAuthor() != null) {
-                if (!c.getAuthor().contains(author)) {
-                    continue;
-                }
-            }
-            // if passing, for each container that matches the criteria, convert to standardised format and return
-            io.swagger.model.Tool tool = convertContainer2Tool(c).getLeft();
-            if (tool != null) {
-                results.add(tool);
-            }
-        }
-
         if (limit == null) {
             limit = DEFAULT_PAGE_SIZE;
         }
-        List<List<io.swagger.model.Tool>> pagedResults = Lists.partition(results, limit);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new WebApplicationException("limit must be between 1 and " + MAX_PAGE_SIZE, HttpStatus.SC_BAD_REQUEST);
+        }
+        // numbers are page indexes, anything else is a cursor handed out in a next-page link
         int offsetInteger = 0;
+        Pair<String, Long> cursor = null;
         if (offset != null) {
-            offsetInteger = Integer.parseInt(offset);
+            if (StringUtils.isNumeric(offset)) {
+                offsetInteger = parsePageIndex(offset, limit);
+            } else {
+                cursor = decodeCursor(offset);
+            }
+        }
+
+        // registries are stored by name but matched against their docker path
+        Set<Registry> registries = null;
+        if (registry != null) {
+            registries = EnumSet.allOf(Registry.class).stream().filter(r -> r.toString() != null && r.toString().contains(registry))
+                    .collect(Collectors.toCollection(() -> EnumSet.noneOf(Registry.class)));
         }
-        if (offsetInteger >= pagedResults.size()) {
-            results = new ArrayList<>();
+        PublishedEntryDAO.Filter filter = new PublishedEntryDAO.Filter().registryId(registryId).registries(registries)
+                .organization(organization).name(name).toolname(toolname).description(description).author(author);
+
+        // only the requested page is loaded and converted, one more entry tells whether there is a next page
+        List<Entry> entries;
+        if (cursor != null) {
+            entries = publishedEntryDAO.findPublishedAfter(filter, cursor.getLeft(), cursor.getRight(), limit + 1);
         } else {
-            results = pagedResults.get(offsetInteger);
+            entries = publishedEntryDAO.findPublished(filter, offsetInteger * limit, limit + 1);
+        }
+        final boolean hasNextPage = entries.size() > limit;
+        if (hasNextPage) {
+            entries = entries.subList(0, limit);
         }
+        // for each container that matches the criteria, return its standardised format
+        List<io.swagger.model.Tool> results = getProjectedTools(entries);
         final Response.ResponseBuilder responseBuilder = Response.ok(results);
         responseBuilder.header("current-offset", offset);
         responseBuilder.header("current-limit", limit);
@@ -507,14 +531,22 @@ public class ToolsApiServiceImpl extends ToolsApiService {
             handleParameter(registry, "registry", filters);
             handleParameter(limit.toString(), "limit", filters);
 
-            if (offsetInteger + 1 < pagedResults.size()) {
+            if (hasNextPage) {
+                // clients that follow next-page links from the first page page by cursor, page indexes are kept for compatibility
+                String nextOffset = offset == null || cursor != null ? encodeCursor(entries.get(entries.size() - 1))
+                        : String.valueOf(offsetInteger + 1);
                 URI nextPageURI = new URI(config.getScheme(), null, config.getHostname(), Integer.parseInt(config.getPort()),
-                        "/api/ga4gh/v1/tools", Joiner.on('&').join(filters) + "&offset=" + (offsetInteger + 1), null);
+                        "/api/ga4gh/v1/tools", Joiner.on('&').join(filters) + "&offset=" + nextOffset, null);
                 responseBuilder.header("next-page", nextPageURI.toURL().toString());
             }
-            URI lastPageURI = new URI(config.getScheme(), null, config.getHostname(), Integer.parseInt(config.getPort()),
-                    "/api/ga4gh/v1/tools", Joiner.on('&').join(filters) + "&offset=" + (pagedResults.size() - 1), null);
-            responseBuilder.header("last-page", lastPageURI.toURL().toString());
+            if (cursor == null) {
+                // counting costs as much as a full scan, so pages reached by cursor do not link to the last page
+                final long count = publishedEntryDAO.countPublished(filter);
+                final long pageCount = (count + limit - 1) / limit;
+                URI lastPageURI = new URI(config.getScheme(), null, config.getHostname(), Integer.parseInt(config.getPort()),
+                        "/api/ga4gh/v1/tools", Joiner.on('&').join(filters) + "&offset=" + (pageCount - 1), null);
+                responseBuilder.header("last-page", lastPageURI.toURL().toString());
+            }
 
         } catch (URISyntaxException | MalformedURLException e) {
             throw new WebApplicationException("Could not construct page links", HttpStatus.SC_BAD_REQUEST);
@@ -523,6 +555,49 @@ public class ToolsApiServiceImpl extends ToolsApiService {
         return responseBuilder.build();
     }
 
+    /**
+     * @param entry last entry of a page
+     * @return an opaque offset for the page that follows this entry
+     */
+    private static String encodeCursor(Entry entry) {
+        String key = StringUtils.defaultString(entry.getGitUrl()) + '\n' + entry.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param offset a page index
+     * @param limit  page size
+     * @return the page index, small enough that the first entry of the page and the index of the next page fit in an int
+     */
+    private static int parsePageIndex(String offset, int limit) {
+        try {
+            int index = Integer.parseInt(offset);
+            if (index < Integer.MAX_VALUE / limit) {
+                return index;
+            }
+        } catch (NumberFormatException e) {
+            LOG.info("Could not parse offset " + offset);
+        }
+        throw new WebApplicationException("Invalid offset", HttpStatus.SC_BAD_REQUEST);
+    }
+
+    /**
+     * @param offset an offset made by {@link #encodeCursor(Entry)}
+     * @return git url and id of the last entry of the previous page
+     */
+    private static Pair<String, Long> decodeCursor(String offset) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(offset), StandardCharsets.UTF_8);
+            int separator = key.lastIndexOf('\n');
+            if (separator >= 0) {
+                return ImmutablePair.of(key.substring(0, separator), Long.parseLong(key.substring(separator + 1)));
+            }
+        } catch (IllegalArgumentException e) {
+            LOG.info("Could not decode offset " + offset);
+        }
+        throw new WebApplicationException("Invalid offset", HttpStatus.SC_BAD_REQUEST);
+    }
+
     private void handleParameter(String parameter, String queryName, List<String> filters) {
         if (parameter != null) {
             filters.add(queryName + "=" + parameter);
@@ -535,10 +610,11 @@ public class ToolsApiServiceImpl extends ToolsApiService {
      * @param type         type of file
      * @param relativePath if null, return the primary descriptor, if not null, return a specific file
      * @param unwrap       unwrap the file and present the descriptor sans wrapper model
+     * @param acceptEncoding value of the Accept-Encoding header, compressed files are sent as is to clients that accept gzip
      * @return a specific file wrapped in a response
      */
     private Response getFileByToolVersionID(String registryId, String versionId, SourceFile.FileType type, String relativePath,
-            boolean unwrap) {
+            boolean unwrap, String acceptEncoding) {
         // if a version is provided, get that version, otherwise return the newest
         ParsedRegistryID parsedID = new ParsedRegistryID(registryId);
         try {
@@ -602,8 +678,17 @@ public class ToolsApiServiceImpl extends ToolsApiService {
                             .findFirst();
                     if (first1.isPresent()) {
                         final SourceFile entity = first1.get();
-                        return Response.status(Response.Status.OK).type(unwrap ? MediaType.TEXT_PLAIN : MediaType.APPLICATION_JSON)
-                                .entity(unwrap ? entity.getContent() : entity).build();
+                        final FileContent content = entity.getFileContent();
+                        if (unwrap && content != null && content.isCompressed() && acceptsGzip(acceptEncoding)) {
+                            return Response.status(Response.Status.OK).type(MediaType.TEXT_PLAIN).header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).entity(content.getCompressedContent()).build();
+                        }
+                        if (unwrap) {
+                            // caches must not hand the plain content to clients that asked for gzip, or the other way around
+                            return Response.status(Response.Status.OK).type(MediaType.TEXT_PLAIN)
+                                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).entity(entity.getContent()).build();
+                        }
+                        return Response.status(Response.Status.OK).type(MediaType.APPLICATION_JSON).entity(entity).build();
                     }
                 }
             }
@@ -612,6 +697,42 @@ public class ToolsApiServiceImpl extends ToolsApiService {
         return Response.status(Response.Status.NOT_FOUND).build();
     }
 
+    /**
+     * Reads the codings of an Accept-Encoding header as described in RFC 7231. A coding with q=0 is refused, and gzip is
+     * accepted through * unless it is listed itself.
+     *
+     * @param acceptEncoding value of the Accept-Encoding header, may be null
+     * @return whether the client accepts a gzip encoded response
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        Double gzip = null;
+        Double any = null;
+        for (String coding : Splitter.on(',').trimResults().omitEmptyStrings().split(StringUtils.defaultString(acceptEncoding))) {
+            List<String> parts = Splitter.on(';').trimResults().splitToList(coding);
+            String name = parts.get(0).toLowerCase();
+            double quality = 1;
+            for (String parameter : parts.subList(1, parts.size())) {
+                List<String> pair = Splitter.on('=').trimResults().limit(2).splitToList(parameter);
+                if (pair.size() == 2 && "q".equalsIgnoreCase(pair.get(0))) {
+                    try {
+                        quality = Double.parseDouble(pair.get(1));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (GZIP.equals(name) || "x-gzip".equals(name)) {
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if ("*".equals(name)) {
+                any = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
     /**
      * Used to parse localised IDs (no URL)
      */
@@ -0,0 +1,21 @@
+-- Run by hibernate after it creates the schema (hibernate.hbm2ddl.auto: create), one statement per line.
+-- Sets up what migrations.xml adds beyond the mapped columns: full-text search columns and indexes. Keep the two in sync.
+-- The full-text search triggers are in searchvector.sql, which hibernate runs after this file.
+ALTER TABLE tool ADD COLUMN searchvector tsvector;
+ALTER TABLE workflow ADD COLUMN searchvector tsvector;
+CREATE INDEX tool_searchvector_idx ON tool USING gin(searchvector);
+CREATE INDEX workflow_searchvector_idx ON workflow USING gin(searchvector);
+CREATE INDEX tool_giturl_id_idx ON tool ((coalesce(giturl, '')), id);
+CREATE INDEX workflow_giturl_id_idx ON workflow ((coalesce(giturl, '')), id);
+CREATE INDEX sourcefile_contentid_idx ON sourcefile (contentid);
+CREATE INDEX refreshjob_userid_idx ON refreshjob (userid);
+CREATE INDEX tool_path_toolname_idx ON tool (path, toolname);
+CREATE INDEX workflow_path_idx ON workflow (path);
+CREATE INDEX tool_published_id_idx ON tool (id) WHERE ispublished;
+CREATE INDEX workflow_published_id_idx ON workflow (id) WHERE ispublished;
+CREATE INDEX token_userid_tokensource_idx ON token (userid, tokensource);
+CREATE UNIQUE INDEX token_dockstore_contenthash_idx ON token (contenthash) WHERE tokensource = 'dockstore';
+CREATE INDEX user_entry_userid_idx ON user_entry (userid);
+CREATE INDEX starred_userid_idx ON starred (userid);
+CREATE INDEX refreshjob_active_type_idx ON refreshjob (type, userid) WHERE status IN ('QUEUED', 'RUNNING');
+CREATE UNIQUE INDEX descriptorresult_workflowversionid_type_idx ON descriptorresult (workflowversionid, type);
@@ -0,0 +1,6 @@
+-- Functions and triggers that keep tool.searchvector and workflow.searchvector up to date, see EntryDAO.searchIds.
+-- Run by the fulltextsearch changeset of migrations.xml and by hibernate after import.sql, so one statement per line.
+CREATE OR REPLACE FUNCTION tool_searchvector_trigger() RETURNS trigger AS $$ BEGIN NEW.searchvector := setweight(to_tsvector('simple', regexp_replace(coalesce(NEW.path, '') || ' ' || coalesce(NEW.toolname, ''), '[^[:alnum:]]+', ' ', 'g')), 'A') || setweight(to_tsvector('simple', regexp_replace(coalesce(NEW.description, ''), '[^[:alnum:]]+', ' ', 'g')), 'B') || setweight(to_tsvector('simple', regexp_replace(coalesce(NEW.registry, ''), '[^[:alnum:]]+', ' ', 'g')), 'C'); RETURN NEW; END $$ LANGUAGE plpgsql;
+CREATE OR REPLACE FUNCTION workflow_searchvector_trigger() RETURNS trigger AS $$ BEGIN NEW.searchvector := setweight(to_tsvector('simple', regexp_replace(coalesce(NEW.path, '') || ' ' || coalesce(NEW.workflowname, ''), '[^[:alnum:]]+', ' ', 'g')), 'A') || setweight(to_tsvector('simple', regexp_replace(coalesce(NEW.description, ''), '[^[:alnum:]]+', ' ', 'g')), 'B') || setweight(to_tsvector('simple', regexp_replace(coalesce(NEW.defaultworkflowpath, ''), '[^[:alnum:]]+', ' ', 'g')), 'C'); RETURN NEW; END $$ LANGUAGE plpgsql;
+CREATE TRIGGER tool_searchvector BEFORE INSERT OR UPDATE ON tool FOR EACH ROW EXECUTE PROCEDURE tool_searchvector_trigger();
+CREATE TRIGGER workflow_searchvector BEFORE INSERT OR UPDATE ON workflow FOR EACH ROW EXECUTE PROCEDURE workflow_searchvector_trigger();
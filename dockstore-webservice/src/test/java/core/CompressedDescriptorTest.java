@@ -0,0 +1,123 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.FileContent;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import io.swagger.api.impl.ToolsApiServiceImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Requests a large descriptor of tool 6 of the fixtures through the GA4GH API, with and without accepting gzip.
+ *
+ * @author agent
+ */
+public class CompressedDescriptorTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private static final String CONTENT = Strings.repeat("inputs:\n  - id: reference\n    type: File\n", FileContent.COMPRESSION_THRESHOLD);
+
+    private Client client;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        FileContent content = new FileContent(CONTENT);
+        Assert.assertTrue(content.isCompressed());
+        CommonTestUtilities.TestingPostgres postgres = CommonTestUtilities.getTestingPostgres();
+        postgres.runUpdateStatement("UPDATE tag SET name = '1.0' WHERE id = 1");
+        postgres.runUpdateStatement("DELETE FROM filecontent WHERE id = ?", content.getId());
+        postgres.runUpdateStatement("INSERT INTO filecontent (id, compressedcontent) VALUES (?, ?)", content.getId(),
+                content.getCompressedContent());
+        postgres.runUpdateStatement("INSERT INTO sourcefile (id, type, path, contentid) VALUES (900001, 'DOCKSTORE_CWL', 'large.cwl', ?)",
+                content.getId());
+        postgres.runUpdateStatement("INSERT INTO version_sourcefile (versionid, sourcefileid) VALUES (1, 900001)");
+        client = ClientBuilder.newClient();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    private Invocation.Builder request() {
+        return client.target("http://localhost:" + RULE.getLocalPort())
+                .path(DockstoreWebserviceApplication.GA4GH_API_PATH + "/tools/quay.io%2Ftest_org%2Ftest6/versions/1.0")
+                .path("plain-CWL/descriptor/large.cwl").request();
+    }
+
+    @Test
+    public void gzipIsSentAsStored() throws IOException {
+        Response response = request().header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.5").get();
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("gzip", response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertTrue(response.getHeaderString(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+        byte[] body = response.readEntity(byte[].class);
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            Assert.assertEquals(CONTENT, new String(ByteStreams.toByteArray(gzip), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void plainWithoutAcceptEncoding() {
+        Response response = request().get();
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertNull(response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+        Assert.assertTrue(response.getHeaderString(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+        Assert.assertEquals(CONTENT, response.readEntity(String.class));
+    }
+
+    @Test
+    public void qualitiesAreRead() {
+        Assert.assertFalse(ToolsApiServiceImpl.acceptsGzip(null));
+        Assert.assertFalse(ToolsApiServiceImpl.acceptsGzip(""));
+        Assert.assertTrue(ToolsApiServiceImpl.acceptsGzip("gzip"));
+        Assert.assertTrue(ToolsApiServiceImpl.acceptsGzip("deflate, GZIP;q=0.5"));
+        Assert.assertTrue(ToolsApiServiceImpl.acceptsGzip("x-gzip"));
+        Assert.assertTrue(ToolsApiServiceImpl.acceptsGzip("*"));
+        Assert.assertFalse(ToolsApiServiceImpl.acceptsGzip("gzip;q=0"));
+        Assert.assertFalse(ToolsApiServiceImpl.acceptsGzip("gzip; q=0.000, identity"));
+        Assert.assertFalse(ToolsApiServiceImpl.acceptsGzip("*, gzip;q=0"));
+        Assert.assertFalse(ToolsApiServiceImpl.acceptsGzip("*;q=0"));
+        Assert.assertFalse(ToolsApiServiceImpl.acceptsGzip("deflate, identity"));
+        Assert.assertFalse(ToolsApiServiceImpl.acceptsGzip("gzipped"));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.DescriptorResult;
+import io.dockstore.webservice.jdbi.DescriptorResultDAO;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Stores the first result of a workflow version from two transactions at once.
+ *
+ * @author agent
+ */
+public class DescriptorResultDAOTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private static final long WORKFLOW_VERSION_ID = 900001;
+
+    private SessionFactory sessionFactory;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        sessionFactory = RULE.getApplication().getHibernate().getSessionFactory();
+        CommonTestUtilities.getTestingPostgres().runUpdateStatement("DELETE FROM descriptorresult WHERE workflowversionid = ?",
+                WORKFLOW_VERSION_ID);
+    }
+
+    private static DescriptorResult result(String content) {
+        DescriptorResult result = new DescriptorResult(WORKFLOW_VERSION_ID, "DAG");
+        result.update("hash", content);
+        return result;
+    }
+
+    private static long storedCount() {
+        return CommonTestUtilities.getTestingPostgres().<Long>runSelectStatement(
+                "SELECT count(*) FROM descriptorresult WHERE workflowversionid = ?", new ScalarHandler<>(), WORKFLOW_VERSION_ID);
+    }
+
+    @Test
+    public void secondWriterWaitsAndStoresNothing() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Session first = sessionFactory.openSession();
+        try {
+            Transaction firstTransaction = first.beginTransaction();
+            ManagedSessionContext.bind(first);
+            try {
+                Assert.assertTrue(new DescriptorResultDAO(sessionFactory).createIfMissing(result("first")));
+            } finally {
+                ManagedSessionContext.unbind(sessionFactory);
+            }
+
+            // the second writer does not see the uncommitted row and has to wait for the first one
+            Future<Boolean> second = executor.submit(() -> {
+                Session session = sessionFactory.openSession();
+                ManagedSessionContext.bind(session);
+                try {
+                    Transaction transaction = session.beginTransaction();
+                    boolean stored = new DescriptorResultDAO(sessionFactory).createIfMissing(result("second"));
+                    transaction.commit();
+                    return stored;
+                } finally {
+                    ManagedSessionContext.unbind(sessionFactory);
+                    session.close();
+                }
+            });
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            while (CommonTestUtilities.getTestingPostgres().<Long>runSelectStatement(
+                    "SELECT count(*) FROM pg_locks WHERE locktype = 'advisory' AND NOT granted", new ScalarHandler<>()) == 0) {
+                Assert.assertFalse("the second writer did not wait for the lock", second.isDone());
+                Assert.assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(50);
+            }
+            firstTransaction.commit();
+            Assert.assertFalse(second.get(30, TimeUnit.SECONDS));
+        } finally {
+            first.close();
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, storedCount());
+
+        Session session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+        try {
+            DescriptorResult stored = new DescriptorResultDAO(sessionFactory).findByWorkflowVersionIdAndType(WORKFLOW_VERSION_ID, "DAG");
+            Assert.assertEquals("first", stored.getContent());
+        } finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.api.EntrySummary;
+import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Lists summaries of more published tools than {@link io.dockstore.webservice.jdbi.EntryDAO} looks up versions and labels for in
+ * one query.
+ *
+ * @author agent
+ */
+public class EntrySummariesTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    /**
+     * more than the 1000 entries of one batch
+     */
+    private static final int TOOLS = 2500;
+    private static final long FIRST_ID = 700001;
+
+    private SessionFactory sessionFactory;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        sessionFactory = RULE.getApplication().getHibernate().getSessionFactory();
+        // each tool has a tag named after it and a label named after it
+        CommonTestUtilities.TestingPostgres postgres = CommonTestUtilities.getTestingPostgres();
+        postgres.runUpdateStatement("INSERT INTO tool (id, name, namespace, registry, path, toolname, ispublished, giturl, privateaccess)"
+                + " SELECT " + FIRST_ID + " + i, 'bulk' || i, 'bulk', 'QUAY_IO', 'quay.io/bulk/bulk' || i, '', true,"
+                + " 'git@github.com:bulk/' || i || '.git', false FROM generate_series(0, " + (TOOLS - 1) + ") i");
+        postgres.runUpdateStatement("INSERT INTO tag (id, name, valid, automated, hidden, size, dirtybit, verified) SELECT " + FIRST_ID
+                + " + i, 'v' || i, true, true, false, 0, false, false FROM generate_series(0, " + (TOOLS - 1) + ") i");
+        postgres.runUpdateStatement("INSERT INTO tool_tag (toolid, tagid) SELECT " + FIRST_ID + " + i, " + FIRST_ID
+                + " + i FROM generate_series(0, " + (TOOLS - 1) + ") i");
+        postgres.runUpdateStatement("INSERT INTO label (id, value) SELECT " + FIRST_ID + " + i, 'label' || i FROM generate_series(0, "
+                + (TOOLS - 1) + ") i");
+        postgres.runUpdateStatement("INSERT INTO entry_label (entryid, labelid) SELECT " + FIRST_ID + " + i, " + FIRST_ID
+                + " + i FROM generate_series(0, " + (TOOLS - 1) + ") i");
+    }
+
+    @Test
+    public void everyBatchIsFilledIn() {
+        List<EntrySummary> summaries;
+        Session session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+        try {
+            summaries = new ToolDAO(sessionFactory).findPublishedSummaries();
+        } finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            session.close();
+        }
+
+        // tool 6 of the fixtures and the bulk tools
+        Assert.assertEquals(TOOLS + 1, summaries.size());
+        for (EntrySummary summary : summaries) {
+            if (summary.getId() == 6) {
+                continue;
+            }
+            long i = summary.getId() - FIRST_ID;
+            Assert.assertEquals(Collections.singletonList("label" + i), summary.getLabels());
+            Assert.assertEquals(1, summary.getVersions().size());
+            Assert.assertEquals("v" + i, summary.getVersions().get(0).getName());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.io.IOException;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Requests an endpoint of each {@link io.dockstore.webservice.helpers.FetchPlan} and checks which collections of the returned tool
+ * are written out. Tool 6 of the fixtures is published and has one tag.
+ *
+ * @author agent
+ */
+public class FetchPlanTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private Client client;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        client = ClientBuilder.newClient();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    /**
+     * @param path  path of the endpoint
+     * @param query query parameters as name, value pairs
+     * @return the body of the response
+     */
+    private JsonNode get(String path, String... query) throws IOException {
+        WebTarget target = client.target("http://localhost:" + RULE.getLocalPort()).path(path);
+        for (int i = 0; i < query.length; i += 2) {
+            target = target.queryParam(query[i], query[i + 1]);
+        }
+        Response response = target.request().header(HttpHeaders.AUTHORIZATION, "Bearer " + CommonTestUtilities.DUMMY_TOKEN_1).get();
+        Assert.assertEquals(200, response.getStatus());
+        return MAPPER.readTree(response.readEntity(String.class));
+    }
+
+    /**
+     * @param tools a JSON array of tools
+     * @return tool 6
+     */
+    private static JsonNode tool6(JsonNode tools) {
+        for (JsonNode tool : tools) {
+            if (tool.get("id").asLong() == 6) {
+                return tool;
+            }
+        }
+        throw new AssertionError("tool 6 is not listed");
+    }
+
+    @Test
+    public void summaryLeavesOutVersions() throws IOException {
+        JsonNode tool = tool6(get("/containers/search", "pattern", "test6"));
+        Assert.assertTrue(tool.get("labels").isArray());
+        Assert.assertTrue(tool.get("tags").isNull());
+    }
+
+    @Test
+    public void versionsLeavesOutFiles() throws IOException {
+        JsonNode tool = tool6(get("/containers/published"));
+        Assert.assertTrue(tool.get("labels").isArray());
+        Assert.assertEquals(1, tool.get("tags").size());
+        Assert.assertTrue(tool.get("tags").get(0).get("sourceFiles").isNull());
+    }
+
+    @Test
+    public void fullIncludesFiles() throws IOException {
+        JsonNode tool = get("/containers/6");
+        Assert.assertTrue(tool.get("labels").isArray());
+        Assert.assertEquals(1, tool.get("tags").size());
+        Assert.assertTrue(tool.get("tags").get(0).get("sourceFiles").isArray());
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Counter;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.FileContent;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.helpers.FileContentCleanup;
+import io.dockstore.webservice.jdbi.FileContentListener;
+import io.dockstore.webservice.jdbi.FileDAO;
+import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Writes source files through Hibernate and checks which rows {@link FileContentListener} stores for
+ * their content. Contents are unique to each test.
+ *
+ * @author agent
+ */
+public class FileContentListenerTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private SessionFactory sessionFactory;
+    private String content;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        sessionFactory = RULE.getApplication().getHibernate().getSessionFactory();
+        // content that no other test stores
+        content = "cwlVersion: v1.0\nid: " + UUID.randomUUID() + "\n";
+    }
+
+    private SourceFile newFile() {
+        SourceFile file = new SourceFile();
+        file.setType(SourceFile.FileType.DOCKSTORE_CWL);
+        file.setPath("/Dockstore.cwl");
+        file.setContent(content);
+        return file;
+    }
+
+    private static long count(String sql, Object... params) {
+        return CommonTestUtilities.getTestingPostgres().<Long>runSelectStatement(sql, new ScalarHandler<>(), params);
+    }
+
+    private long storedCopies() {
+        return count("SELECT count(*) FROM filecontent WHERE id = ?", FileContent.hash(content));
+    }
+
+    @Test
+    public void sameContentIsStoredOnce() {
+        SourceFile first = newFile();
+        SourceFile second = newFile();
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            session.save(first);
+            session.flush();
+            Assert.assertNull("stored content is not written again", first.getNewContent());
+            Assert.assertEquals(content, first.getContent());
+            session.save(second);
+            first.setPath("/renamed.cwl");
+            session.flush();
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+        Assert.assertEquals(1, storedCopies());
+        Assert.assertEquals(2, count("SELECT count(*) FROM sourcefile WHERE contentid = ?", FileContent.hash(content)));
+    }
+
+    @Test
+    public void oneFlushTakesThreeStatements() {
+        final int files = 20;
+        Counter statements = RULE.getEnvironment().metrics().counter(FileContentListener.STATEMENTS_METRIC);
+        long before = statements.getCount();
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < files; i++) {
+                SourceFile file = newFile();
+                file.setContent(content + i);
+                session.save(file);
+            }
+            session.flush();
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+        // one statement locks the contents, one marks those that are there as stored and one batch stores the others
+        Assert.assertEquals(3, statements.getCount() - before);
+        Assert.assertEquals(files, count("SELECT count(*) FROM filecontent WHERE content LIKE ?", content + "%"));
+    }
+
+    /**
+     * Runs the writes in another thread so that a writer that waits for a lock fails the test instead of hanging it
+     */
+    private static void withinSeconds(Runnable writes) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(writes).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void contentIsCommittedBeforeTheFile() throws Exception {
+        Session first = sessionFactory.openSession();
+        try {
+            Transaction firstTransaction = first.beginTransaction();
+            first.save(newFile());
+            first.flush();
+            Assert.assertEquals("other transactions see the content", 1, storedCopies());
+
+            // a second writer of the same content does not wait for the first one
+            withinSeconds(() -> {
+                Session session = sessionFactory.openSession();
+                try {
+                    Transaction transaction = session.beginTransaction();
+                    session.save(newFile());
+                    session.flush();
+                    transaction.commit();
+                } finally {
+                    session.close();
+                }
+            });
+            firstTransaction.commit();
+        } finally {
+            first.close();
+        }
+        Assert.assertEquals(1, storedCopies());
+        Assert.assertEquals(2, count("SELECT count(*) FROM sourcefile WHERE contentid = ?", FileContent.hash(content)));
+    }
+
+    @Test
+    public void flushesInOppositeOrderDoNotDeadlock() throws Exception {
+        Session first = sessionFactory.openSession();
+        Session second = sessionFactory.openSession();
+        try {
+            Transaction firstTransaction = first.beginTransaction();
+            Transaction secondTransaction = second.beginTransaction();
+            withinSeconds(() -> {
+                SourceFile x = newFile();
+                SourceFile y = newFile();
+                y.setContent(content + "y");
+                first.save(x);
+                first.flush();
+                second.save(y);
+                second.flush();
+                SourceFile otherX = newFile();
+                SourceFile otherY = newFile();
+                otherY.setContent(content + "y");
+                first.save(otherY);
+                first.flush();
+                second.save(otherX);
+                second.flush();
+            });
+            firstTransaction.commit();
+            secondTransaction.commit();
+        } finally {
+            first.close();
+            second.close();
+        }
+        Assert.assertEquals(1, storedCopies());
+        Assert.assertEquals(2, count("SELECT count(*) FROM sourcefile WHERE contentid = ?", FileContent.hash(content + "y")));
+    }
+
+    @Test
+    public void cleanupDeletesOnlyOrphans() {
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            session.save(newFile());
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+        String orphan = insertOrphan(content + "orphan", 2);
+        String recent = insertOrphan(content + "recent", 0);
+
+        cleanup().run();
+        Assert.assertEquals(0, count("SELECT count(*) FROM filecontent WHERE id = ?", orphan));
+        Assert.assertEquals("content may be about to be referred to by an uncommitted file", 1,
+                count("SELECT count(*) FROM filecontent WHERE id = ?", recent));
+        Assert.assertEquals(1, storedCopies());
+        Assert.assertEquals(0, count("SELECT count(*) FROM filecontent f WHERE created < now() - interval '1 day' AND NOT EXISTS "
+                + "(SELECT 1 FROM sourcefile s WHERE s.contentid = f.id)"));
+    }
+
+    @Test
+    public void storingOldContentAgainKeepsIt() {
+        insertOrphan(content, 2);
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            session.save(newFile());
+            session.flush();
+            // the file is not committed yet
+            cleanup().run();
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+        Assert.assertEquals(1, storedCopies());
+        Assert.assertEquals(1, count("SELECT count(*) FROM sourcefile WHERE contentid = ?", FileContent.hash(content)));
+    }
+
+    /**
+     * @return the id of content that no file refers to, stored the given number of days ago
+     */
+    private static String insertOrphan(String orphanContent, int days) {
+        String id = FileContent.hash(orphanContent);
+        CommonTestUtilities.getTestingPostgres().runUpdateStatement(
+                "INSERT INTO filecontent (id, content, created) VALUES (?, ?, now() - ? * interval '1 day')", id, orphanContent, days);
+        return id;
+    }
+
+    private FileContentCleanup cleanup() {
+        return new UnitOfWorkAwareProxyFactory(RULE.getApplication().getHibernate())
+                .create(FileContentCleanup.class, new Class[] { FileDAO.class }, new Object[] { new FileDAO(sessionFactory) });
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.common.Registry;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.jdbi.PublishedEntryDAO;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import io.swagger.api.NotFoundException;
+import io.swagger.api.impl.ToolsApiServiceImpl;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Lists published tools through {@link PublishedEntryDAO} and the GA4GH tools endpoint. The published entries of the fixtures
+ * are unpublished first, so only the tools inserted here are listed.
+ *
+ * @author agent
+ */
+public class PublishedEntryDAOTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private SessionFactory sessionFactory;
+    private PublishedEntryDAO publishedEntryDAO;
+    private Session session;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        sessionFactory = RULE.getApplication().getHibernate().getSessionFactory();
+        publishedEntryDAO = new PublishedEntryDAO(sessionFactory);
+        // the mapping requires a registry, but tools stored before it did may not have one
+        execute("ALTER TABLE tool ALTER COLUMN registry DROP NOT NULL", "UPDATE tool SET ispublished = false",
+                "UPDATE workflow SET ispublished = false");
+        session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+    }
+
+    @After
+    public void tearDown() {
+        ManagedSessionContext.unbind(sessionFactory);
+        session.close();
+        execute("DELETE FROM toolprojection", "DELETE FROM user_entry WHERE entryid >= 800000", "DELETE FROM tool WHERE id >= 800000",
+                "ALTER TABLE tool ALTER COLUMN registry SET NOT NULL");
+    }
+
+    /**
+     * @param id       id of the tool, also its name
+     * @param registry registry of the tool, may be null
+     * @param gitUrl   git url of the tool, may be null
+     */
+    private void insertTool(long id, Registry registry, String gitUrl) {
+        String registryValue = registry == null ? "NULL" : "'" + registry.name() + "'";
+        String gitUrlValue = gitUrl == null ? "NULL" : "'" + gitUrl + "'";
+        execute("INSERT INTO tool (id, name, namespace, registry, path, toolname, ispublished, giturl, privateaccess) VALUES (" + id
+                + ", 'tool" + id + "', 'namespace', " + registryValue + ", 'quay.io/namespace/tool" + id + "', '', true, " + gitUrlValue
+                + ", false)");
+    }
+
+    private static Set<Long> ids(List<Entry> entries) {
+        return entries.stream().map(Entry::getId).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    @Test
+    public void registryFilterKeepsToolsWithoutRegistry() {
+        insertTool(800001, Registry.QUAY_IO, "git@github.com:a/1.git");
+        insertTool(800002, Registry.DOCKER_HUB, "git@github.com:a/2.git");
+        insertTool(800003, null, "git@github.com:a/3.git");
+
+        PublishedEntryDAO.Filter quay = new PublishedEntryDAO.Filter().registries(EnumSet.of(Registry.QUAY_IO));
+        Assert.assertEquals(new TreeSet<>(Arrays.asList(800001L, 800003L)), ids(publishedEntryDAO.findPublished(quay, 0, 10)));
+        Assert.assertEquals(2, publishedEntryDAO.countPublished(quay));
+
+        PublishedEntryDAO.Filter none = new PublishedEntryDAO.Filter().registries(EnumSet.noneOf(Registry.class));
+        Assert.assertEquals("a registry that matches nothing still keeps tools without one",
+                new TreeSet<>(Collections.singletonList(800003L)), ids(publishedEntryDAO.findPublished(none, 0, 10)));
+        Assert.assertEquals(1, publishedEntryDAO.countPublished(none));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void pagesAreFullAndCounted() throws NotFoundException {
+        for (long id = 800001; id <= 800004; id++) {
+            insertTool(id, Registry.QUAY_IO, "git@github.com:a/" + id + ".git");
+        }
+        insertTool(800005, null, "git@github.com:a/800005.git");
+        insertTool(800006, Registry.DOCKER_HUB, "git@github.com:a/800006.git");
+        ToolsApiServiceImpl api = new ToolsApiServiceImpl();
+
+        // four quay.io tools and one without a registry, in pages of two
+        int listed = 0;
+        for (int page = 0; page < 3; page++) {
+            Response response = api.toolsGet(null, "quay.io", null, null, null, null, null, String.valueOf(page), 2, null);
+            List<io.swagger.model.Tool> tools = (List<io.swagger.model.Tool>)response.getEntity();
+            Assert.assertEquals(page < 2 ? 2 : 1, tools.size());
+            Assert.assertTrue(((String)response.getMetadata().getFirst("last-page")).endsWith("offset=2"));
+            Assert.assertEquals(page < 2, response.getMetadata().containsKey("next-page"));
+            listed += tools.size();
+        }
+        Assert.assertEquals(5, listed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cursorPagesThroughToolsWithoutGitUrl() throws NotFoundException {
+        insertTool(800001, Registry.QUAY_IO, "git@github.com:a/1.git");
+        insertTool(800002, Registry.QUAY_IO, null);
+        insertTool(800003, Registry.QUAY_IO, null);
+        insertTool(800004, Registry.QUAY_IO, null);
+        insertTool(800005, Registry.QUAY_IO, "git@github.com:a/0.git");
+        ToolsApiServiceImpl api = new ToolsApiServiceImpl();
+
+        // the first page is requested without an offset, so the next-page links carry cursors
+        List<String> listed = new ArrayList<>();
+        String offset = null;
+        do {
+            Response response = api.toolsGet(null, null, null, null, null, null, null, offset, 2, null);
+            ((List<io.swagger.model.Tool>)response.getEntity()).forEach(tool -> listed.add(tool.getToolname()));
+            String nextPage = (String)response.getMetadata().getFirst("next-page");
+            offset = nextPage == null ? null : nextPage.substring(nextPage.lastIndexOf("offset=") + "offset=".length());
+        } while (offset != null && listed.size() < 10);
+
+        // entries without a git url come first, every entry is listed once
+        Assert.assertEquals(Arrays.asList("tool800002", "tool800003", "tool800004", "tool800005", "tool800001"), listed);
+    }
+
+    @Test
+    public void badPagesAreRejected() throws NotFoundException {
+        ToolsApiServiceImpl api = new ToolsApiServiceImpl();
+        assertBadRequest(() -> api.toolsGet(null, null, null, null, null, null, null, "99999999999", 10, null));
+        // the first entry of this page is past the largest int
+        assertBadRequest(() -> api.toolsGet(null, null, null, null, null, null, null, "2147483", 1000, null));
+        assertBadRequest(() -> api.toolsGet(null, null, null, null, null, null, null, null, Integer.MAX_VALUE, null));
+        assertBadRequest(() -> api.toolsGet(null, null, null, null, null, null, null, null, ToolsApiServiceImpl.MAX_PAGE_SIZE + 1, null));
+        assertBadRequest(() -> api.toolsGet(null, null, null, null, null, null, null, null, 0, null));
+
+        Response response = api.toolsGet(null, null, null, null, null, null, null, "2147482", 1000, null);
+        Assert.assertEquals(200, response.getStatus());
+    }
+
+    private interface ToolsRequest {
+        Response get() throws NotFoundException;
+    }
+
+    private static void assertBadRequest(ToolsRequest request) throws NotFoundException {
+        try {
+            request.get();
+            Assert.fail("the request was accepted");
+        } catch (WebApplicationException e) {
+            Assert.assertEquals(400, e.getResponse().getStatus());
+        }
+    }
+
+    private void execute(String... statements) {
+        Session executeSession = sessionFactory.openSession();
+        try {
+            Transaction transaction = executeSession.beginTransaction();
+            executeSession.doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (String sql : statements) {
+                        statement.execute(sql);
+                    }
+                }
+            });
+            transaction.commit();
+        } finally {
+            executeSession.close();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.hql.internal.ast.ASTQueryTranslatorFactory;
+import org.hibernate.hql.spi.ParameterTranslations;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.Type;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Runs EXPLAIN on every named query against a database seeded with many users, tokens and entries, and fails if one of them
+ * reads a whole seeded table. Queries that list a whole table on purpose are left out.
+ *
+ * @author agent
+ */
+public class QueryPlanTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    /**
+     * Enough rows that the planner prefers an index whenever there is a usable one. Ids start far above those of
+     * {@link CommonTestUtilities.TestingPostgres#clearDatabase()}.
+     */
+    private static final List<String> SEED = ImmutableList.of(
+            "INSERT INTO enduser (id, isadmin, username) SELECT 100000 + i, false, 'user' || i FROM generate_series(1, 20000) i",
+            "INSERT INTO token (id, content, contenthash, tokensource, userid, username) SELECT 700000 + i, md5(i::text),"
+                    + " md5(i::text) || md5(i::text),"
+                    + " (ARRAY['dockstore', 'github.com', 'quay.io', 'bitbucket.org'])[1 + i % 4], 100001 + i % 20000, 'user' || i"
+                    + " FROM generate_series(1, 80000) i",
+            // one percent of the entries are published
+            "INSERT INTO tool (id, name, namespace, registry, path, toolname, ispublished, giturl, privateaccess) SELECT 200000 + i,"
+                    + " 'tool' || i, 'namespace' || i % 500, 'QUAY_IO', 'quay.io/namespace' || i % 500 || '/tool' || i, '', i % 100 = 0,"
+                    + " 'git@github.com:namespace' || i % 500 || '/tool' || i || '.git', false FROM generate_series(1, 20000) i",
+            "INSERT INTO workflow (id, organization, repository, workflowname, path, giturl, ispublished, descriptortype,"
+                    + " defaultworkflowpath) SELECT 300000 + i, 'organization' || i % 500, 'repository' || i, 'workflow',"
+                    + " 'organization' || i % 500 || '/repository' || i || '/workflow', 'git@github.com:organization' || i % 500"
+                    + " || '/repository' || i || '.git', i % 100 = 0, 'cwl', '/Dockstore.cwl' FROM generate_series(1, 20000) i",
+            "INSERT INTO user_entry (userid, entryid) SELECT 100000 + i, 200000 + i FROM generate_series(1, 20000) i",
+            "INSERT INTO user_entry (userid, entryid) SELECT 100000 + i, 300000 + i FROM generate_series(1, 20000) i",
+            "INSERT INTO starred (userid, entryid) SELECT 100001 + i % 20000, 200000 + i FROM generate_series(1, 20000) i",
+            "INSERT INTO label (id, value) SELECT 400000 + i, 'label' || i FROM generate_series(1, 20000) i",
+            "INSERT INTO entry_label (entryid, labelid) SELECT 200000 + i, 400000 + i FROM generate_series(1, 20000) i",
+            "INSERT INTO tag (id, name, valid, hidden, dirtybit, verified, automated, size, cwlpath, wdlpath, dockerfilepath)"
+                    + " SELECT 500000 + i, 'latest', true, false, false, false, true, 0, '/Dockstore.cwl', '/Dockstore.wdl', '/Dockerfile'"
+                    + " FROM generate_series(1, 20000) i",
+            "INSERT INTO tool_tag (toolid, tagid) SELECT 200000 + i, 500000 + i FROM generate_series(1, 20000) i",
+            "INSERT INTO workflowversion (id, name, reference, valid, hidden, dirtybit, verified, workflowpath)"
+                    + " SELECT 600000 + i, 'master', 'master', true, false, false, false, '/Dockstore.cwl'"
+                    + " FROM generate_series(1, 20000) i",
+            "INSERT INTO workflow_workflowversion (workflowid, workflowversionid) SELECT 300000 + i, 600000 + i"
+                    + " FROM generate_series(1, 20000) i",
+            "INSERT INTO refreshjob (userid, type, status, submitted, total, completed) SELECT 100001 + i % 20000, 'TOOLS', 'SUCCEEDED',"
+                    + " now(), 1, 1 FROM generate_series(1, 20000) i",
+            "ANALYZE");
+
+    private static final Set<String> SEEDED_TABLES = ImmutableSet.of("enduser", "token", "tool", "workflow", "user_entry", "starred",
+            "label", "entry_label", "tag", "tool_tag", "workflowversion", "workflow_workflowversion", "refreshjob");
+
+    /**
+     * Named queries that return every row, or most rows, on purpose
+     */
+    private static final Set<String> FULL_SCANS = ImmutableSet.of("io.dockstore.webservice.core.Group.findAll",
+            "io.dockstore.webservice.core.Token.findAll", "io.dockstore.webservice.core.Token.findBySource",
+            "io.dockstore.webservice.core.Tool.findAll", "io.dockstore.webservice.core.Tool.findByMode",
+            "io.dockstore.webservice.core.User.findAll", "io.dockstore.webservice.core.Workflow.findAll");
+
+    private SessionFactoryImplementor sessionFactory;
+
+    @Before
+    public void seedDatabase() {
+        CommonTestUtilities.clearState();
+        DockstoreWebserviceApplication application = RULE.getApplication();
+        sessionFactory = (SessionFactoryImplementor)application.getHibernate().getSessionFactory();
+        execute(SEED);
+    }
+
+    @After
+    public void clearDatabase() {
+        execute(ImmutableList.of("DELETE FROM refreshjob_error", "DELETE FROM refreshjob"));
+        CommonTestUtilities.clearState();
+    }
+
+    @Test
+    public void namedQueriesUseIndexes() {
+        Map<String, String> namedQueries = namedQueries();
+        Assert.assertFalse(namedQueries.isEmpty());
+        List<String> failures = new ArrayList<>();
+        Session session = sessionFactory.openSession();
+        try {
+            namedQueries.forEach((name, hql) -> {
+                if (FULL_SCANS.contains(name)) {
+                    return;
+                }
+                List<String> plan = explain(session, name, hql);
+                for (String line : plan) {
+                    Matcher matcher = SEQ_SCAN.matcher(line);
+                    if (matcher.find() && SEEDED_TABLES.contains(matcher.group(1))) {
+                        failures.add(name + " reads all of " + matcher.group(1) + '\n' + String.join("\n", plan));
+                        break;
+                    }
+                }
+            });
+        } finally {
+            session.close();
+        }
+        Assert.assertTrue(String.join("\n\n", failures), failures.isEmpty());
+    }
+
+    /**
+     * @return name -> HQL of every named query of the mapped entities
+     */
+    private Map<String, String> namedQueries() {
+        Map<String, String> namedQueries = new TreeMap<>();
+        for (ClassMetadata metadata : sessionFactory.getAllClassMetadata().values()) {
+            Class<?> mappedClass = metadata.getMappedClass();
+            List<NamedQuery> annotations = new ArrayList<>();
+            if (mappedClass.isAnnotationPresent(NamedQueries.class)) {
+                Collections.addAll(annotations, mappedClass.getAnnotation(NamedQueries.class).value());
+            }
+            if (mappedClass.isAnnotationPresent(NamedQuery.class)) {
+                annotations.add(mappedClass.getAnnotation(NamedQuery.class));
+            }
+            annotations.forEach(namedQuery -> namedQueries.put(namedQuery.name(), namedQuery.query()));
+        }
+        return namedQueries;
+    }
+
+    /**
+     * Translate a query to SQL the way Hibernate does and ask Postgres how it would run it, with a sample value for each parameter
+     *
+     * @param session a session of the webservice
+     * @param name    name of the query
+     * @param hql     the query
+     * @return lines of the query plan
+     */
+    private List<String> explain(Session session, String name, String hql) {
+        QueryTranslator translator = new ASTQueryTranslatorFactory().createQueryTranslator(name, hql, Collections.emptyMap(),
+                sessionFactory, null);
+        translator.compile(Collections.emptyMap(), false);
+        ParameterTranslations parameters = translator.getParameterTranslations();
+        List<String> plan = new ArrayList<>();
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + translator.collectSqlStrings().get(0))) {
+                for (Object parameter : parameters.getNamedParameterNames()) {
+                    Type type = parameters.getNamedParameterExpectedType((String)parameter);
+                    for (int location : parameters.getNamedParameterSqlLocations((String)parameter)) {
+                        type.nullSafeSet(statement, sampleValue(type), location + 1, (SessionImplementor)session);
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.add(resultSet.getString(1));
+                    }
+                }
+            }
+        });
+        return plan;
+    }
+
+    private static Object sampleValue(Type type) {
+        Class<?> returnedClass = type.getReturnedClass();
+        if (returnedClass.isEnum()) {
+            return returnedClass.getEnumConstants()[0];
+        } else if (returnedClass == Long.class) {
+            return 100001L;
+        } else if (returnedClass == Integer.class) {
+            return 1;
+        } else if (returnedClass == Boolean.class) {
+            return true;
+        } else if (Date.class.isAssignableFrom(returnedClass)) {
+            return new Date();
+        }
+        return "sample";
+    }
+
+    private void execute(List<String> statements) {
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            session.doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    for (String sql : statements) {
+                        statement.execute(sql);
+                    }
+                }
+            });
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+    }
+}
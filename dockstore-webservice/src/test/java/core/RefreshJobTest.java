@@ -0,0 +1,219 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.core.RefreshJob;
+import io.dockstore.webservice.helpers.RefreshJobRunner;
+import io.dockstore.webservice.helpers.RefreshJobService;
+import io.dockstore.webservice.jdbi.RefreshJobDAO;
+import io.dockstore.webservice.jdbi.UserDAO;
+import io.dropwizard.hibernate.UnitOfWork;
+import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Runs refresh jobs against the test database, with a runner that refreshes nothing so that no external service is needed.
+ * The fixtures have two users, 1 and 2.
+ *
+ * @author agent
+ */
+public class RefreshJobTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Set<Long> FAILING_USERS = Collections.synchronizedSet(new HashSet<>());
+    private static final Set<Long> TAKEN_OVER_AT_USERS = Collections.synchronizedSet(new HashSet<>());
+
+    private SessionFactory sessionFactory;
+    private RefreshJobDAO refreshJobDAO;
+    private RefreshJobService service;
+
+    /**
+     * Refreshes nothing, but fails for the users in FAILING_USERS, and hands the job to another web service while refreshing the
+     * users in TAKEN_OVER_AT_USERS
+     */
+    public static class StubRefreshJobRunner extends RefreshJobRunner {
+        public StubRefreshJobRunner(RefreshJobDAO refreshJobDAO, UserDAO userDAO) {
+            super(refreshJobDAO, userDAO, null, null);
+        }
+
+        @Override
+        @UnitOfWork
+        public void refreshUser(long jobId, long userId) {
+            if (TAKEN_OVER_AT_USERS.contains(userId)) {
+                CommonTestUtilities.getTestingPostgres().runUpdateStatement("UPDATE refreshjob SET owner = 'other' WHERE id = ?", jobId);
+            }
+            if (FAILING_USERS.contains(userId)) {
+                throw new IllegalStateException("quay.io is down");
+            }
+        }
+    }
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        FAILING_USERS.clear();
+        TAKEN_OVER_AT_USERS.clear();
+        DockstoreWebserviceApplication application = RULE.getApplication();
+        sessionFactory = application.getHibernate().getSessionFactory();
+        refreshJobDAO = new RefreshJobDAO(sessionFactory);
+        UserDAO userDAO = new UserDAO(sessionFactory);
+        RefreshJobRunner runner = new UnitOfWorkAwareProxyFactory(application.getHibernate()).create(StubRefreshJobRunner.class,
+                new Class[] { RefreshJobDAO.class, UserDAO.class }, new Object[] { refreshJobDAO, userDAO });
+        // jobs run as soon as they are submitted, and the tests trigger heartbeats themselves
+        service = new RefreshJobService(runner, MoreExecutors.newDirectExecutorService(), null, "this", LEASE_MILLIS);
+    }
+
+    @After
+    public void clearJobs() {
+        execute("DELETE FROM refreshjob_error");
+        execute("DELETE FROM refreshjob");
+    }
+
+    @Test
+    public void jobRunsToCompletion() {
+        long id = service.submit(null, RefreshJob.Type.TOOLS).getId();
+        RefreshJob job = load(id);
+        Assert.assertEquals(RefreshJob.Status.SUCCEEDED, job.getStatus());
+        Assert.assertEquals(2, job.getTotal());
+        Assert.assertEquals(2, job.getCompleted());
+        Assert.assertTrue(job.getErrors().isEmpty());
+        Assert.assertNotNull(job.getStarted());
+        Assert.assertNotNull(job.getFinished());
+        Assert.assertEquals("this", job.getOwner());
+    }
+
+    @Test
+    public void errorsAreRecordedPerUser() {
+        FAILING_USERS.add(2L);
+        long id = service.submit(null, RefreshJob.Type.WORKFLOWS).getId();
+        RefreshJob job = load(id);
+        Assert.assertEquals(RefreshJob.Status.FAILED, job.getStatus());
+        Assert.assertEquals("the other user is still refreshed", 2, job.getCompleted());
+        Assert.assertEquals(Collections.singletonList("User 2: quay.io is down"), job.getErrors());
+    }
+
+    @Test
+    public void identicalJobIsNotQueuedTwice() {
+        execute("INSERT INTO refreshjob (id, userid, type, status, submitted, total, completed, owner, heartbeat)"
+                + " VALUES (900001, 1, 'TOOLS', 'RUNNING', now(), 1, 0, 'other', now())");
+        Assert.assertEquals(900001, service.submit(1L, RefreshJob.Type.TOOLS).getId());
+        Assert.assertNotEquals(900001, service.submit(1L, RefreshJob.Type.WORKFLOWS).getId());
+        Assert.assertEquals("the job of the other web service is left alone", RefreshJob.Status.RUNNING, load(900001).getStatus());
+    }
+
+    @Test
+    public void onlyJobsWithExpiredLeasesAreResumed() {
+        execute("INSERT INTO refreshjob (id, userid, type, status, submitted, total, completed, owner, heartbeat)"
+                + " VALUES (900001, 1, 'TOOLS', 'RUNNING', now(), 1, 0, 'live', now())");
+        execute("INSERT INTO refreshjob (id, userid, type, status, submitted, total, completed, owner, heartbeat)"
+                + " VALUES (900002, 1, 'TOOLS', 'RUNNING', now(), 1, 0, 'stopped', now() - interval '1 hour')");
+        execute("INSERT INTO refreshjob (id, userid, type, status, submitted, total, completed)"
+                + " VALUES (900003, 2, 'WORKFLOWS', 'QUEUED', now(), 0, 0)");
+        execute("INSERT INTO refreshjob (id, userid, type, status, submitted, total, completed, owner, heartbeat)"
+                + " VALUES (900004, 2, 'TOOLS', 'SUCCEEDED', now(), 1, 1, 'stopped', now() - interval '1 hour')");
+
+        service.heartbeat();
+
+        RefreshJob live = load(900001);
+        Assert.assertEquals(RefreshJob.Status.RUNNING, live.getStatus());
+        Assert.assertEquals("live", live.getOwner());
+        for (long id : new long[] { 900002, 900003 }) {
+            RefreshJob resumed = load(id);
+            Assert.assertEquals(RefreshJob.Status.SUCCEEDED, resumed.getStatus());
+            Assert.assertEquals("this", resumed.getOwner());
+            Assert.assertEquals(1, resumed.getCompleted());
+        }
+        Assert.assertEquals("finished jobs are not run again", "stopped", load(900004).getOwner());
+    }
+
+    @Test
+    public void heartbeatKeepsJobs() {
+        execute("INSERT INTO refreshjob (id, userid, type, status, submitted, total, completed, owner, heartbeat)"
+                + " VALUES (900001, 1, 'TOOLS', 'QUEUED', now(), 0, 0, 'this', now() - interval '5 minutes')");
+        final long before = load(900001).getHeartbeat().getTime();
+
+        service.heartbeat();
+
+        RefreshJob job = load(900001);
+        Assert.assertTrue(job.getHeartbeat().getTime() > before);
+        Assert.assertEquals("a job with a renewed lease is not resumed twice", RefreshJob.Status.QUEUED, job.getStatus());
+    }
+
+    @Test
+    public void jobTakenOverStopsHere() {
+        TAKEN_OVER_AT_USERS.add(1L);
+        long id = service.submit(null, RefreshJob.Type.TOOLS).getId();
+        RefreshJob job = load(id);
+        Assert.assertEquals("other", job.getOwner());
+        Assert.assertEquals("the new owner runs and finishes the job", RefreshJob.Status.RUNNING, job.getStatus());
+        Assert.assertEquals(0, job.getCompleted());
+        Assert.assertNull(job.getFinished());
+    }
+
+    private RefreshJob load(long id) {
+        Session session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+        try {
+            RefreshJob job = refreshJobDAO.findById(id);
+            job.getErrors().size();
+            return job;
+        } finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            session.close();
+        }
+    }
+
+    private void execute(String sql) {
+        Session session = sessionFactory.openSession();
+        try {
+            Transaction transaction = session.beginTransaction();
+            session.doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(sql);
+                }
+            });
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+    }
+}
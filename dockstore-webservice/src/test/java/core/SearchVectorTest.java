@@ -0,0 +1,112 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.api.EntrySummary;
+import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Searches tools through the search vector that the triggers of searchvector.sql fill in. Tools are written with plain SQL, so
+ * only the triggers can fill in their vectors.
+ *
+ * @author agent
+ */
+public class SearchVectorTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private SessionFactory sessionFactory;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        sessionFactory = RULE.getApplication().getHibernate().getSessionFactory();
+        // the name of the first tool matches, only the description of the second one does
+        insertTool(600001, "bwa-mem", "an aligner", true);
+        insertTool(600002, "aligner", "wraps bwa", true);
+        insertTool(600003, "samtools", "sorts alignments", true);
+        insertTool(600004, "bwa", "not published", false);
+    }
+
+    private static void insertTool(long id, String name, String description, boolean published) {
+        CommonTestUtilities.getTestingPostgres().runUpdateStatement(
+                "INSERT INTO tool (id, name, namespace, registry, path, toolname, description, ispublished, privateaccess) "
+                        + "VALUES (?, ?, 'lab', 'QUAY_IO', ?, '', ?, ?, false)", id, name, "quay.io/lab/" + name, description, published);
+    }
+
+    private List<Long> search(String pattern) {
+        Session session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+        try {
+            return new ToolDAO(sessionFactory).searchSummaries(pattern, 0, 10).stream().map(EntrySummary::getId)
+                    .filter(id -> id > 600000).collect(Collectors.toList());
+        } finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            session.close();
+        }
+    }
+
+    @Test
+    public void triggerFillsSearchVector() {
+        Object vector = CommonTestUtilities.getTestingPostgres()
+                .runSelectStatement("SELECT searchvector::text FROM tool WHERE id = 600001", new ScalarHandler<>());
+        Assert.assertNotNull(vector);
+        Assert.assertTrue(vector.toString().contains("'bwa'"));
+
+        // updates refresh the vector too
+        CommonTestUtilities.getTestingPostgres().runUpdateStatement("UPDATE tool SET description = 'variant caller' WHERE id = 600003");
+        Assert.assertEquals(Collections.singletonList(600003L), search("variant"));
+    }
+
+    @Test
+    public void namesRankAboveDescriptions() {
+        Assert.assertEquals(Arrays.asList(600001L, 600002L), search("bwa"));
+        Assert.assertEquals(Arrays.asList(600002L, 600001L), search("aligner"));
+    }
+
+    @Test
+    public void wordsArePrefixes() {
+        Assert.assertEquals(Arrays.asList(600001L, 600002L), search("bw"));
+        List<Long> align = search("align");
+        Assert.assertEquals(Long.valueOf(600002L), align.get(0));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(600001L, 600002L, 600003L)), new HashSet<>(align));
+        Assert.assertEquals(Collections.singletonList(600001L), search("bwa me"));
+        Assert.assertEquals(Collections.singletonList(600003L), search("quay.io/lab/sam"));
+        Assert.assertEquals(Collections.emptyList(), search("gatk"));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.io.IOException;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Runs the webservice with the caches of ehcache.xml enabled and checks that changes made through it show up in cached
+ * queries right away. Tool 5 of the fixtures is unpublished and has one tag.
+ *
+ * @author agent
+ */
+public class SecondLevelCacheTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore-cache.yml"));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private SessionFactory sessionFactory;
+    private Client client;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        sessionFactory = RULE.getApplication().getHibernate().getSessionFactory();
+        // the fixtures were written behind the webservice's back
+        sessionFactory.getCache().evictAllRegions();
+        client = ClientBuilder.newClient();
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    private Invocation.Builder request(String path) {
+        return client.target("http://localhost:" + RULE.getLocalPort()).path(path).request()
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + CommonTestUtilities.DUMMY_TOKEN_1);
+    }
+
+    private JsonNode publishedByPath() throws IOException {
+        Response response = request("/containers/path/quay.io%2Ftest_org%2Ftest5/published").get();
+        Assert.assertEquals(200, response.getStatus());
+        return MAPPER.readTree(response.readEntity(String.class));
+    }
+
+    private void publish(boolean publish) {
+        Response response = request("/containers/5/publish").post(Entity.json("{\"publish\": " + publish + "}"));
+        Assert.assertEquals(200, response.getStatus());
+        response.close();
+    }
+
+    private static boolean hasTag(JsonNode tool, String name) {
+        for (JsonNode tag : tool.get("tags")) {
+            if (name.equals(tag.get("name").asText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void changesShowUpInFindPublishedByPath() throws IOException {
+        Statistics statistics = sessionFactory.getStatistics();
+        Assert.assertEquals(0, publishedByPath().size());
+        publish(true);
+        Assert.assertEquals(1, publishedByPath().size());
+        long queryCacheHits = statistics.getQueryCacheHitCount();
+        Assert.assertEquals(1, publishedByPath().size());
+        Assert.assertTrue("the query is served from the cache", statistics.getQueryCacheHitCount() > queryCacheHits);
+
+        // a refresh adds tags the same way
+        Response response = request("/containers/5/tags")
+                .post(Entity.json("[{\"name\": \"2.0\", \"reference\": \"master\", \"image_id\": \"abc123\"}]"));
+        Assert.assertEquals(200, response.getStatus());
+        response.close();
+        Assert.assertTrue(hasTag(publishedByPath().get(0), "2.0"));
+
+        publish(false);
+        Assert.assertEquals(0, publishedByPath().size());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+import io.dockstore.webservice.core.FileContent;
+import io.dockstore.webservice.core.SourceFile;
+import io.dropwizard.jackson.Jackson;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author agent
+ */
+public class SourceFileTest {
+    private static final ObjectMapper MAPPER = Jackson.newObjectMapper();
+
+    @Test
+    public void smallContentIsStoredAsText() {
+        SourceFile file = new SourceFile();
+        file.setContent("cwlVersion: v1.0");
+        assertThat(file.getContent()).isEqualTo("cwlVersion: v1.0");
+        assertThat(file.getFileContent().isCompressed()).isFalse();
+        assertThat(file.getFileContent().getId()).isEqualTo(FileContent.hash("cwlVersion: v1.0"));
+    }
+
+    @Test
+    public void largeContentIsCompressed() {
+        String content = Strings.repeat("inputs:\n  - id: reference\n    type: File\n", FileContent.COMPRESSION_THRESHOLD);
+        FileContent fileContent = new FileContent(content);
+        assertThat(fileContent.isCompressed()).isTrue();
+        assertThat(fileContent.getCompressedContent().length).isLessThan(content.length());
+        assertThat(fileContent.getContent()).isEqualTo(content);
+    }
+
+    @Test
+    public void sameContentSameHash() {
+        SourceFile first = new SourceFile();
+        first.setContent("FROM ubuntu:16.04");
+        SourceFile second = new SourceFile();
+        second.setContent("FROM ubuntu:16.04");
+        assertThat(first.getFileContent().getId()).isEqualTo(second.getFileContent().getId());
+        second.setContent(null);
+        assertThat(second.getContent()).isNull();
+        assertThat(second.getFileContent()).isNull();
+    }
+
+    @Test
+    public void serializesContentOnly() throws Exception {
+        SourceFile file = new SourceFile();
+        file.setPath("/Dockstore.cwl");
+        file.setContent("cwlVersion: v1.0");
+        JsonNode json = MAPPER.readTree(MAPPER.writeValueAsString(file));
+        assertThat(json.get("content").asText()).isEqualTo("cwlVersion: v1.0");
+        assertThat(json.has("fileContent")).isFalse();
+        assertThat(json.has("newContent")).isFalse();
+    }
+}
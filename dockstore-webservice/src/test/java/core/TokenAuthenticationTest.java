@@ -0,0 +1,128 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.SimpleAuthenticator;
+import io.dockstore.webservice.core.Token;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.jdbi.UserDAO;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Authenticates bearer tokens, which are looked up by {@link Token#hash(String)}. Requests over HTTP use contents unique to
+ * each test since the webservice caches the users of credentials.
+ *
+ * @author agent
+ */
+public class TokenAuthenticationTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private SimpleAuthenticator authenticator;
+    private String content;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        authenticator = new UnitOfWorkAwareProxyFactory(RULE.getApplication().getHibernate())
+                .create(SimpleAuthenticator.class, new Class[] { UserDAO.class },
+                        new Object[] { new UserDAO(RULE.getApplication().getHibernate().getSessionFactory()) });
+        content = UUID.randomUUID().toString();
+    }
+
+    private static void insertToken(long id, String tokenSource, long userId, String tokenContent) {
+        CommonTestUtilities.getTestingPostgres().runUpdateStatement(
+                "INSERT INTO token (id, content, contenthash, tokensource, userid, username) VALUES (?, ?, ?, ?, ?, 'admin@admin.com')", id,
+                tokenContent, Token.hash(tokenContent), tokenSource, userId);
+    }
+
+    private static int status(String credentials) {
+        Client client = ClientBuilder.newClient();
+        try {
+            Response response = client.target("http://localhost:" + RULE.getLocalPort()).path("/users/user").request()
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + credentials).get();
+            response.close();
+            return response.getStatus();
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void dockstoreTokenAuthenticates() throws AuthenticationException {
+        Optional<User> user = authenticator.authenticate(CommonTestUtilities.DUMMY_TOKEN_1);
+        Assert.assertTrue(user.isPresent());
+        Assert.assertEquals(1, user.get().getId());
+
+        insertToken(900001, "dockstore", 2, content);
+        Assert.assertEquals(200, status(content));
+    }
+
+    @Test
+    public void githubTokenIsRejected() throws AuthenticationException {
+        insertToken(900001, "github.com", 2, content);
+        Assert.assertFalse(authenticator.authenticate(content).isPresent());
+        Assert.assertEquals(401, status(content));
+
+        // a github token with the content of a dockstore token does not stand in for it
+        insertToken(900002, "github.com", 2, CommonTestUtilities.DUMMY_TOKEN_1);
+        Optional<User> user = authenticator.authenticate(CommonTestUtilities.DUMMY_TOKEN_1);
+        Assert.assertTrue(user.isPresent());
+        Assert.assertEquals(1, user.get().getId());
+    }
+
+    @Test
+    public void hashMatchesMigration() {
+        CommonTestUtilities.TestingPostgres postgres = CommonTestUtilities.getTestingPostgres();
+        try {
+            postgres.runUpdateStatement("CREATE EXTENSION IF NOT EXISTS pgcrypto");
+        } catch (RuntimeException e) {
+            Assume.assumeNoException("the tokencontenthash migration needs pgcrypto", e);
+        }
+        // not only ASCII, both sides hash UTF-8
+        String tokenContent = content + " \u00e9\u4e2d";
+        insertToken(900001, "dockstore", 2, tokenContent);
+        // the backfill of the tokencontenthash changeset
+        String backfill = "encode(digest(content, 'sha256'), 'hex')";
+        Assert.assertEquals(Token.hash(tokenContent), postgres
+                .runSelectStatement("SELECT " + backfill + " FROM token WHERE id = 900001", new ScalarHandler<>()));
+        Assert.assertEquals(0L, (long)postgres.<Long>runSelectStatement(
+                "SELECT count(*) FROM token WHERE contenthash IS DISTINCT FROM " + backfill, new ScalarHandler<>()));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package core;
+
+import java.util.Collections;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dockstore.common.CommonTestUtilities;
+import io.dockstore.webservice.DockstoreWebserviceApplication;
+import io.dockstore.webservice.DockstoreWebserviceConfiguration;
+import io.dockstore.webservice.api.PublishRequest;
+import io.dockstore.webservice.core.Tag;
+import io.dockstore.webservice.core.User;
+import io.dockstore.webservice.helpers.RefreshExecutor;
+import io.dockstore.webservice.helpers.ToolProjectionService;
+import io.dockstore.webservice.jdbi.FileDAO;
+import io.dockstore.webservice.jdbi.LabelDAO;
+import io.dockstore.webservice.jdbi.TagDAO;
+import io.dockstore.webservice.jdbi.TokenDAO;
+import io.dockstore.webservice.jdbi.ToolDAO;
+import io.dockstore.webservice.jdbi.ToolProjectionDAO;
+import io.dockstore.webservice.jdbi.UserDAO;
+import io.dockstore.webservice.resources.DockerRepoResource;
+import io.dockstore.webservice.resources.DockerRepoTagResource;
+import io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory;
+import io.dropwizard.testing.ResourceHelpers;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import io.swagger.api.NotFoundException;
+import io.swagger.api.impl.ToolsApiServiceImpl;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.apache.http.client.HttpClient;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+/**
+ * Checks that the requests that change a tool keep its stored GA4GH representation up to date. Tool 5 of the fixtures is an
+ * unpublished tool with a valid tag and a git url, tool 6 is published.
+ *
+ * @author agent
+ */
+public class ToolProjectionTest {
+
+    @ClassRule
+    public static final DropwizardAppRule<DockstoreWebserviceConfiguration> RULE = new DropwizardAppRule<>(
+            DockstoreWebserviceApplication.class, ResourceHelpers.resourceFilePath("dockstore.yml"));
+
+    private SessionFactory sessionFactory;
+    private DockerRepoResource dockerRepoResource;
+    private DockerRepoTagResource dockerRepoTagResource;
+    private User admin;
+
+    @Before
+    public void setUp() {
+        CommonTestUtilities.clearState();
+        DockstoreWebserviceApplication application = RULE.getApplication();
+        sessionFactory = application.getHibernate().getSessionFactory();
+        ToolDAO toolDAO = new ToolDAO(sessionFactory);
+        TagDAO tagDAO = new TagDAO(sessionFactory);
+        UserDAO userDAO = new UserDAO(sessionFactory);
+        ToolProjectionService toolProjectionService = new ToolProjectionService(new ToolProjectionDAO(sessionFactory));
+        UnitOfWorkAwareProxyFactory proxyFactory = new UnitOfWorkAwareProxyFactory(application.getHibernate());
+        dockerRepoResource = proxyFactory.create(DockerRepoResource.class,
+                new Class[] { ObjectMapper.class, HttpClient.class, UserDAO.class, TokenDAO.class, ToolDAO.class, TagDAO.class,
+                        LabelDAO.class, FileDAO.class, String.class, String.class, RefreshExecutor.class, ToolProjectionService.class },
+                new Object[] { new ObjectMapper(), null, userDAO, new TokenDAO(sessionFactory), toolDAO, tagDAO,
+                        new LabelDAO(sessionFactory), new FileDAO(sessionFactory), null, null, null, toolProjectionService });
+        dockerRepoTagResource = proxyFactory.create(DockerRepoTagResource.class,
+                new Class[] { ToolDAO.class, TagDAO.class, ToolProjectionService.class },
+                new Object[] { toolDAO, tagDAO, toolProjectionService });
+
+        Session session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+        try {
+            admin = userDAO.findById(1);
+        } finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            session.close();
+        }
+    }
+
+    private static String projection(long entryId) {
+        return CommonTestUtilities.getTestingPostgres()
+                .runSelectStatement("SELECT json FROM toolprojection WHERE entryid = ?", new ScalarHandler<>(), entryId);
+    }
+
+    @Test
+    public void publishWritesAndUnpublishRemoves() {
+        Assert.assertNull(projection(5));
+        dockerRepoResource.publish(admin, 5L, new PublishRequest(true));
+        Assert.assertTrue(projection(5).contains("quay.io/test_org/test5"));
+
+        dockerRepoResource.publish(admin, 5L, new PublishRequest(false));
+        Assert.assertNull(projection(5));
+    }
+
+    @Test
+    public void newTagIsProjected() {
+        dockerRepoResource.publish(admin, 5L, new PublishRequest(true));
+        Assert.assertFalse(projection(5).contains("\"name\":\"2.0\""));
+
+        Tag tag = new Tag();
+        tag.setName("2.0");
+        tag.setReference("master");
+        tag.setImageId("abc123");
+        dockerRepoTagResource.addTags(admin, 5L, Collections.singletonList(tag));
+        Assert.assertTrue(projection(5).contains("\"name\":\"2.0\""));
+    }
+
+    @Test
+    public void deleteRemoves() {
+        CommonTestUtilities.getTestingPostgres().runUpdateStatement("UPDATE tool SET mode = 'MANUAL_IMAGE_PATH' WHERE id = 5");
+        dockerRepoResource.publish(admin, 5L, new PublishRequest(true));
+        Assert.assertNotNull(projection(5));
+
+        Assert.assertEquals(200, dockerRepoResource.deleteContainer(admin, 5L).getStatus());
+        Assert.assertNull(projection(5));
+    }
+
+    @Test
+    public void readsDoNotWrite() throws NotFoundException {
+        // tool 6 was published before it had a projection, it is still listed but nothing is stored for it
+        Session session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+        try {
+            Assert.assertEquals(200, new ToolsApiServiceImpl().toolsGet(null, null, null, null, null, null, null, null, null, null)
+                    .getStatus());
+        } finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            session.close();
+        }
+        Assert.assertNull(projection(6));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.sun.management.UnixOperatingSystemMXBean;
+import io.dockstore.webservice.resources.WorkflowResource;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class DAGHelperTest {
+    private static final int OPEN_FILES_SLACK = 4;
+    static final String MAIN = "import \"tasks.wdl\" as tasks\n"
+            + "\n"
+            + "task hello {\n"
+            + "  command { echo hello }\n"
+            + "  output { String out = read_string(stdout()) }\n"
+            + "  runtime { docker: \"ubuntu:16.04\" }\n"
+            + "}\n"
+            + "\n"
+            + "workflow wf {\n"
+            + "  call hello\n"
+            + "  call tasks.goodbye { input: greeting = hello.out }\n"
+            + "}\n";
+    static final String TASKS = "task goodbye {\n"
+            + "  String greeting\n"
+            + "  command { echo ${greeting} }\n"
+            + "  runtime { docker: \"debian:8\" }\n"
+            + "}\n";
+
+    static Map<String, String> secondaryFiles() {
+        Map<String, String> secondaryFiles = new HashMap<>();
+        secondaryFiles.put("tasks.wdl", TASKS);
+        return secondaryFiles;
+    }
+
+    @Test
+    public void wdlToolTableFromStrings() {
+        // docker images without a namespace link to Docker Hub, so no tool needs to be looked up
+        String tools = new DAGHelper(null).getContentWDL("/Dockstore.wdl", MAIN, secondaryFiles(), WorkflowResource.Type.TOOLS);
+        Assert.assertTrue(tools, tools.contains("ubuntu:16.04") && tools.contains("/Dockstore.wdl"));
+        Assert.assertTrue("imported calls point at their file", tools.contains("debian:8") && tools.contains("tasks.wdl"));
+
+        String dag = new DAGHelper(null).getContentWDL("/Dockstore.wdl", MAIN, secondaryFiles(), WorkflowResource.Type.DAG);
+        Assert.assertTrue(dag, dag.contains("hello") && dag.contains("goodbye"));
+    }
+
+    /**
+     * @return the number of files this JVM has open, or -1 if the platform does not tell
+     */
+    private static long openFiles() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        return os instanceof UnixOperatingSystemMXBean ? ((UnixOperatingSystemMXBean)os).getOpenFileDescriptorCount() : -1;
+    }
+
+    private static String dag() {
+        return new DAGHelper(null).getContentWDL("/Dockstore.wdl", MAIN, secondaryFiles(), WorkflowResource.Type.DAG);
+    }
+
+    @Test
+    public void concurrentDagsDoNotLeakFiles() throws Exception {
+        Assume.assumeTrue("open files are only counted on Unix", openFiles() >= 0);
+        // load the classes and jars involved first, those stay open
+        String expected = dag();
+        long openBefore = openFiles();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> dags = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                dags.add(executor.submit(DAGHelperTest::dag));
+            }
+            for (Future<String> dag : dags) {
+                Assert.assertEquals(expected, dag.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // loggers or lazily opened jars may take a file or two, 64 leaked temporary files would not fit
+        Assert.assertTrue("no files are left open", openFiles() <= openBefore + OPEN_FILES_SLACK);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import io.dockstore.client.Bridge;
+import org.apache.commons.io.FileUtils;
+import wdl4s.NamespaceWithWorkflow;
+
+/**
+ * Compares building the lookups for a DAG from one parse in memory with the three parses of files written to a temporary
+ * directory that it replaced. Timings depend on the machine, so this is not a test and surefire does not run it. Run it with
+ * <pre>
+ * mvn -pl dockstore-webservice test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=io.dockstore.webservice.helpers.DAGParseBenchmark
+ * </pre>
+ *
+ * @author agent
+ */
+public final class DAGParseBenchmark {
+    private static final int WARMUPS = 20;
+    private static final int ITERATIONS = 100;
+
+    private DAGParseBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Bridge bridge = new Bridge();
+        bridge.setSecondaryFiles(DAGHelperTest.secondaryFiles());
+        NamespaceWithWorkflow namespace = bridge.parseWorkflow(DAGHelperTest.MAIN);
+        final String expected = bridge.getCallsToDockerMap(namespace) + " " + bridge.getImportMap(namespace) + " " + bridge
+                .getCallsToDependencies(namespace);
+
+        long[] nanos = new long[2];
+        for (int i = 0; i < WARMUPS + ITERATIONS; i++) {
+            long start = System.nanoTime();
+            File directory = Files.createTempDirectory("dag").toFile();
+            try {
+                File main = new File(directory, "Dockstore.wdl");
+                FileUtils.writeStringToFile(main, DAGHelperTest.MAIN, StandardCharsets.UTF_8);
+                FileUtils.writeStringToFile(new File(directory, "tasks.wdl"), DAGHelperTest.TASKS, StandardCharsets.UTF_8);
+                String fromFiles = bridge.getCallsToDockerMap(main) + " " + bridge.getImportMap(main) + " " + bridge
+                        .getCallsToDependencies(main);
+                long middle = System.nanoTime();
+                namespace = bridge.parseWorkflow(DAGHelperTest.MAIN);
+                String inMemory = bridge.getCallsToDockerMap(namespace) + " " + bridge.getImportMap(namespace) + " " + bridge
+                        .getCallsToDependencies(namespace);
+                long end = System.nanoTime();
+                if (!expected.equals(fromFiles) || !expected.equals(inMemory)) {
+                    throw new IllegalStateException("the two ways disagree: " + fromFiles + " and " + inMemory);
+                }
+                if (i >= WARMUPS) {
+                    nanos[0] += middle - start;
+                    nanos[1] += end - middle;
+                }
+            } finally {
+                FileUtils.deleteDirectory(directory);
+            }
+        }
+        System.out.println(String.format("DAG lookups from temporary files: %.3f ms/op, from one parse in memory: %.3f ms/op",
+                nanos[0] / 1e6 / ITERATIONS, nanos[1] / 1e6 / ITERATIONS));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilderSpec;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.WorkflowVersion;
+import io.dockstore.webservice.resources.WorkflowResource;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class DescriptorResultCacheTest {
+
+    private static SourceFile file(long id, String path, String content) {
+        SourceFile file = new SourceFile();
+        file.setId(id);
+        file.setType(SourceFile.FileType.DOCKSTORE_CWL);
+        file.setPath(path);
+        file.setContent(content);
+        return file;
+    }
+
+    private static WorkflowVersion version(SourceFile... files) {
+        WorkflowVersion version = new WorkflowVersion();
+        version.setWorkflowPath("/Dockstore.cwl");
+        for (SourceFile file : files) {
+            version.addSourceFile(file);
+        }
+        return version;
+    }
+
+    @Test
+    public void sourceHashFollowsContent() {
+        String hash = DescriptorResultCache.sourceHash("cwl", version(file(1, "/Dockstore.cwl", "a"), file(2, "/tool.cwl", "b")));
+        Assert.assertEquals("order of files does not matter", hash,
+                DescriptorResultCache.sourceHash("cwl", version(file(2, "/tool.cwl", "b"), file(1, "/Dockstore.cwl", "a"))));
+        Assert.assertNotEquals(hash,
+                DescriptorResultCache.sourceHash("cwl", version(file(1, "/Dockstore.cwl", "a"), file(2, "/tool.cwl", "c"))));
+        Assert.assertNotEquals(hash,
+                DescriptorResultCache.sourceHash("wdl", version(file(1, "/Dockstore.cwl", "a"), file(2, "/tool.cwl", "b"))));
+    }
+
+    @Test
+    public void sourceHashWithoutWorkflowPath() {
+        WorkflowVersion version = version(file(1, "/Dockstore.cwl", "a"));
+        String hash = DescriptorResultCache.sourceHash("cwl", version);
+        version.setWorkflowPath(null);
+        Assert.assertNotEquals(hash, DescriptorResultCache.sourceHash("cwl", version));
+    }
+
+    @Test
+    public void computeOncePerContent() {
+        DescriptorResultCache cache = new DescriptorResultCache(CacheBuilderSpec.parse("maximumSize=10"), null, 0, new MetricRegistry());
+        AtomicInteger loads = new AtomicInteger();
+        WorkflowVersion version = version(file(1, "/Dockstore.cwl", "a"));
+
+        Assert.assertEquals("dag0", cache.get(version, "cwl", WorkflowResource.Type.DAG, () -> "dag" + loads.getAndIncrement()));
+        Assert.assertEquals("dag0", cache.get(version, "cwl", WorkflowResource.Type.DAG, () -> "dag" + loads.getAndIncrement()));
+        Assert.assertEquals(1, loads.get());
+
+        cache.get(version, "cwl", WorkflowResource.Type.TOOLS, () -> "tools" + loads.getAndIncrement());
+        Assert.assertEquals("tool tables are cached apart from DAGs", 2, loads.get());
+
+        version.getSourceFiles().iterator().next().setContent("changed");
+        cache.get(version, "cwl", WorkflowResource.Type.DAG, () -> "dag" + loads.getAndIncrement());
+        Assert.assertEquals("new content is parsed again", 3, loads.get());
+
+        Assert.assertNull(cache.get(version, "cwl", WorkflowResource.Type.TOOLS, () -> null));
+        Assert.assertFalse(cache.isPersistent());
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Optional;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class GitLabProjectIndexTest {
+
+    private static String page(int first, int count, String lastActivity) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = first; i < first + count; i++) {
+            if (i > first) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(i).append(",\"path_with_namespace\":\"user/repo").append(i)
+                    .append("\",\"default_branch\":\"master\",\"ssh_url_to_repo\":\"git@gitlab.com:user/repo").append(i)
+                    .append(".git\",\"last_activity_at\":\"").append(lastActivity).append("\"}");
+        }
+        return builder.append(']').toString();
+    }
+
+    @Test
+    public void buildFromAllPages() {
+        List<String> urls = new ArrayList<>();
+        GitLabProjectIndex index = GitLabProjectIndex.build("https://gitlab.com/api/v3/", url -> {
+            urls.add(url);
+            return Optional.of(url.endsWith("page=1") ? page(0, GitLabProjectIndex.PAGE_SIZE, "2016-10-05T00:00:00Z")
+                    : page(GitLabProjectIndex.PAGE_SIZE, 1, "2016-10-04T00:00:00Z"));
+        });
+        Assert.assertNotNull(index);
+        Assert.assertEquals(2, urls.size());
+        Assert.assertEquals(GitLabProjectIndex.PAGE_SIZE + 1, index.getProjects().size());
+        Assert.assertEquals("100", index.get("user/repo100").getId());
+        Assert.assertEquals("master", index.get("user/repo100").getDefaultBranch());
+    }
+
+    @Test
+    public void refreshOnlyReadsNewerProjects() {
+        List<String> urls = new ArrayList<>();
+        String[] pages = {page(0, 2, "2016-10-05T00:00:00Z")};
+        GitLabProjectIndex index = GitLabProjectIndex.build("https://gitlab.com/api/v3/", url -> {
+            urls.add(url);
+            return Optional.of(pages[0]);
+        });
+        Assert.assertNotNull(index);
+        Assert.assertNull(index.get("user/repo5"));
+
+        String newer = page(5, 1, "2016-10-06T00:00:00Z");
+        String older = page(0, GitLabProjectIndex.PAGE_SIZE - 1, "2016-10-01T00:00:00Z");
+        pages[0] = newer.substring(0, newer.length() - 1) + ',' + older.substring(1);
+        urls.clear();
+        index.refresh();
+        Assert.assertEquals(1, urls.size());
+        Assert.assertEquals("5", index.get("user/repo5").getId());
+    }
+
+    @Test
+    public void unreachableGitLab() {
+        Assert.assertNull(GitLabProjectIndex.build("https://gitlab.com/api/v3/", url -> Optional.absent()));
+    }
+}
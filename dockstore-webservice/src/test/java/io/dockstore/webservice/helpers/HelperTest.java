@@ -0,0 +1,137 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Optional;
+import io.dockstore.webservice.core.Entry;
+import io.dockstore.webservice.core.SourceFile;
+import io.dockstore.webservice.core.Tag;
+import io.dockstore.webservice.core.Tool;
+import io.dockstore.webservice.core.Workflow;
+import io.dockstore.webservice.core.WorkflowVersion;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class HelperTest {
+
+    private StubRepo repo;
+    private Tool tool;
+    private Tag tag;
+
+    /**
+     * A repository whose master branch points at a settable commit and that has no files
+     */
+    private static class StubRepo extends SourceCodeRepoInterface {
+        private String commitID;
+        private int commitLookups = 0;
+        private int reads = 0;
+
+        @Override
+        public String getCommitID(String reference) {
+            commitLookups++;
+            return commitID;
+        }
+
+        @Override
+        public String readFile(String fileName, String reference) {
+            reads++;
+            return null;
+        }
+
+        @Override
+        public String getOrganizationEmail() {
+            return null;
+        }
+
+        @Override
+        public Map<String, String> getWorkflowGitUrl2RepositoryId() {
+            return null;
+        }
+
+        @Override
+        public Workflow initializeWorkflow(String repositoryId) {
+            return null;
+        }
+
+        @Override
+        public Workflow setupWorkflowVersions(String repositoryId, Workflow workflow, Optional<Workflow> existingWorkflow,
+                Map<String, WorkflowVersion> existingDefaults) {
+            return null;
+        }
+
+        @Override
+        public String getRepositoryId(Entry entry) {
+            return null;
+        }
+
+        @Override
+        public String getMainBranch(Entry entry, String repositoryId) {
+            return null;
+        }
+
+        @Override
+        public String getFileContents(String filePath, String branch, String repositoryId) {
+            return null;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        repo = new StubRepo();
+        repo.commitID = "abc123";
+        tag = new Tag();
+        tag.setName("1.0");
+        tag.setReference("master");
+        tag.setCommitID("abc123");
+        tool = new Tool();
+        tool.addTag(tag);
+    }
+
+    @Test
+    public void unchangedReferenceIsSkipped() {
+        Map<Tag, List<SourceFile>> tagFiles = Helper.loadFilesForTags(tool, repo, "user", true);
+        Assert.assertTrue(tagFiles.isEmpty());
+        Assert.assertEquals(1, repo.commitLookups);
+        Assert.assertEquals("no file is read for an unchanged reference", 0, repo.reads);
+        Assert.assertEquals("abc123", tag.getCommitID());
+    }
+
+    @Test
+    public void movedReferenceIsRead() {
+        repo.commitID = "def456";
+        Map<Tag, List<SourceFile>> tagFiles = Helper.loadFilesForTags(tool, repo, "user", true);
+        Assert.assertTrue(tagFiles.containsKey(tag));
+        Assert.assertTrue(repo.reads > 0);
+        Assert.assertEquals("def456", tag.getCommitID());
+    }
+
+    @Test
+    public void fullRefreshDoesNotLookUpCommits() {
+        Map<Tag, List<SourceFile>> tagFiles = Helper.loadFilesForTags(tool, repo, "user", false);
+        Assert.assertTrue(tagFiles.containsKey(tag));
+        Assert.assertEquals(0, repo.commitLookups);
+        Assert.assertTrue(repo.reads > 0);
+        Assert.assertNull("the commit the files came from is not known", tag.getCommitID());
+    }
+}
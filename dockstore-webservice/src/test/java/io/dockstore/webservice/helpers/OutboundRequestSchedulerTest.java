@@ -0,0 +1,198 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.MetricRegistry;
+import com.sun.net.httpserver.HttpServer;
+import io.dockstore.webservice.RateLimitedException;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Sends requests through the scheduler to a local server that answers with the statuses queued by each test.
+ *
+ * @author agent
+ */
+public class OutboundRequestSchedulerTest {
+
+    /**
+     * A queued response: status and headers as name, value pairs
+     */
+    private static final class Reply {
+        private final int status;
+        private final String[] headers;
+
+        private Reply(int status, String... headers) {
+            this.status = status;
+            this.headers = headers;
+        }
+    }
+
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private CloseableHttpClient client;
+    private OutboundRequestScheduler scheduler;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            Reply reply = replies.poll();
+            if (reply == null) {
+                reply = new Reply(200);
+            }
+            for (int i = 0; i < reply.headers.length; i += 2) {
+                exchange.getResponseHeaders().add(reply.headers[i], reply.headers[i + 1]);
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(reply.status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+        client = HttpClients.createDefault();
+        scheduler = new OutboundRequestScheduler(1000, 1000, 2, 2, new MetricRegistry());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        server.stop(0);
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    private String execute(HttpRequestBase request) throws IOException {
+        return scheduler.execute(client, request, new BasicResponseHandler());
+    }
+
+    private static HttpGet get(String url, String token) {
+        HttpGet get = new HttpGet(url);
+        get.addHeader("Authorization", "Bearer " + token);
+        return get;
+    }
+
+    @Test
+    public void serverErrorsOfGetsAreRetried() throws IOException {
+        replies.add(new Reply(500));
+        replies.add(new Reply(502));
+        Assert.assertEquals("ok", execute(get(url(), "a")));
+        Assert.assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void retriesRunOut() throws IOException {
+        replies.add(new Reply(500));
+        replies.add(new Reply(500));
+        replies.add(new Reply(500));
+        try {
+            execute(get(url(), "a"));
+            Assert.fail("every attempt failed");
+        } catch (HttpResponseException e) {
+            Assert.assertEquals(500, e.getStatusCode());
+        }
+        Assert.assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void postsAreNotRetried() throws IOException {
+        replies.add(new Reply(500));
+        try {
+            execute(new HttpPost(url()));
+            Assert.fail("the server error is not retried");
+        } catch (HttpResponseException e) {
+            Assert.assertEquals(500, e.getStatusCode());
+        }
+        Assert.assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void retryAfterFailsFast() throws IOException {
+        replies.add(new Reply(429, "Retry-After", "120"));
+        final long start = System.nanoTime();
+        try {
+            execute(get(url(), "a"));
+            Assert.fail("the rate limit resets in two minutes");
+        } catch (RateLimitedException e) {
+            Assert.assertEquals(503, e.getResponse().getStatus());
+            long retryAfter = Long.parseLong(e.getResponse().getHeaderString("Retry-After"));
+            Assert.assertTrue(retryAfter > 110 && retryAfter <= 121);
+        }
+        Assert.assertTrue("nothing waits for the reset", System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        Assert.assertEquals(1, requests.get());
+
+        try {
+            execute(get(url(), "a"));
+            Assert.fail("the same credentials are still blocked");
+        } catch (RateLimitedException e) {
+            Assert.assertEquals(1, requests.get());
+        }
+        Assert.assertEquals("other credentials are not blocked", "ok", execute(get(url(), "b")));
+    }
+
+    @Test
+    public void exhaustedRateLimitFailsFast() throws IOException {
+        long reset = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 600;
+        replies.add(new Reply(200, "X-RateLimit-Remaining", "0", "X-RateLimit-Reset", Long.toString(reset)));
+        Assert.assertEquals("ok", execute(get(url(), "a")));
+        try {
+            execute(get(url(), "a"));
+            Assert.fail("no requests remain until the reset");
+        } catch (RateLimitedException e) {
+            Assert.assertTrue(e.getRetryAfterSeconds() > 590);
+        }
+        Assert.assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void shortRateLimitsAreWaitedOut() throws IOException {
+        replies.add(new Reply(429, "Retry-After", "1"));
+        Assert.assertEquals("ok", execute(get(url(), "a")));
+        Assert.assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void credentialsAreForgotten() throws IOException {
+        for (String token : new String[] { "a", "b", "c", "d" }) {
+            execute(get(url(), token));
+        }
+        Assert.assertEquals(2, scheduler.trackedCredentials());
+    }
+}
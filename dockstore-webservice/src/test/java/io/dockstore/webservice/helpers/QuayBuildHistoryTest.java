@@ -0,0 +1,49 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class QuayBuildHistoryTest {
+
+    @Test
+    public void indexMostRecentBuildPerTag() throws Exception {
+        String json = "{\"builds\": ["
+                + "{\"tags\": [\"latest\", \"1.1\"], \"started\": \"Tue, 4 Oct 2016 12:00:00 -0000\","
+                + " \"trigger_metadata\": {\"git_url\": \"git@github.com:user/repo.git\", \"ref\": \"refs/heads/master\"}},"
+                + "{\"tags\": [\"latest\", \"1.0\"], \"started\": \"Mon, 3 Oct 2016 12:00:00 -0000\","
+                + " \"trigger_metadata\": {\"git_url\": \"git@github.com:user/repo.git\", \"ref\": \"refs/tags/1.0\"}},"
+                + "{\"tags\": [\"manual\"], \"started\": \"Sun, 2 Oct 2016 12:00:00 -0000\", \"trigger_metadata\": null}"
+                + "], \"next_page\": null}";
+        QuayBuildHistory history = QuayBuildHistory.parse(json);
+        Assert.assertEquals("git@github.com:user/repo.git", history.getLatest().getGitUrl());
+        Assert.assertEquals("Tue, 4 Oct 2016 12:00:00 -0000", history.getLatest().getStarted());
+        Assert.assertEquals("refs/heads/master", history.getLatest("latest").getRef());
+        Assert.assertEquals("refs/tags/1.0", history.getLatest("1.0").getRef());
+        Assert.assertFalse(history.getLatest("manual").isTriggered());
+        Assert.assertNull(history.getLatest("2.0"));
+    }
+
+    @Test
+    public void neverBuilt() throws Exception {
+        Assert.assertNull(QuayBuildHistory.parse("{\"builds\": []}").getLatest());
+    }
+}
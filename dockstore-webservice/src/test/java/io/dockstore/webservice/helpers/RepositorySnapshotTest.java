@@ -0,0 +1,67 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class RepositorySnapshotTest {
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("owner-repo-abc123/"));
+            zip.closeEntry();
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry("owner-repo-abc123/" + namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void readFilesRelativeToRoot() throws Exception {
+        byte[] archive = zip("Dockstore.cwl", "class: Workflow", "tools/rev.cwl", "class: CommandLineTool");
+        RepositorySnapshot snapshot = RepositorySnapshot.fromZip("owner/repo", "master", new ByteArrayInputStream(archive), 1024);
+        Assert.assertTrue(snapshot.isAvailable());
+        Assert.assertTrue(snapshot.isFor("owner/repo", "master"));
+        Assert.assertEquals("class: Workflow", snapshot.read("/Dockstore.cwl"));
+        Assert.assertEquals("class: CommandLineTool", snapshot.read("tools/rev.cwl"));
+        Assert.assertEquals("class: CommandLineTool", snapshot.read("./tools/rev.cwl"));
+        Assert.assertNull(snapshot.read("missing.cwl"));
+    }
+
+    @Test
+    public void abandonLargeSnapshots() throws Exception {
+        byte[] archive = zip("Dockstore.cwl", "class: Workflow");
+        RepositorySnapshot snapshot = RepositorySnapshot.fromZip("owner/repo", "master", new ByteArrayInputStream(archive), 4);
+        Assert.assertFalse(snapshot.isAvailable());
+        Assert.assertTrue(snapshot.isFor("owner/repo", "master"));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.helpers;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import io.dockstore.webservice.core.Token;
+import io.dockstore.webservice.core.TokenType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class UserTokensTest {
+
+    private static Token token(long id, TokenType type, String content) {
+        return new Token(id, 1, type.toString(), content);
+    }
+
+    @Test
+    public void keepFirstTokenOfEachService() {
+        Token github = token(1, TokenType.GITHUB_COM, "github");
+        Token otherGithub = token(2, TokenType.GITHUB_COM, "other");
+        Token quay = token(3, TokenType.QUAY_IO, "quay");
+        Token unknown = new Token(4, 1, "example.com", "unknown");
+        UserTokens tokens = new UserTokens(1, ImmutableList.of(github, otherGithub, quay, unknown));
+
+        Assert.assertEquals(1, tokens.getUserId());
+        Assert.assertSame(github, tokens.get(TokenType.GITHUB_COM));
+        Assert.assertSame(quay, tokens.get(TokenType.QUAY_IO));
+        Assert.assertEquals("quay", tokens.getContent(TokenType.QUAY_IO));
+        Assert.assertNull(tokens.get(TokenType.BITBUCKET_ORG));
+        Assert.assertNull(tokens.getContent(TokenType.GITLAB_COM));
+    }
+
+    @Test
+    public void nearExpiry() {
+        final long margin = TimeUnit.MINUTES.toMillis(5);
+        Token bitbucket = token(1, TokenType.BITBUCKET_ORG, "bitbucket");
+        Assert.assertTrue("tokens without an expiry are refreshed", bitbucket.isNearExpiry(margin));
+        bitbucket.setExpiry(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)));
+        Assert.assertFalse(bitbucket.isNearExpiry(margin));
+        bitbucket.setExpiry(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1)));
+        Assert.assertTrue(bitbucket.isNearExpiry(margin));
+        bitbucket.setExpiry(new Date(System.currentTimeMillis() - 1));
+        Assert.assertTrue(bitbucket.isNearExpiry(margin));
+    }
+}
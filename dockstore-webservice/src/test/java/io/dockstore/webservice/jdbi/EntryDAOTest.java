@@ -0,0 +1,42 @@
+/*
+ *    Copyright 2016 OICR
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package io.dockstore.webservice.jdbi;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author agent
+ */
+public class EntryDAOTest {
+
+    @Test
+    public void prefixQueryMatchesEveryWord() {
+        Assert.assertEquals("bamstats:*", EntryDAO.toPrefixQuery("bamstats"));
+        Assert.assertEquals("quay:* & io:* & collaboratory:* & dockstore:* & tool:* & bamstats:*",
+                EntryDAO.toPrefixQuery("quay.io/collaboratory/dockstore-tool-bamstats"));
+        Assert.assertEquals("sort:* & bam:*", EntryDAO.toPrefixQuery("  sort  bam "));
+    }
+
+    @Test
+    public void prefixQueryDropsOperators() {
+        Assert.assertEquals("a:* & b:*", EntryDAO.toPrefixQuery("a & !b:*"));
+        Assert.assertNull(EntryDAO.toPrefixQuery("|()"));
+        Assert.assertNull(EntryDAO.toPrefixQuery(""));
+        Assert.assertNull(EntryDAO.toPrefixQuery(null));
+    }
+}